@@ -0,0 +1,60 @@
+package com.example.astar.bench;
+
+import com.example.astar.core.CsrGraph;
+import com.example.astar.core.Edge;
+import com.example.astar.core.Graph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the adjacency-list graph edge by edge, freezing it into a
+ * CSR snapshot and scanning every neighbour list once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBuildBenchmark {
+
+    @Param({ "grid", "geometric", "scalefree" })
+    public String type;
+
+    @Param({ "10000", "100000" })
+    public int size;
+
+    @Param({ "42" })
+    public long seed;
+
+    private SyntheticGraph synthetic;
+    private Graph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        synthetic = SyntheticGraph.generate(type, size, seed);
+        graph = synthetic.toGraph();
+    }
+
+    @Benchmark
+    public Graph addEdges() {
+        return synthetic.toGraph();
+    }
+
+    @Benchmark
+    public CsrGraph freeze() {
+        return graph.freeze();
+    }
+
+    @Benchmark
+    public void getNeighbors(Blackhole blackhole) {
+        long total = 0;
+        for (int node = 0; node < synthetic.getNodeCount(); node++) {
+            for (Edge edge : graph.getNeighbors(node))
+                total += edge.getWeight();
+        }
+        blackhole.consume(total);
+    }
+}
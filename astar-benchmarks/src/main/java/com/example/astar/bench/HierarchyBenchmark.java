@@ -0,0 +1,56 @@
+package com.example.astar.bench;
+
+import com.example.astar.core.ContractionHierarchy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contraction hierarchy preprocessing and queries on road-like graphs. The
+ * scale-free graphs are left out: contracting their hubs takes minutes and
+ * says nothing about road networks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HierarchyBenchmark {
+
+    @Param({ "grid", "geometric" })
+    public String type;
+
+    // preprocessing dominates a run, pass -p size=100000 for the larger graphs
+    @Param({ "10000" })
+    public int size;
+
+    @Param({ "42" })
+    public long seed;
+
+    private SyntheticGraph synthetic;
+    private int[] pairs;
+    private ContractionHierarchy hierarchy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        synthetic = SyntheticGraph.generate(type, size, seed);
+        pairs = QueryBenchmark.pairs(synthetic, seed);
+        hierarchy = ContractionHierarchy.build(synthetic.toCsr());
+    }
+
+    @Benchmark
+    public int query(QueryBenchmark.Cursor cursor) {
+        int i = cursor.advance();
+        return hierarchy.getDistance(pairs[i], pairs[i + 1]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public ContractionHierarchy build() {
+        return ContractionHierarchy.build(synthetic.toCsr());
+    }
+}
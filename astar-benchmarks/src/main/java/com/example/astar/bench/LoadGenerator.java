@@ -0,0 +1,153 @@
+package com.example.astar.bench;
+
+import com.example.astar.core.CsrGraph;
+import com.example.astar.core.Dijkstra;
+import com.example.astar.core.LatencyHistogram;
+import com.example.astar.core.RoutingMetrics;
+import com.example.astar.core.RoutingServer;
+import com.example.astar.core.SearchWorkspace;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for {@link RoutingServer}: starts the server in this JVM on a
+ * synthetic graph and fires requests at it from virtual threads, keeping a
+ * fixed number in flight, the way a dispatch backend would.
+ * <p>
+ * Most requests are point queries whose start is one of a few depots, so
+ * concurrent ones can share a batched search; the rest are multi-stop routes
+ * and small matrices. Afterwards a sample of the point answers is checked
+ * against a plain Dijkstra search. Exits with status 1 if any request failed
+ * or any answer was wrong.
+ * <p>
+ * Usage: {@code LoadGenerator [type] [size] [requests] [concurrency] [windowMicros]}
+ */
+public class LoadGenerator {
+
+    // point queries start at one of this many nodes
+    private static final int DEPOTS = 16;
+
+    // point answers compared against the reference search
+    private static final int CHECKED = 500;
+
+    private static final Pattern DISTANCE = Pattern.compile("\"distance\":(null|\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        String type = args.length > 0 ? args[0] : "grid";
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long windowMicros = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+
+        SyntheticGraph synthetic = SyntheticGraph.generate(type, size, 42);
+        CsrGraph graph = synthetic.toCsr();
+        int n = graph.getNodeCount();
+        Random random = new Random(7);
+        int[] depots = new int[DEPOTS];
+        for (int i = 0; i < DEPOTS; i++)
+            depots[i] = random.nextInt(n);
+
+        // the request mix, drawn up front so the timed loop only sends
+        String[] paths = new String[requests];
+        int[][] points = new int[requests][];
+        for (int i = 0; i < requests; i++) {
+            double kind = random.nextDouble();
+            if (kind < 0.90) {
+                points[i] = new int[] { depots[random.nextInt(DEPOTS)], random.nextInt(n) };
+                paths[i] = "/route?from=" + points[i][0] + "&to=" + points[i][1];
+            } else if (kind < 0.98) {
+                paths[i] = "/route?stops=" + randomNodes(random, n, 5);
+            } else {
+                paths[i] = "/matrix?sources=" + randomNodes(random, n, 10) + "&targets=" + randomNodes(random, n, 10);
+            }
+        }
+
+        try (RoutingServer server = new RoutingServer(graph, 0);
+                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient http = HttpClient.newBuilder().executor(clients).build()) {
+            RoutingMetrics metrics = new RoutingMetrics();
+            server.setMetrics(metrics);
+            server.setBatchWindowMicros(windowMicros);
+            server.start();
+            String base = "http://localhost:" + server.getPort();
+            System.out.printf("%s graph, %d nodes, %d requests, %d in flight, %d us batch window%n", type, n,
+                    requests, concurrency, windowMicros);
+
+            LatencyHistogram latency = new LatencyHistogram();
+            String[] bodies = new String[requests];
+            AtomicInteger failures = new AtomicInteger();
+            Semaphore inFlight = new Semaphore(concurrency);
+            CountDownLatch finished = new CountDownLatch(requests);
+            long began = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                inFlight.acquire();
+                clients.execute(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + paths[index])).build();
+                        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200)
+                            failures.incrementAndGet();
+                        bodies[index] = response.body();
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        latency.record(System.nanoTime() - sent);
+                        inFlight.release();
+                        finished.countDown();
+                    }
+                });
+            }
+            finished.await();
+            double seconds = (System.nanoTime() - began) / 1e9;
+
+            System.out.printf("%.0f requests/s, latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", requests / seconds,
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getMax() / 1e6);
+            System.out.printf("%d point queries answered by %d searches%n", server.getPointQueryCount(),
+                    server.getPointSearchCount());
+            System.out.println("server searches: " + metrics.snapshot());
+
+            int wrong = check(graph, points, bodies);
+            System.out.printf("%d failed requests, %d wrong distances%n", failures.get(), wrong);
+            if (failures.get() > 0 || wrong > 0)
+                System.exit(1);
+        }
+    }
+
+    /**
+     * @return number of sampled point answers that differ from Dijkstra
+     */
+    private static int check(CsrGraph graph, int[][] points, String[] bodies) {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        int checked = 0, wrong = 0;
+        for (int i = 0; i < points.length && checked < CHECKED; i++) {
+            if (points[i] == null || bodies[i] == null)
+                continue;
+            checked++;
+            Matcher m = DISTANCE.matcher(bodies[i]);
+            int expected = dijkstra.getDistance(points[i][0], points[i][1]);
+            int actual = !m.find() ? -1 : m.group(1).equals("null") ? SearchWorkspace.INFINITY
+                    : Integer.parseInt(m.group(1));
+            if (actual != expected)
+                wrong++;
+        }
+        return wrong;
+    }
+
+    private static String randomNodes(Random random, int n, int count) {
+        StringJoiner nodes = new StringJoiner(",");
+        for (int i = 0; i < count; i++)
+            nodes.add(String.valueOf(random.nextInt(n)));
+        return nodes.toString();
+    }
+}
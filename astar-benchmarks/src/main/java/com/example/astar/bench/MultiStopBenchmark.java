@@ -0,0 +1,69 @@
+package com.example.astar.bench;
+
+import com.example.astar.core.CsrGraph;
+import com.example.astar.core.TourOptimizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-stop routes as built for the selected houses of the app: stop order
+ * optimisation plus the joined path, on seeded random stop sets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultiStopBenchmark {
+
+    // number of distinct stop sets cycled through
+    private static final int SETS = 64;
+
+    @Param({ "grid", "geometric" })
+    public String type;
+
+    @Param({ "10000", "100000" })
+    public int size;
+
+    @Param({ "5", "12", "30" })
+    public int stops;
+
+    @Param({ "42" })
+    public long seed;
+
+    private List<List<Integer>> stopSets;
+    private TourOptimizer optimizer;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticGraph synthetic = SyntheticGraph.generate(type, size, seed);
+        CsrGraph graph = synthetic.toCsr();
+        optimizer = new TourOptimizer(graph);
+        Random random = new Random(seed + 2);
+        stopSets = new ArrayList<>(SETS);
+        for (int s = 0; s < SETS; s++) {
+            List<Integer> set = new ArrayList<>(stops);
+            for (int i = 0; i < stops; i++)
+                set.add(random.nextInt(synthetic.getNodeCount()));
+            stopSets.add(set);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> findRoute() {
+        List<Integer> set = stopSets.get(next);
+        next = (next + 1) % SETS;
+        return optimizer.findRoute(set);
+    }
+
+    @Benchmark
+    public List<Integer> orderStops() {
+        List<Integer> set = stopSets.get(next);
+        next = (next + 1) % SETS;
+        return optimizer.orderStops(set);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.astar.bench;
+
+import com.example.astar.core.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single point-to-point queries with every router on the same seeded query
+ * pairs. Preprocessing runs once per trial and is not measured. Contraction
+ * hierarchies are measured separately in {@link HierarchyBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    // number of distinct query pairs cycled through
+    private static final int PAIRS = 1024;
+
+    @Param({ "grid", "geometric", "scalefree" })
+    public String type;
+
+    @Param({ "10000", "100000" })
+    public int size;
+
+    @Param({ "42" })
+    public long seed;
+
+    private int[] pairs;
+    private Dijkstra dijkstra;
+    private AStar euclidean;
+    private AStar landmarks;
+    private BidirectionalDijkstra bidirectional;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticGraph synthetic = SyntheticGraph.generate(type, size, seed);
+        CsrGraph graph = synthetic.toCsr();
+        pairs = pairs(synthetic, seed);
+        dijkstra = new Dijkstra(graph);
+        euclidean = new AStar(graph, new EuclideanHeuristic(synthetic.getCoordinates(), graph));
+        landmarks = new AStar(graph, new LandmarkHeuristic(Landmarks.selectAvoid(graph, 16, seed)));
+        bidirectional = new BidirectionalDijkstra(graph);
+    }
+
+    /**
+     * Walks through the query pairs so every invocation gets the next one
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int advance() {
+            int i = next;
+            next = (next + 2) % (2 * PAIRS);
+            return i;
+        }
+    }
+
+    static int[] pairs(SyntheticGraph synthetic, long seed) {
+        return synthetic.randomPairs(PAIRS, seed + 1);
+    }
+
+    @Benchmark
+    public int dijkstra(Cursor cursor) {
+        int i = cursor.advance();
+        return dijkstra.getDistance(pairs[i], pairs[i + 1]);
+    }
+
+    @Benchmark
+    public int aStarEuclidean(Cursor cursor) {
+        int i = cursor.advance();
+        return euclidean.getDistance(pairs[i], pairs[i + 1]);
+    }
+
+    @Benchmark
+    public int aStarLandmarks(Cursor cursor) {
+        int i = cursor.advance();
+        return landmarks.getDistance(pairs[i], pairs[i + 1]);
+    }
+
+    @Benchmark
+    public int bidirectional(Cursor cursor) {
+        int i = cursor.advance();
+        return bidirectional.getDistance(pairs[i], pairs[i + 1]);
+    }
+
+    @Benchmark
+    public Object dijkstraPath(Cursor cursor) {
+        int i = cursor.advance();
+        return dijkstra.findPath(pairs[i], pairs[i + 1]);
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.astar.bench;
+
+import com.example.astar.core.CsrGraph;
+import com.example.astar.core.Edge;
+import com.example.astar.core.Graph;
+
+import java.util.*;
+
+/**
+ * Reproducible synthetic road networks for benchmarks.
+ * <p>
+ * A generated graph is kept as a plain list of undirected edges plus node
+ * coordinates, so that building a {@link Graph} from it can be measured on its
+ * own. Every generator is connected and fully determined by its size and
+ * seed. Weights are straight-line lengths scaled to integers, which keeps the
+ * Euclidean heuristic meaningful.
+ */
+public class SyntheticGraph {
+
+    // weight units per unit of coordinate length
+    private static final double SCALE = 1000.0;
+
+    private final int nodeCount;
+    private final int[] from;
+    private final int[] to;
+    private final int[] weights;
+    private final double[][] coordinates;
+
+    private SyntheticGraph(int nodeCount, int[] from, int[] to, int[] weights, double[][] coordinates) {
+        this.nodeCount = nodeCount;
+        this.from = from;
+        this.to = to;
+        this.weights = weights;
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * @param type "grid", "geometric" or "scalefree"
+     * @param size approximate number of nodes
+     * @param seed random seed
+     * @return the generated graph
+     */
+    public static SyntheticGraph generate(String type, int size, long seed) {
+        switch (type) {
+            case "grid":
+                return grid((int) Math.round(Math.sqrt(size)), seed);
+            case "geometric":
+                return randomGeometric(size, 8, seed);
+            case "scalefree":
+                return scaleFree(size, 3, seed);
+            default:
+                throw new IllegalArgumentException("unknown graph type " + type);
+        }
+    }
+
+    /**
+     * Square grid with slightly jittered node positions, like a city centre
+     *
+     * @param side nodes per row and column
+     * @param seed random seed
+     */
+    public static SyntheticGraph grid(int side, long seed) {
+        Random random = new Random(seed);
+        int n = side * side;
+        double[][] coordinates = new double[n][];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++)
+                coordinates[y * side + x] = new double[] { x + 0.3 * random.nextDouble(), y + 0.3 * random.nextDouble() };
+        }
+        EdgeBuffer edges = new EdgeBuffer(coordinates);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int v = y * side + x;
+                if (x + 1 < side)
+                    edges.add(v, v + 1);
+                if (y + 1 < side)
+                    edges.add(v, v + side);
+            }
+        }
+        return edges.build(n);
+    }
+
+    /**
+     * Points spread uniformly over a square, joined when closer than a radius
+     * chosen for the requested average degree. Leftover components are
+     * joined to the main one through the node nearest to them along x.
+     *
+     * @param n             number of nodes
+     * @param averageDegree expected number of neighbours per node
+     * @param seed          random seed
+     */
+    public static SyntheticGraph randomGeometric(int n, int averageDegree, long seed) {
+        Random random = new Random(seed);
+        double side = Math.sqrt(n);
+        double[][] coordinates = new double[n][];
+        for (int v = 0; v < n; v++)
+            coordinates[v] = new double[] { side * random.nextDouble(), side * random.nextDouble() };
+        double radius = Math.sqrt(averageDegree / Math.PI);
+
+        // bucket grid with cells as wide as the radius
+        int cells = Math.max(1, (int) (side / radius));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[n];
+        for (int v = 0; v < n; v++) {
+            cellOf[v] = cell(coordinates[v][0], side, cells) * cells + cell(coordinates[v][1], side, cells);
+            cellStart[cellOf[v] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++)
+            cellStart[c + 1] += cellStart[c];
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        int[] byCell = new int[n];
+        for (int v = 0; v < n; v++)
+            byCell[fill[cellOf[v]]++] = v;
+
+        EdgeBuffer edges = new EdgeBuffer(coordinates);
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++)
+            parent[v] = v;
+        for (int v = 0; v < n; v++) {
+            int cx = cellOf[v] / cells, cy = cellOf[v] % cells;
+            for (int x = Math.max(0, cx - 1); x <= Math.min(cells - 1, cx + 1); x++) {
+                for (int y = Math.max(0, cy - 1); y <= Math.min(cells - 1, cy + 1); y++) {
+                    int c = x * cells + y;
+                    for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                        int u = byCell[i];
+                        if (u > v && edges.length(v, u) <= radius) {
+                            edges.add(v, u);
+                            union(parent, v, u);
+                        }
+                    }
+                }
+            }
+        }
+
+        // join stray components to the component of node 0
+        Integer[] byX = new Integer[n];
+        for (int v = 0; v < n; v++)
+            byX[v] = v;
+        Arrays.sort(byX, Comparator.comparingDouble(v -> coordinates[v][0]));
+        for (int i = 0; i < n; i++) {
+            int v = byX[i];
+            if (find(parent, v) == find(parent, 0))
+                continue;
+            for (int d = 1; d < n; d++) {
+                int u = nearestInComponent(parent, byX, i - d, i + d);
+                if (u >= 0) {
+                    edges.add(v, u);
+                    union(parent, v, u);
+                    break;
+                }
+            }
+        }
+        return edges.build(n);
+    }
+
+    /**
+     * Barabási-Albert preferential attachment: every new node links to a
+     * few existing nodes picked with probability proportional to degree,
+     * giving a few very well connected hubs
+     *
+     * @param n     number of nodes
+     * @param links edges added with every new node
+     * @param seed  random seed
+     */
+    public static SyntheticGraph scaleFree(int n, int links, long seed) {
+        Random random = new Random(seed);
+        double side = Math.sqrt(n);
+        double[][] coordinates = new double[n][];
+        for (int v = 0; v < n; v++)
+            coordinates[v] = new double[] { side * random.nextDouble(), side * random.nextDouble() };
+
+        EdgeBuffer edges = new EdgeBuffer(coordinates);
+        // every edge end once, so a uniform pick is a pick by degree
+        int[] ends = new int[2 * n * links];
+        int endCount = 0;
+        int seedNodes = Math.min(n, links + 1);
+        for (int v = 1; v < seedNodes; v++) {
+            edges.add(v - 1, v);
+            ends[endCount++] = v - 1;
+            ends[endCount++] = v;
+        }
+        int[] picked = new int[links];
+        for (int v = seedNodes; v < n; v++) {
+            int count = 0;
+            while (count < Math.min(links, v)) {
+                int u = endCount == 0 ? 0 : ends[random.nextInt(endCount)];
+                boolean duplicate = false;
+                for (int i = 0; i < count; i++)
+                    duplicate |= picked[i] == u;
+                if (!duplicate)
+                    picked[count++] = u;
+            }
+            for (int i = 0; i < count; i++) {
+                edges.add(v, picked[i]);
+                ends[endCount++] = v;
+                ends[endCount++] = picked[i];
+            }
+        }
+        return edges.build(n);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return number of undirected edges
+     */
+    public int getEdgeCount() {
+        return from.length;
+    }
+
+    public double[][] getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * @return a new adjacency-list graph built edge by edge
+     */
+    public Graph toGraph() {
+        Graph graph = new Graph();
+        for (int i = 0; i < from.length; i++)
+            graph.addEdge(new Edge(from[i], to[i], weights[i]));
+        return graph;
+    }
+
+    /**
+     * @return CSR snapshot of the graph
+     */
+    public CsrGraph toCsr() {
+        return toGraph().freeze();
+    }
+
+    /**
+     * @param count number of pairs
+     * @param seed  random seed
+     * @return count random (start, end) pairs, start at 2i and end at 2i + 1
+     */
+    public int[] randomPairs(int count, long seed) {
+        Random random = new Random(seed);
+        int[] pairs = new int[2 * count];
+        for (int i = 0; i < pairs.length; i++)
+            pairs[i] = random.nextInt(nodeCount);
+        return pairs;
+    }
+
+    private static int cell(double coordinate, double side, int cells) {
+        return Math.min(cells - 1, (int) (coordinate / side * cells));
+    }
+
+    /**
+     * @return the node at index a or b of byX that shares node 0's
+     *         component, or -1
+     */
+    private static int nearestInComponent(int[] parent, Integer[] byX, int a, int b) {
+        int main = find(parent, 0);
+        if (a >= 0 && find(parent, byX[a]) == main)
+            return byX[a];
+        if (b < byX.length && find(parent, byX[b]) == main)
+            return byX[b];
+        return -1;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+
+    /**
+     * Growable edge list that weighs edges by their length
+     */
+    private static class EdgeBuffer {
+
+        private final double[][] coordinates;
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int[] weights = new int[1024];
+        private int size;
+
+        EdgeBuffer(double[][] coordinates) {
+            this.coordinates = coordinates;
+        }
+
+        double length(int a, int b) {
+            double dx = coordinates[a][0] - coordinates[b][0];
+            double dy = coordinates[a][1] - coordinates[b][1];
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+
+        void add(int a, int b) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            from[size] = a;
+            to[size] = b;
+            weights[size] = 1 + (int) Math.round(SCALE * length(a, b));
+            size++;
+        }
+
+        SyntheticGraph build(int nodeCount) {
+            return new SyntheticGraph(nodeCount, Arrays.copyOf(from, size), Arrays.copyOf(to, size),
+                    Arrays.copyOf(weights, size), coordinates);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.astar.core;
+
+import java.util.List;
+
+/**
+ * A* shortest path search over the road graph.
+ * <p>
+ * Nodes are expanded in order of {@code g + h}, where g is the cost from the
+ * start and h is the {@link Heuristic} estimate to the end. The search stops
+ * as soon as the end node is taken off the queue, so only the part of the
+ * graph between start and end is explored. Search state lives in a
+ * per-thread {@link SearchWorkspace}, the same one the {@link Dijkstra} kernel
+ * uses.
+ */
+public class AStar implements Router {
+
+    private final RoadGraph graph;
+    private final Heuristic heuristic;
+    private final ThreadLocal<SearchWorkspace> workspace;
+
+    // null unless searches are being recorded
+    private RoutingMetrics metrics;
+
+    /**
+     * @param graph     the road graph
+     * @param heuristic admissible estimate of the remaining cost
+     */
+    public AStar(RoadGraph graph, Heuristic heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.workspace = ThreadLocal.withInitial(() -> new SearchWorkspace(graph.getNodeCount()));
+    }
+
+    /**
+     * @param metrics where to record every search from now on, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param start the start of the node
+     * @param end   the end of the node
+     * @return list of nodes representing the shortest path
+     */
+    @Override
+    public List<Integer> findPath(int start, int end) {
+        SearchWorkspace ws = workspace.get();
+        search(start, end, ws);
+        return ws.extractPath(end);
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return cost of the shortest path, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int start, int end) {
+        SearchWorkspace ws = workspace.get();
+        search(start, end, ws);
+        return ws.getDistance(end);
+    }
+
+    /**
+     * @return number of nodes settled by the calling thread's last query
+     */
+    public int getSettledCount() {
+        return workspace.get().getSettledCount();
+    }
+
+    /**
+     * Core A* loop, the result is left in ws
+     *
+     * @param start the start node
+     * @param end   the end node
+     * @param ws    workspace to run in, it is reset first
+     */
+    public void search(int start, int end, SearchWorkspace ws) {
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        ws.reset();
+        IndexedMinHeap heap = ws.getHeap();
+        ws.setDistance(start, 0, -1);
+        heap.push(start, heuristic.estimate(start, end));
+
+        while (!heap.isEmpty()) {
+            int node = ws.settleNext();
+            if (node == end)
+                break;
+
+            int cost = ws.getDistance(node);
+            for (int e = graph.edgeStart(node), last = graph.edgeEnd(node); e < last; e++) {
+                int next = graph.getTarget(e);
+                int newCost = cost + graph.getWeight(e);
+                if (newCost < ws.getDistance(next)) {
+                    ws.setDistance(next, newCost, node);
+                    heap.push(next, newCost + heuristic.estimate(next, end));
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.record("astar", began, ws);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.astar.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs large batches of route queries in parallel over one immutable
+ * {@link RoadGraph} snapshot.
+ * <p>
+ * A batch is cut into chunks and every chunk runs as one task on the
+ * executor. A task borrows a {@link SearchWorkspace} from a shared pool for
+ * the whole chunk and gives it back afterwards, so the number of workspaces is
+ * bounded by the number of tasks running at once. This works the same for a
+ * fork-join pool and for virtual threads, where a thread-local workspace would
+ * be allocated again for every task.
+ * <p>
+ * Cancelling a returned future does not stop its tasks. A task whose thread
+ * is interrupted, as when a virtual thread executor is shut down, fails the
+ * batch with the search's {@link CancellationException} and still gives its
+ * workspace back.
+ */
+public class BatchRouter implements AutoCloseable {
+
+    private final Dijkstra dijkstra;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final int parallelism;
+    private final ConcurrentLinkedQueue<SearchWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Runs batches on the common fork-join pool
+     *
+     * @param graph the road graph snapshot
+     */
+    public BatchRouter(RoadGraph graph) {
+        this(graph, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), false);
+    }
+
+    /**
+     * @param graph       the road graph snapshot
+     * @param executor    executor to run the chunks on
+     * @param parallelism roughly how many chunks can run at once, used to size
+     *                    the chunks
+     */
+    public BatchRouter(RoadGraph graph, Executor executor, int parallelism) {
+        this(graph, executor, parallelism, false);
+    }
+
+    private BatchRouter(RoadGraph graph, Executor executor, int parallelism, boolean ownsExecutor) {
+        this.dijkstra = new Dijkstra(graph);
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Creates a router that runs every chunk on its own virtual thread. The
+     * executor is shut down by {@link #close()}.
+     *
+     * @param graph the road graph snapshot
+     */
+    public static BatchRouter withVirtualThreads(RoadGraph graph) {
+        return new BatchRouter(graph, Executors.newVirtualThreadPerTaskExecutor(),
+                Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * @param sources start node of each query
+     * @param targets end node of each query, same length as sources
+     * @return future of the shortest distance of every (sources[i], targets[i])
+     *         pair, SearchWorkspace.INFINITY where unreachable
+     */
+    public CompletableFuture<int[]> distances(int[] sources, int[] targets) {
+        checkSameLength(sources, targets);
+        int[] result = new int[sources.length];
+        return forEachChunk(sources.length, (from, to, ws) -> {
+            for (int i = from; i < to; i++) {
+                dijkstra.search(sources[i], targets[i], ws);
+                result[i] = ws.getDistance(targets[i]);
+            }
+        }).thenApply(done -> result);
+    }
+
+    /**
+     * @param sources start node of each query
+     * @param targets end node of each query, same length as sources
+     * @return future of the shortest path of every (sources[i], targets[i])
+     *         pair, an empty list where unreachable
+     */
+    public CompletableFuture<List<List<Integer>>> paths(int[] sources, int[] targets) {
+        checkSameLength(sources, targets);
+        List<List<Integer>> result = new ArrayList<>(Collections.nCopies(sources.length, null));
+        return forEachChunk(sources.length, (from, to, ws) -> {
+            for (int i = from; i < to; i++) {
+                dijkstra.search(sources[i], targets[i], ws);
+                result.set(i, ws.extractPath(targets[i]));
+            }
+        }).thenApply(done -> result);
+    }
+
+    /**
+     * Routes each request through its stops in the given order.
+     *
+     * @param sources start node of each request
+     * @param stops   stops of each request, same length as sources
+     * @return future of the joined node sequence of every request; legs that
+     *         cannot be driven are skipped
+     */
+    public CompletableFuture<List<List<Integer>>> routeStops(int[] sources, int[][] stops) {
+        if (sources.length != stops.length)
+            throw new IllegalArgumentException("sources and stops must have the same length");
+        List<List<Integer>> result = new ArrayList<>(Collections.nCopies(sources.length, null));
+        return forEachChunk(sources.length, (from, to, ws) -> {
+            for (int i = from; i < to; i++) {
+                List<Integer> path = new ArrayList<>();
+                int current = sources[i];
+                path.add(current);
+                for (int stop : stops[i]) {
+                    dijkstra.search(current, stop, ws);
+                    List<Integer> segment = ws.extractPath(stop);
+                    if (segment.isEmpty())
+                        continue;
+                    path.addAll(segment.subList(1, segment.size()));
+                    current = stop;
+                }
+                result.set(i, path);
+            }
+        }).thenApply(done -> result);
+    }
+
+    /**
+     * Shuts down the executor if this router created it
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor)
+            ((ExecutorService) executor).shutdown();
+    }
+
+    /**
+     * Work done by one chunk of a batch, queries from (inclusive) to to
+     * (exclusive)
+     */
+    private interface Chunk {
+        void run(int from, int to, SearchWorkspace ws);
+    }
+
+    private CompletableFuture<Void> forEachChunk(int count, Chunk chunk) {
+        if (count == 0)
+            return CompletableFuture.completedFuture(null);
+        int chunkSize = Math.max(1, (count + parallelism * 8 - 1) / (parallelism * 8));
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < count; from += chunkSize) {
+            int start = from, end = Math.min(count, from + chunkSize);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                SearchWorkspace ws = borrowWorkspace();
+                try {
+                    chunk.run(start, end, ws);
+                } finally {
+                    workspaces.offer(ws);
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private SearchWorkspace borrowWorkspace() {
+        SearchWorkspace ws = workspaces.poll();
+        return ws != null ? ws : new SearchWorkspace(dijkstra.getGraph().getNodeCount());
+    }
+
+    private static void checkSameLength(int[] sources, int[] targets) {
+        if (sources.length != targets.length)
+            throw new IllegalArgumentException("sources and targets must have the same length");
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Bidirectional Dijkstra: one search grows from the start, another grows
+ * backwards from the end, and the shortest path is found where they meet.
+ * <p>
+ * mu is the cost of the best start-to-end path seen so far, through any node
+ * reached by both searches. Once the smallest keys of the two queues add up
+ * to at least mu, no undiscovered path can be cheaper, so the search stops.
+ * Each side then only has to cover about half the distance, which on a road
+ * network settles far fewer nodes than a single search.
+ */
+public class BidirectionalDijkstra implements Router {
+
+    private final RoadGraph graph;
+
+    // reverse graph for the backward search; roads built through Graph.addEdge
+    // are symmetric, but imported or updated graphs need not be
+    private final RoadGraph reverse;
+    private final ThreadLocal<SearchWorkspace[]> workspaces;
+
+    // null unless searches are being recorded
+    private RoutingMetrics metrics;
+
+    /**
+     * @param graph the road graph
+     */
+    public BidirectionalDijkstra(RoadGraph graph) {
+        this(graph, graph.transpose());
+    }
+
+    /**
+     * @param graph   the road graph
+     * @param reverse the transposed road graph, shared with other searches
+     */
+    public BidirectionalDijkstra(RoadGraph graph, RoadGraph reverse) {
+        if (reverse.getNodeCount() != graph.getNodeCount())
+            throw new IllegalArgumentException("graph and reverse differ in size");
+        this.graph = graph;
+        this.reverse = reverse;
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace[] {
+                new SearchWorkspace(graph.getNodeCount()), new SearchWorkspace(graph.getNodeCount()) });
+    }
+
+    /**
+     * @param metrics where to record every search from now on, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return list of nodes representing the shortest path
+     */
+    @Override
+    public List<Integer> findPath(int start, int end) {
+        SearchWorkspace[] ws = workspaces.get();
+        int meet = search(start, end, ws[0], ws[1]);
+        if (meet < 0)
+            return Collections.emptyList();
+
+        List<Integer> path = ws[0].extractPath(meet);
+        for (int at = ws[1].getPrevious(meet); at != -1; at = ws[1].getPrevious(at))
+            path.add(at);
+        return path;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return cost of the shortest path, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int start, int end) {
+        SearchWorkspace[] ws = workspaces.get();
+        int meet = search(start, end, ws[0], ws[1]);
+        return meet < 0 ? SearchWorkspace.INFINITY : ws[0].getDistance(meet) + ws[1].getDistance(meet);
+    }
+
+    /**
+     * @return nodes settled by both directions in the calling thread's last
+     *         query
+     */
+    public int getSettledCount() {
+        SearchWorkspace[] ws = workspaces.get();
+        return ws[0].getSettledCount() + ws[1].getSettledCount();
+    }
+
+    /**
+     * Runs both searches, always advancing the side with the smaller queue
+     * head. In the backward workspace the previous-entry of a node is its
+     * successor on the way to end.
+     *
+     * @return node where the best path crosses from one search to the other,
+     *         or -1 if end cannot be reached
+     */
+    private int search(int start, int end, SearchWorkspace forward, SearchWorkspace backward) {
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        forward.reset();
+        backward.reset();
+        forward.setDistance(start, 0, -1);
+        forward.getHeap().push(start, 0);
+        backward.setDistance(end, 0, -1);
+        backward.getHeap().push(end, 0);
+
+        IndexedMinHeap fHeap = forward.getHeap(), bHeap = backward.getHeap();
+        long mu = start == end ? 0 : Long.MAX_VALUE;
+        int meet = start == end ? start : -1;
+        while (!fHeap.isEmpty() && !bHeap.isEmpty()) {
+            if ((long) fHeap.peekKey() + bHeap.peekKey() >= mu)
+                break;
+
+            boolean goForward = fHeap.peekKey() <= bHeap.peekKey();
+            SearchWorkspace ws = goForward ? forward : backward;
+            SearchWorkspace other = goForward ? backward : forward;
+            RoadGraph g = goForward ? graph : reverse;
+
+            int node = ws.settleNext();
+            int cost = ws.getDistance(node);
+            for (int e = g.edgeStart(node), last = g.edgeEnd(node); e < last; e++) {
+                int next = g.getTarget(e);
+                int newCost = cost + g.getWeight(e);
+                if (newCost < ws.getDistance(next)) {
+                    ws.setDistance(next, newCost, node);
+                    ws.getHeap().push(next, newCost);
+                }
+                if (other.isReached(next) && (long) ws.getDistance(next) + other.getDistance(next) < mu) {
+                    mu = (long) ws.getDistance(next) + other.getDistance(next);
+                    meet = next;
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.record("bidirectional", began, forward, backward);
+        return meet;
+    }
+}
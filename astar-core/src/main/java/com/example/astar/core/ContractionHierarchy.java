@@ -0,0 +1,509 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Contraction Hierarchies: a preprocessing step that makes point-to-point
+ * queries touch only a tiny part of the graph.
+ * <p>
+ * During {@link #build(RoadGraph)} nodes are removed ("contracted") one at a
+ * time, least important first. When a node v is removed, every pair of
+ * neighbours u, x whose only shortest connection ran through v gets a
+ * shortcut edge u-&gt;x with the combined weight. Each node's position in
+ * that order is its rank.
+ * <p>
+ * A query then runs Dijkstra from the start over edges that lead to higher
+ * ranked nodes, and from the end backwards over edges that come from higher
+ * ranked nodes. The two searches meet at the highest ranked node of the
+ * shortest path. Shortcuts remember the two edges they replace, so the
+ * result is unpacked back into a path over the original roads.
+ */
+public class ContractionHierarchy implements Router {
+
+    // settle limits for witness searches while estimating priorities and
+    // while actually contracting; a search cut short only adds a spare shortcut
+    private static final int SIMULATE_SETTLE_LIMIT = 20;
+    private static final int CONTRACT_SETTLE_LIMIT = 200;
+
+    private final int nodeCount;
+
+    // position of each node in the contraction order
+    private final int[] rank;
+
+    // every original edge and shortcut; children are -1 for original edges
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeWeight;
+    private final int[] edgeChild1;
+    private final int[] edgeChild2;
+
+    // upward edges leaving each node, used by the forward search
+    private final int[] upOffsets;
+    private final int[] upEdges;
+
+    // edges entering each node from a higher ranked node, used backwards
+    private final int[] downOffsets;
+    private final int[] downEdges;
+
+    private final ThreadLocal<SearchWorkspace[]> workspaces;
+
+    // null unless searches are being recorded
+    private RoutingMetrics metrics;
+
+    private ContractionHierarchy(int nodeCount, int[] rank, EdgePool pool) {
+        this.nodeCount = nodeCount;
+        this.rank = rank;
+        this.edgeFrom = Arrays.copyOf(pool.from, pool.size);
+        this.edgeTo = Arrays.copyOf(pool.to, pool.size);
+        this.edgeWeight = Arrays.copyOf(pool.weight, pool.size);
+        this.edgeChild1 = Arrays.copyOf(pool.child1, pool.size);
+        this.edgeChild2 = Arrays.copyOf(pool.child2, pool.size);
+
+        upOffsets = new int[nodeCount + 1];
+        downOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < pool.size; e++) {
+            if (rank[edgeFrom[e]] < rank[edgeTo[e]])
+                upOffsets[edgeFrom[e] + 1]++;
+            else
+                downOffsets[edgeTo[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upEdges = new int[upOffsets[nodeCount]];
+        downEdges = new int[downOffsets[nodeCount]];
+        int[] upFill = Arrays.copyOf(upOffsets, nodeCount);
+        int[] downFill = Arrays.copyOf(downOffsets, nodeCount);
+        for (int e = 0; e < pool.size; e++) {
+            if (rank[edgeFrom[e]] < rank[edgeTo[e]])
+                upEdges[upFill[edgeFrom[e]]++] = e;
+            else
+                downEdges[downFill[edgeTo[e]]++] = e;
+        }
+
+        workspaces = ThreadLocal.withInitial(
+                () -> new SearchWorkspace[] { new SearchWorkspace(nodeCount), new SearchWorkspace(nodeCount) });
+    }
+
+    /**
+     * Runs the preprocessing. This is the expensive, offline part; the result
+     * is immutable and can be queried from any number of threads.
+     *
+     * @param graph the road graph
+     * @return the contracted hierarchy
+     */
+    public static ContractionHierarchy build(RoadGraph graph) {
+        return new Builder(graph).run();
+    }
+
+    /**
+     * @param metrics where to record every search from now on, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return number of shortcut edges added by the preprocessing
+     */
+    public int getShortcutCount() {
+        int count = 0;
+        for (int child : edgeChild1) {
+            if (child >= 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param node a node id
+     * @return position of node in the contraction order
+     */
+    public int getRank(int node) {
+        return rank[node];
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return list of nodes representing the shortest path over the original
+     *         roads, or an empty list if end cannot be reached
+     */
+    @Override
+    public List<Integer> findPath(int start, int end) {
+        SearchWorkspace[] ws = workspaces.get();
+        int meet = search(start, end, ws[0], ws[1]);
+        if (meet < 0)
+            return Collections.emptyList();
+
+        // edges from start up to the meeting node, collected backwards
+        List<Integer> path = new ArrayList<>();
+        path.add(start);
+        int[] upPart = new int[16];
+        int count = 0;
+        for (int at = meet; at != start;) {
+            int e = ws[0].getPrevious(at);
+            if (count == upPart.length)
+                upPart = Arrays.copyOf(upPart, count * 2);
+            upPart[count++] = e;
+            at = edgeFrom[e];
+        }
+        for (int i = count - 1; i >= 0; i--)
+            unpack(upPart[i], path);
+
+        // edges from the meeting node down to end
+        for (int at = meet; at != end;) {
+            int e = ws[1].getPrevious(at);
+            unpack(e, path);
+            at = edgeTo[e];
+        }
+        return path;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return cost of the shortest path, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int start, int end) {
+        SearchWorkspace[] ws = workspaces.get();
+        int meet = search(start, end, ws[0], ws[1]);
+        return meet < 0 ? SearchWorkspace.INFINITY : ws[0].getDistance(meet) + ws[1].getDistance(meet);
+    }
+
+    /**
+     * @return nodes settled by both directions in the calling thread's last
+     *         query
+     */
+    public int getSettledCount() {
+        SearchWorkspace[] ws = workspaces.get();
+        return ws[0].getSettledCount() + ws[1].getSettledCount();
+    }
+
+    /**
+     * Bidirectional upward search. The previous-entries of the workspaces hold
+     * edge ids rather than nodes.
+     *
+     * @return the node where the shortest path peaks, or -1 if unreachable
+     */
+    private int search(int start, int end, SearchWorkspace forward, SearchWorkspace backward) {
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        forward.reset();
+        backward.reset();
+        forward.setDistance(start, 0, -1);
+        forward.getHeap().push(start, 0);
+        backward.setDistance(end, 0, -1);
+        backward.getHeap().push(end, 0);
+
+        IndexedMinHeap fHeap = forward.getHeap(), bHeap = backward.getHeap();
+        long best = Long.MAX_VALUE;
+        int meet = -1;
+        boolean forwardTurn = true;
+        while (true) {
+            boolean forwardOpen = !fHeap.isEmpty() && fHeap.peekKey() < best;
+            boolean backwardOpen = !bHeap.isEmpty() && bHeap.peekKey() < best;
+            if (!forwardOpen && !backwardOpen)
+                break;
+            boolean goForward = forwardOpen && (forwardTurn || !backwardOpen);
+            forwardTurn = !forwardTurn;
+
+            SearchWorkspace ws = goForward ? forward : backward;
+            SearchWorkspace other = goForward ? backward : forward;
+            int node = ws.settleNext();
+            int cost = ws.getDistance(node);
+            if (other.isReached(node) && (long) cost + other.getDistance(node) < best) {
+                best = (long) cost + other.getDistance(node);
+                meet = node;
+            }
+
+            int[] offsets = goForward ? upOffsets : downOffsets;
+            int[] edges = goForward ? upEdges : downEdges;
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int e = edges[i];
+                int next = goForward ? edgeTo[e] : edgeFrom[e];
+                int newCost = cost + edgeWeight[e];
+                if (newCost < ws.getDistance(next)) {
+                    ws.setDistance(next, newCost, e);
+                    ws.getHeap().push(next, newCost);
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.record("ch", began, forward, backward);
+        return meet;
+    }
+
+    /**
+     * Appends the original-road nodes of edge e, excluding its first node
+     */
+    private void unpack(int e, List<Integer> path) {
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = e;
+        while (size > 0) {
+            int top = stack[--size];
+            if (edgeChild1[top] < 0) {
+                path.add(edgeTo[top]);
+                continue;
+            }
+            if (size + 2 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            // second half is pushed first so the first half comes out first
+            stack[size++] = edgeChild2[top];
+            stack[size++] = edgeChild1[top];
+        }
+    }
+
+    /**
+     * Growable edge table shared by the builder and the finished hierarchy
+     */
+    private static class EdgePool {
+        int[] from = new int[16], to = new int[16], weight = new int[16];
+        int[] child1 = new int[16], child2 = new int[16];
+        int size;
+
+        int add(int u, int v, int w, int c1, int c2) {
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                child1 = Arrays.copyOf(child1, capacity);
+                child2 = Arrays.copyOf(child2, capacity);
+            }
+            from[size] = u;
+            to[size] = v;
+            weight[size] = w;
+            child1[size] = c1;
+            child2[size] = c2;
+            return size++;
+        }
+    }
+
+    /**
+     * Preprocessing state: a mutable copy of the graph that shrinks as nodes
+     * are contracted.
+     */
+    private static class Builder {
+        private final int n;
+        private final EdgePool pool = new EdgePool();
+
+        // edge ids leaving / entering every node, including shortcuts
+        private final int[][] out, in;
+        private final int[] outCount, inCount;
+
+        private final boolean[] contracted;
+        private final int[] deletedNeighbours;
+        private final SearchWorkspace witness;
+
+        // nodes a witness search is looking for have targetRound == round
+        private final int[] targetRound;
+        private int round;
+
+        Builder(RoadGraph graph) {
+            n = graph.getNodeCount();
+            out = new int[n][];
+            in = new int[n][];
+            outCount = new int[n];
+            inCount = new int[n];
+            contracted = new boolean[n];
+            deletedNeighbours = new int[n];
+            witness = new SearchWorkspace(n);
+            targetRound = new int[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new int[Math.max(2, graph.getDegree(v))];
+                in[v] = new int[Math.max(2, graph.getDegree(v))];
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    int x = graph.getTarget(e);
+                    if (x != v)
+                        link(pool.add(v, x, graph.getWeight(e), -1, -1));
+                }
+            }
+        }
+
+        ContractionHierarchy run() {
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++)
+                queue.push(v, priority(v));
+
+            int[] rank = new int[n];
+            int next = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                // lazy update: the stored priority may be stale
+                int p = priority(v);
+                if (!queue.isEmpty() && p > queue.peekKey()) {
+                    queue.push(v, p);
+                    continue;
+                }
+
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = next++;
+                detach(v);
+                for (int i = 0; i < outCount[v]; i++)
+                    touchNeighbour(pool.to[out[v][i]], queue);
+                for (int i = 0; i < inCount[v]; i++)
+                    touchNeighbour(pool.from[in[v][i]], queue);
+            }
+            return new ContractionHierarchy(n, rank, pool);
+        }
+
+        /**
+         * Drops the edges of a contracted node from its neighbours' lists so
+         * later witness searches and priority updates never scan them again.
+         * The node keeps its own lists, they still name its neighbours.
+         */
+        private void detach(int v) {
+            for (int i = 0; i < outCount[v]; i++) {
+                int x = pool.to[out[v][i]];
+                inCount[x] = removeEdgesOf(in[x], inCount[x], v, true);
+            }
+            for (int i = 0; i < inCount[v]; i++) {
+                int u = pool.from[in[v][i]];
+                outCount[u] = removeEdgesOf(out[u], outCount[u], v, false);
+            }
+        }
+
+        /**
+         * Removes from list every edge whose other end is v
+         *
+         * @return the new length of the list
+         */
+        private int removeEdgesOf(int[] list, int count, int v, boolean incoming) {
+            for (int i = 0; i < count;) {
+                int other = incoming ? pool.from[list[i]] : pool.to[list[i]];
+                if (other == v)
+                    list[i] = list[--count];
+                else
+                    i++;
+            }
+            return count;
+        }
+
+        private void touchNeighbour(int u, IndexedMinHeap queue) {
+            if (contracted[u])
+                return;
+            deletedNeighbours[u]++;
+            // a changed priority is picked up lazily when u reaches the top,
+            // only decreases have to be applied right away
+            queue.push(u, priority(u));
+        }
+
+        /**
+         * Edge difference plus a penalty for neighbours already contracted,
+         * which spreads contraction evenly over the graph
+         */
+        private int priority(int v) {
+            int removed = outCount[v] + inCount[v];
+            int shortcuts = contract(v, true);
+            return 2 * (shortcuts - removed) + deletedNeighbours[v];
+        }
+
+        /**
+         * Adds (or, when simulating, only counts) the shortcuts needed to
+         * remove v from the remaining graph
+         */
+        private int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            for (int i = 0; i < inCount[v]; i++) {
+                int inEdge = in[v][i];
+                int u = pool.from[inEdge];
+                if (contracted[u])
+                    continue;
+
+                int limit = -1;
+                int targets = 0;
+                round++;
+                for (int j = 0; j < outCount[v]; j++) {
+                    int x = pool.to[out[v][j]];
+                    if (x == u || contracted[x])
+                        continue;
+                    limit = Math.max(limit, pool.weight[inEdge] + pool.weight[out[v][j]]);
+                    if (targetRound[x] != round) {
+                        targetRound[x] = round;
+                        targets++;
+                    }
+                }
+                if (limit < 0)
+                    continue;
+                witnessSearch(u, v, limit, targets, simulate ? SIMULATE_SETTLE_LIMIT : CONTRACT_SETTLE_LIMIT);
+
+                for (int j = 0; j < outCount[v]; j++) {
+                    int outEdge = out[v][j];
+                    int x = pool.to[outEdge];
+                    if (x == u || contracted[x])
+                        continue;
+                    int via = pool.weight[inEdge] + pool.weight[outEdge];
+                    if (witness.getDistance(x) <= via)
+                        continue;
+                    shortcuts++;
+                    if (!simulate)
+                        addShortcut(u, x, via, inEdge, outEdge);
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from u that ignores v and contracted nodes. It stops once
+         * the nodes marked for this round are all settled, or when it passes
+         * the cost limit or the settle limit.
+         */
+        private void witnessSearch(int u, int v, int limit, int targets, int settleLimit) {
+            witness.reset();
+            IndexedMinHeap heap = witness.getHeap();
+            witness.setDistance(u, 0, -1);
+            heap.push(u, 0);
+            while (!heap.isEmpty() && heap.peekKey() <= limit
+                    && witness.getSettledCount() < settleLimit) {
+                int node = witness.settleNext();
+                if (targetRound[node] == round && --targets == 0)
+                    return;
+                int cost = witness.getDistance(node);
+                for (int i = 0; i < outCount[node]; i++) {
+                    int e = out[node][i];
+                    int next = pool.to[e];
+                    if (next == v || contracted[next])
+                        continue;
+                    int newCost = cost + pool.weight[e];
+                    if (newCost < witness.getDistance(next)) {
+                        witness.setDistance(next, newCost, node);
+                        heap.push(next, newCost);
+                    }
+                }
+            }
+        }
+
+        private void addShortcut(int u, int x, int weight, int child1, int child2) {
+            // reuse an existing u->x edge if there is one
+            for (int i = 0; i < outCount[u]; i++) {
+                int e = out[u][i];
+                if (pool.to[e] == x) {
+                    if (weight < pool.weight[e]) {
+                        pool.weight[e] = weight;
+                        pool.child1[e] = child1;
+                        pool.child2[e] = child2;
+                    }
+                    return;
+                }
+            }
+            link(pool.add(u, x, weight, child1, child2));
+        }
+
+        private void link(int e) {
+            int u = pool.from[e], x = pool.to[e];
+            if (outCount[u] == out[u].length)
+                out[u] = Arrays.copyOf(out[u], outCount[u] * 2);
+            out[u][outCount[u]++] = e;
+            if (inCount[x] == in[x].length)
+                in[x] = Arrays.copyOf(in[x], inCount[x] * 2);
+            in[x][inCount[x]++] = e;
+        }
+    }
+}
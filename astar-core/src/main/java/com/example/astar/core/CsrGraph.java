@@ -0,0 +1,100 @@
+package com.example.astar.core;
+
+import java.util.List;
+
+/**
+ * Immutable compressed-sparse-row (CSR) copy of a {@link Graph}, held on the
+ * heap.
+ * <p>
+ * The outgoing edges of node {@code v} are the edge indices
+ * {@code edgeStart(v) .. edgeEnd(v) - 1}; their destinations and weights are
+ * stored in two flat int arrays. Walking the neighbors of a node therefore
+ * touches three int arrays and allocates nothing, which is what the search
+ * code relies on.
+ */
+public class CsrGraph implements RoadGraph {
+
+    // offsets[v] .. offsets[v + 1] - 1 are the edges leaving v
+    private final int[] offsets;
+
+    // destination node of each edge
+    private final int[] targets;
+
+    // weight of each edge
+    private final int[] weights;
+
+    /**
+     * Freezes the current contents of a graph. Nodes are numbered 0 to the
+     * largest node id in the graph; ids that never appear get no edges.
+     *
+     * @param graph the graph to copy
+     */
+    public CsrGraph(Graph graph) {
+        int nodeCount = 0;
+        int edgeCount = 0;
+        for (Integer node : graph.getNodes()) {
+            nodeCount = Math.max(nodeCount, node + 1);
+            edgeCount += graph.getNeighbors(node).size();
+        }
+
+        offsets = new int[nodeCount + 1];
+        targets = new int[edgeCount];
+        weights = new int[edgeCount];
+
+        int e = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            offsets[v] = e;
+            List<Edge> edges = graph.getNeighbors(v);
+            for (Edge edge : edges) {
+                targets[e] = edge.getDestination();
+                weights[e] = edge.getWeight();
+                e++;
+            }
+        }
+        offsets[nodeCount] = e;
+    }
+
+    /**
+     * Wraps already built CSR arrays without copying them.
+     */
+    CsrGraph(int[] offsets, int[] targets, int[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public int edgeStart(int node) {
+        return offsets[node];
+    }
+
+    @Override
+    public int edgeEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    @Override
+    public int getDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    @Override
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public int getWeight(int edge) {
+        return weights[edge];
+    }
+}
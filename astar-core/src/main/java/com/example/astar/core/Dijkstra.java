@@ -0,0 +1,163 @@
+package com.example.astar.core;
+
+import java.util.List;
+
+/**
+ * Dijkstra's algorithm on a {@link RoadGraph} using int node ids, an
+ * {@link IndexedMinHeap} with decrease-key and a per-thread
+ * {@link SearchWorkspace}. After the first query on a thread a search
+ * allocates nothing except the returned path.
+ */
+public class Dijkstra implements Router {
+
+    private final RoadGraph graph;
+    private final ThreadLocal<SearchWorkspace> workspace;
+
+    // null unless searches are being recorded
+    private RoutingMetrics metrics;
+
+    /**
+     * @param graph the road graph
+     */
+    public Dijkstra(RoadGraph graph) {
+        this.graph = graph;
+        this.workspace = ThreadLocal.withInitial(() -> new SearchWorkspace(graph.getNodeCount()));
+    }
+
+    /**
+     * @param metrics where to record every search from now on, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return list of nodes representing the shortest path
+     */
+    @Override
+    public List<Integer> findPath(int start, int end) {
+        SearchWorkspace ws = workspace.get();
+        search(start, end, ws);
+        return ws.extractPath(end);
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return cost of the shortest path, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int start, int end) {
+        SearchWorkspace ws = workspace.get();
+        search(start, end, ws);
+        return ws.getDistance(end);
+    }
+
+    /**
+     * Runs a full one-to-all search
+     *
+     * @param source the start node
+     * @return distance to every node, INFINITY where unreachable
+     */
+    public int[] distancesFrom(int source) {
+        SearchWorkspace ws = workspace.get();
+        search(source, -1, ws);
+        int[] result = new int[graph.getNodeCount()];
+        for (int v = 0; v < result.length; v++)
+            result[v] = ws.getDistance(v);
+        return result;
+    }
+
+    /**
+     * @return the calling thread's search workspace for this graph
+     */
+    public SearchWorkspace getWorkspace() {
+        return workspace.get();
+    }
+
+    /**
+     * @return number of nodes settled by the calling thread's last query
+     */
+    public int getSettledCount() {
+        return workspace.get().getSettledCount();
+    }
+
+    /**
+     * Core search loop. Stops once end is settled; pass -1 to settle every
+     * reachable node. The result is left in ws.
+     *
+     * @param start the start node
+     * @param end   the node to stop at, or -1
+     * @param ws    workspace to run in, it is reset first
+     */
+    public void search(int start, int end, SearchWorkspace ws) {
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        ws.reset();
+        IndexedMinHeap heap = ws.getHeap();
+        ws.setDistance(start, 0, -1);
+        heap.push(start, 0);
+
+        while (!heap.isEmpty()) {
+            int node = ws.settleNext();
+            if (node == end)
+                break;
+
+            int cost = ws.getDistance(node);
+            for (int e = graph.edgeStart(node), last = graph.edgeEnd(node); e < last; e++) {
+                int next = graph.getTarget(e);
+                int newCost = cost + graph.getWeight(e);
+                if (newCost < ws.getDistance(next)) {
+                    ws.setDistance(next, newCost, node);
+                    heap.push(next, newCost);
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.record("dijkstra", began, ws);
+    }
+
+    /**
+     * One-to-many search: stops as soon as every marked target is settled, or
+     * when the reachable part of the graph is exhausted. The result is left in
+     * ws.
+     *
+     * @param start       the start node
+     * @param isTarget    isTarget[v] is true for every target node
+     * @param targetCount number of distinct target nodes
+     * @param ws          workspace to run in, it is reset first
+     */
+    public void searchTargets(int start, boolean[] isTarget, int targetCount, SearchWorkspace ws) {
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        ws.reset();
+        IndexedMinHeap heap = ws.getHeap();
+        ws.setDistance(start, 0, -1);
+        heap.push(start, 0);
+
+        int remaining = targetCount;
+        while (!heap.isEmpty()) {
+            int node = ws.settleNext();
+            if (isTarget[node] && --remaining == 0)
+                break;
+
+            int cost = ws.getDistance(node);
+            for (int e = graph.edgeStart(node), last = graph.edgeEnd(node); e < last; e++) {
+                int next = graph.getTarget(e);
+                int newCost = cost + graph.getWeight(e);
+                if (newCost < ws.getDistance(next)) {
+                    ws.setDistance(next, newCost, node);
+                    heap.push(next, newCost);
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.record("dijkstra", began, ws);
+    }
+}
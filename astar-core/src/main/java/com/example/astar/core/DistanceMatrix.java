@@ -0,0 +1,188 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Many-to-many shortest path table between a list of sources and a list of
+ * targets.
+ * <p>
+ * One Dijkstra search is run per source, and it stops as soon as every target
+ * has been settled, so an N by M table costs N searches rather than N * M.
+ * Results are kept in flat row-major int arrays: the distance from source i
+ * to target j is {@code getDistances()[i * getTargetCount() + j]}. When paths
+ * are requested, all paths are concatenated into one node array with an
+ * offset array marking where each (i, j) path begins.
+ */
+public class DistanceMatrix {
+
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] distances;
+
+    // node before the target on each path, -1 for unreachable or empty paths
+    private final int[] predecessors;
+
+    // paths of cell c are pathNodes[pathOffsets[c] .. pathOffsets[c + 1] - 1]
+    private final int[] pathOffsets;
+    private final int[] pathNodes;
+
+    private DistanceMatrix(int[] sources, int[] targets, int[] distances, int[] predecessors,
+            int[] pathOffsets, int[] pathNodes) {
+        this.sources = sources;
+        this.targets = targets;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.pathOffsets = pathOffsets;
+        this.pathNodes = pathNodes;
+    }
+
+    /**
+     * @param dijkstra  search kernel for the road graph
+     * @param sources   source nodes (rows)
+     * @param targets   target nodes (columns)
+     * @param withPaths whether to keep the node sequence of every path
+     * @return the computed table
+     */
+    public static DistanceMatrix compute(Dijkstra dijkstra, int[] sources, int[] targets, boolean withPaths) {
+        return compute(dijkstra, sources, targets, withPaths, dijkstra.getWorkspace());
+    }
+
+    /**
+     * Same as {@link #compute(Dijkstra, int[], int[], boolean)}, searching in
+     * the given workspace instead of the calling thread's own
+     *
+     * @param ws workspace sized for the graph
+     * @return the computed table
+     */
+    public static DistanceMatrix compute(Dijkstra dijkstra, int[] sources, int[] targets, boolean withPaths,
+            SearchWorkspace ws) {
+        int rows = sources.length, cols = targets.length;
+        boolean[] isTarget = ws.getTargetMarks();
+        int distinctTargets = 0;
+        try {
+            for (int t : targets) {
+                if (!isTarget[t]) {
+                    isTarget[t] = true;
+                    distinctTargets++;
+                }
+            }
+            return compute(dijkstra, sources, targets, withPaths, ws, isTarget, distinctTargets);
+        } finally {
+            for (int t : targets) {
+                if (t >= 0 && t < isTarget.length)
+                    isTarget[t] = false;
+            }
+        }
+    }
+
+    private static DistanceMatrix compute(Dijkstra dijkstra, int[] sources, int[] targets, boolean withPaths,
+            SearchWorkspace ws, boolean[] isTarget, int distinctTargets) {
+        int rows = sources.length, cols = targets.length;
+
+        int[] distances = new int[rows * cols];
+        int[] predecessors = new int[rows * cols];
+        int[] pathOffsets = withPaths ? new int[rows * cols + 1] : null;
+        int[] pathNodes = withPaths ? new int[Math.max(16, rows * cols * 4)] : null;
+        int used = 0;
+
+        for (int i = 0; i < rows; i++) {
+            dijkstra.searchTargets(sources[i], isTarget, distinctTargets, ws);
+            for (int j = 0; j < cols; j++) {
+                int cell = i * cols + j;
+                int t = targets[j];
+                distances[cell] = ws.getDistance(t);
+                predecessors[cell] = ws.getPrevious(t);
+                if (!withPaths)
+                    continue;
+
+                pathOffsets[cell] = used;
+                if (!ws.isReached(t))
+                    continue;
+                int length = 0;
+                for (int at = t; at != -1; at = ws.getPrevious(at))
+                    length++;
+                if (used + length > pathNodes.length)
+                    pathNodes = Arrays.copyOf(pathNodes, Math.max(used + length, pathNodes.length * 2));
+                int at = t;
+                for (int k = used + length - 1; k >= used; k--) {
+                    pathNodes[k] = at;
+                    at = ws.getPrevious(at);
+                }
+                used += length;
+            }
+        }
+        if (withPaths) {
+            pathOffsets[rows * cols] = used;
+            pathNodes = Arrays.copyOf(pathNodes, used);
+        }
+        return new DistanceMatrix(sources.clone(), targets.clone(), distances, predecessors, pathOffsets,
+                pathNodes);
+    }
+
+    public int getSourceCount() {
+        return sources.length;
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return cost from source i to target j, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int i, int j) {
+        return distances[i * targets.length + j];
+    }
+
+    /**
+     * @return node before target j on the path from source i, or -1
+     */
+    public int getPredecessor(int i, int j) {
+        return predecessors[i * targets.length + j];
+    }
+
+    /**
+     * @return the flat row-major distance table (not a copy)
+     */
+    public int[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return the flat row-major predecessor table (not a copy)
+     */
+    public int[] getPredecessors() {
+        return predecessors;
+    }
+
+    public boolean hasPaths() {
+        return pathNodes != null;
+    }
+
+    /**
+     * @return list of nodes from source i to target j, empty if unreachable
+     */
+    public List<Integer> getPath(int i, int j) {
+        if (pathNodes == null)
+            throw new IllegalStateException("matrix was computed without paths");
+        int cell = i * targets.length + j;
+        List<Integer> path = new ArrayList<>(pathOffsets[cell + 1] - pathOffsets[cell]);
+        for (int k = pathOffsets[cell]; k < pathOffsets[cell + 1]; k++)
+            path.add(pathNodes[k]);
+        return path;
+    }
+
+    /**
+     * @return offsets into getPathNodes(), one per cell plus a final end offset
+     */
+    public int[] getPathOffsets() {
+        return pathOffsets;
+    }
+
+    /**
+     * @return all paths concatenated in row-major cell order
+     */
+    public int[] getPathNodes() {
+        return pathNodes;
+    }
+}
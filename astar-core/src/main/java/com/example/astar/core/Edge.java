@@ -1,4 +1,4 @@
-package com.example.astar;
+package com.example.astar.core;
 
 /**
  * @author James Gu, Ryan Li, Shamak Gowda
@@ -0,0 +1,46 @@
+package com.example.astar.core;
+
+/**
+ * Straight-line distance heuristic based on the house coordinates.
+ * <p>
+ * Edge weights are not in the same unit as the coordinates, so the straight
+ * line distance is multiplied by the smallest weight-per-unit-length found on
+ * any edge of the graph. No path can be cheaper than that ratio times its
+ * length, which keeps the estimate admissible.
+ */
+public class EuclideanHeuristic implements Heuristic {
+
+    private final double[][] locations;
+
+    // cost of the cheapest edge per unit of straight-line length
+    private final double scale;
+
+    /**
+     * @param locations x/y position of every node
+     * @param graph     graph used to calibrate the weight-per-length ratio
+     */
+    public EuclideanHeuristic(double[][] locations, RoadGraph graph) {
+        this.locations = locations;
+
+        double minRatio = Double.POSITIVE_INFINITY;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                double length = distance(node, graph.getTarget(e));
+                if (length > 0)
+                    minRatio = Math.min(minRatio, graph.getWeight(e) / length);
+            }
+        }
+        this.scale = minRatio == Double.POSITIVE_INFINITY ? 0 : minRatio;
+    }
+
+    @Override
+    public int estimate(int node, int target) {
+        return (int) Math.floor(scale * distance(node, target));
+    }
+
+    private double distance(int a, int b) {
+        double dx = locations[a][0] - locations[b][0];
+        double dy = locations[a][1] - locations[b][1];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,633 @@
+package com.example.astar.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Assigns riders to a fleet of cars and orders each car's pickups, with all
+ * cars driving to one shared destination.
+ * <p>
+ * Every car starts at its own node with a seat capacity, picks up its riders
+ * in order and ends at the destination. Riders may have a pickup time window;
+ * a car that arrives early waits, arriving late is not allowed. Times are in
+ * edge weight units with every car leaving at time 0.
+ * <p>
+ * Road distances between all pickups, car starts and the destination are
+ * computed once in parallel. A plan is built by cheapest insertion and then
+ * improved by relocate, swap and 2-opt* moves restricted to each rider's
+ * nearest neighbours. Several workers run such restarts with different seeds
+ * until the time budget is spent and the best plan wins. Riders that fit in
+ * no car are reported as unassigned.
+ */
+public class FleetPlanner {
+
+    // number of nearest riders considered for moves
+    private static final int NEIGHBOURS = 16;
+
+    private final Dijkstra dijkstra;
+
+    // wall clock budget for restarts and local search
+    private long timeBudgetMillis = 2000;
+
+    // number of workers running restarts in parallel
+    private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
+    private long seed = 1;
+
+    /**
+     * @param graph the road graph
+     */
+    public FleetPlanner(RoadGraph graph) {
+        this.dijkstra = new Dijkstra(graph);
+    }
+
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * @param timeBudgetMillis how long restarts may keep improving the plan,
+     *                         not counting the distance computation
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism number of workers running restarts at once
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param seed seed of the random restarts, the same seed and inputs give
+     *             the same plan when parallelism is 1
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plans without time windows, one seat per rider
+     *
+     * @param destination   node every car drives to
+     * @param vehicleStarts start node of each car
+     * @param capacities    seats of each car
+     * @param pickups       pickup node of each rider
+     * @return the best plan found
+     */
+    public Plan plan(int destination, int[] vehicleStarts, int[] capacities, int[] pickups) {
+        int[] demands = new int[pickups.length];
+        Arrays.fill(demands, 1);
+        return plan(destination, vehicleStarts, capacities, pickups, demands, null, null);
+    }
+
+    /**
+     * @param destination   node every car drives to
+     * @param vehicleStarts start node of each car
+     * @param capacities    seats of each car
+     * @param pickups       pickup node of each rider
+     * @param demands       seats each rider needs
+     * @param earliest      earliest pickup time of each rider, or null
+     * @param latest        latest pickup time of each rider, or null
+     * @return the best plan found
+     */
+    public Plan plan(int destination, int[] vehicleStarts, int[] capacities, int[] pickups,
+            int[] demands, int[] earliest, int[] latest) {
+        if (vehicleStarts.length != capacities.length)
+            throw new IllegalArgumentException("need one capacity per vehicle");
+        if (pickups.length != demands.length)
+            throw new IllegalArgumentException("need one demand per rider");
+        if ((earliest == null) != (latest == null)
+                || (earliest != null && (earliest.length != pickups.length || latest.length != pickups.length)))
+            throw new IllegalArgumentException("time windows must be given for every rider or not at all");
+
+        Problem problem = new Problem(destination, vehicleStarts, capacities, pickups, demands, earliest, latest);
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000;
+
+        List<CompletableFuture<Solution>> workers = new ArrayList<>();
+        for (int w = 0; w < parallelism; w++) {
+            long workerSeed = seed + w;
+            boolean first = w == 0;
+            workers.add(CompletableFuture.supplyAsync(() -> runRestarts(problem, workerSeed, first, deadline)));
+        }
+        Solution best = null;
+        for (CompletableFuture<Solution> worker : workers) {
+            Solution s = worker.join();
+            if (best == null || s.isBetterThan(best))
+                best = s;
+        }
+        return best.toPlan();
+    }
+
+    private Solution runRestarts(Problem problem, long workerSeed, boolean deterministicFirst, long deadline) {
+        Random random = new Random(workerSeed);
+        Solution best = null;
+        boolean first = deterministicFirst;
+        do {
+            Solution s = new Solution(problem);
+            s.construct(first ? null : random);
+            s.improve(random, deadline);
+            if (best == null || s.isBetterThan(best))
+                best = s;
+            first = false;
+        } while (System.nanoTime() < deadline);
+        return best;
+    }
+
+    /**
+     * Result of {@link FleetPlanner#plan}
+     */
+    public static class Plan {
+
+        private final int[][] riders;
+        private final long[] routeCosts;
+        private final int[] unassigned;
+        private final int[] vehicleStarts;
+        private final int[] pickups;
+        private final int destination;
+
+        Plan(int[][] riders, long[] routeCosts, int[] unassigned, int[] vehicleStarts, int[] pickups, int destination) {
+            this.riders = riders;
+            this.routeCosts = routeCosts;
+            this.unassigned = unassigned;
+            this.vehicleStarts = vehicleStarts;
+            this.pickups = pickups;
+            this.destination = destination;
+        }
+
+        public int getVehicleCount() {
+            return riders.length;
+        }
+
+        /**
+         * @param vehicle a vehicle index
+         * @return indices of the riders picked up by the vehicle, in order
+         */
+        public int[] getRiders(int vehicle) {
+            return riders[vehicle].clone();
+        }
+
+        /**
+         * @param vehicle a vehicle index
+         * @return nodes the vehicle visits: its start, the pickups and the
+         *         destination, or only its start if it has no riders
+         */
+        public List<Integer> getStops(int vehicle) {
+            List<Integer> stops = new ArrayList<>(riders[vehicle].length + 2);
+            stops.add(vehicleStarts[vehicle]);
+            if (riders[vehicle].length == 0)
+                return stops;
+            for (int rider : riders[vehicle])
+                stops.add(pickups[rider]);
+            stops.add(destination);
+            return stops;
+        }
+
+        /**
+         * @param vehicle a vehicle index
+         * @return road distance the vehicle drives
+         */
+        public long getRouteCost(int vehicle) {
+            return routeCosts[vehicle];
+        }
+
+        /**
+         * @return total road distance of all vehicles
+         */
+        public long getCost() {
+            long total = 0;
+            for (long cost : routeCosts)
+                total += cost;
+            return total;
+        }
+
+        /**
+         * @return indices of riders no vehicle could take
+         */
+        public int[] getUnassigned() {
+            return unassigned.clone();
+        }
+    }
+
+    /**
+     * Inputs and the distances between them. Points are numbered riders
+     * first, then the destination, then the vehicle starts; only riders and
+     * the destination are ever driven to.
+     */
+    private class Problem {
+
+        final int riderCount, vehicleCount, destinationPoint;
+        final int destination;
+        final int[] vehicleStarts, capacities, pickups, demands, earliest, latest;
+
+        // distance from point i to rider or destination j at i * (riderCount + 1) + j
+        final int[] distances;
+
+        // nearest riders of every rider
+        final int[][] neighbours;
+
+        Problem(int destination, int[] vehicleStarts, int[] capacities, int[] pickups,
+                int[] demands, int[] earliest, int[] latest) {
+            this.riderCount = pickups.length;
+            this.vehicleCount = vehicleStarts.length;
+            this.destinationPoint = riderCount;
+            this.destination = destination;
+            this.vehicleStarts = vehicleStarts;
+            this.capacities = capacities;
+            this.pickups = pickups;
+            this.demands = demands;
+            this.earliest = earliest;
+            this.latest = latest;
+            this.distances = computeDistances();
+            this.neighbours = findNeighbours();
+        }
+
+        int vehiclePoint(int vehicle) {
+            return riderCount + 1 + vehicle;
+        }
+
+        long distance(int from, int to) {
+            return distances[from * (riderCount + 1) + to];
+        }
+
+        boolean reachable(int from, int to) {
+            return distances[from * (riderCount + 1) + to] != SearchWorkspace.INFINITY;
+        }
+
+        private int[] computeDistances() {
+            int columns = riderCount + 1;
+            int[] targets = Arrays.copyOf(pickups, columns);
+            targets[riderCount] = destination;
+            int[] sources = new int[columns + vehicleCount];
+            System.arraycopy(targets, 0, sources, 0, columns);
+            System.arraycopy(vehicleStarts, 0, sources, columns, vehicleCount);
+
+            int[] result = new int[sources.length * columns];
+            int chunk = Math.max(1, sources.length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (int from = 0; from < sources.length; from += chunk) {
+                int[] rows = Arrays.copyOfRange(sources, from, Math.min(sources.length, from + chunk));
+                int offset = from * columns;
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    DistanceMatrix matrix = DistanceMatrix.compute(dijkstra, rows, targets, false);
+                    System.arraycopy(matrix.getDistances(), 0, result, offset, rows.length * columns);
+                }));
+            }
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+            return result;
+        }
+
+        private int[][] findNeighbours() {
+            int k = Math.max(0, Math.min(NEIGHBOURS, riderCount - 1));
+            int[][] result = new int[riderCount][k];
+            long[] keys = new long[k];
+            for (int u = 0; u < riderCount; u++) {
+                int[] nearest = result[u];
+                int found = 0;
+                for (int v = 0; v < riderCount; v++) {
+                    if (v == u)
+                        continue;
+                    long key = distance(u, v) + distance(v, u);
+                    if (found == k && (k == 0 || key >= keys[k - 1]))
+                        continue;
+                    // insertion into the sorted list of the k nearest so far
+                    int at = found < k ? found++ : k - 1;
+                    while (at > 0 && keys[at - 1] > key) {
+                        keys[at] = keys[at - 1];
+                        nearest[at] = nearest[at - 1];
+                        at--;
+                    }
+                    keys[at] = key;
+                    nearest[at] = v;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * One plan under construction or improvement
+     */
+    private class Solution {
+
+        final Problem p;
+        final int[][] routes;
+        final int[] sizes, loads;
+        final long[] costs;
+        final int[] routeOf, positionOf;
+        final List<Integer> unassigned = new ArrayList<>();
+
+        // buffers for candidate routes
+        final int[] bufferA, bufferB;
+
+        Solution(Problem p) {
+            this.p = p;
+            this.routes = new int[p.vehicleCount][];
+            for (int k = 0; k < p.vehicleCount; k++)
+                routes[k] = new int[Math.min(p.riderCount, Math.max(4, p.capacities[k]))];
+            this.sizes = new int[p.vehicleCount];
+            this.loads = new int[p.vehicleCount];
+            this.costs = new long[p.vehicleCount];
+            this.routeOf = new int[p.riderCount];
+            this.positionOf = new int[p.riderCount];
+            Arrays.fill(routeOf, -1);
+            this.bufferA = new int[p.riderCount];
+            this.bufferB = new int[p.riderCount];
+        }
+
+        boolean isBetterThan(Solution other) {
+            if (unassigned.size() != other.unassigned.size())
+                return unassigned.size() < other.unassigned.size();
+            return totalCost() < other.totalCost();
+        }
+
+        long totalCost() {
+            long total = 0;
+            for (long cost : costs)
+                total += cost;
+            return total;
+        }
+
+        Plan toPlan() {
+            int[][] riders = new int[p.vehicleCount][];
+            for (int k = 0; k < p.vehicleCount; k++)
+                riders[k] = Arrays.copyOf(routes[k], sizes[k]);
+            int[] missing = unassigned.stream().mapToInt(Integer::intValue).sorted().toArray();
+            return new Plan(riders, costs.clone(), missing, p.vehicleStarts, p.pickups, p.destination);
+        }
+
+        /**
+         * Point before position i of route k
+         */
+        int before(int k, int i) {
+            return i == 0 ? p.vehiclePoint(k) : routes[k][i - 1];
+        }
+
+        /**
+         * Point after position i of route k
+         */
+        int after(int k, int i) {
+            return i + 1 < sizes[k] ? routes[k][i + 1] : p.destinationPoint;
+        }
+
+        /**
+         * Cheapest insertion of all riders, farthest from the destination
+         * first, or in random order
+         */
+        void construct(Random random) {
+            Integer[] order = new Integer[p.riderCount];
+            for (int u = 0; u < p.riderCount; u++)
+                order[u] = u;
+            if (random == null)
+                Arrays.sort(order, Comparator.comparingLong(u -> -p.distance(u, p.destinationPoint)));
+            else
+                Collections.shuffle(Arrays.asList(order), random);
+            for (int u : order) {
+                if (!insertCheapest(u))
+                    unassigned.add(u);
+            }
+        }
+
+        boolean insertCheapest(int u) {
+            long bestDelta = Long.MAX_VALUE;
+            int bestRoute = -1, bestPosition = -1;
+            for (int k = 0; k < p.vehicleCount; k++) {
+                if (loads[k] + p.demands[u] > p.capacities[k])
+                    continue;
+                for (int i = 0; i <= sizes[k]; i++) {
+                    int prev = before(k, i);
+                    int next = i < sizes[k] ? routes[k][i] : p.destinationPoint;
+                    if (!p.reachable(prev, u) || !p.reachable(u, next))
+                        continue;
+                    long delta = p.distance(prev, u) + p.distance(u, next)
+                            - (sizes[k] == 0 ? 0 : p.distance(prev, next));
+                    if (delta < bestDelta && (p.earliest == null || insertionFits(k, i, u))) {
+                        bestDelta = delta;
+                        bestRoute = k;
+                        bestPosition = i;
+                    }
+                }
+            }
+            if (bestRoute < 0)
+                return false;
+            int k = bestRoute, n = sizes[k];
+            System.arraycopy(routes[k], 0, bufferA, 0, bestPosition);
+            bufferA[bestPosition] = u;
+            System.arraycopy(routes[k], bestPosition, bufferA, bestPosition + 1, n - bestPosition);
+            commit(k, bufferA, n + 1);
+            return true;
+        }
+
+        boolean insertionFits(int k, int position, int u) {
+            int n = sizes[k];
+            System.arraycopy(routes[k], 0, bufferB, 0, position);
+            bufferB[position] = u;
+            System.arraycopy(routes[k], position, bufferB, position + 1, n - position);
+            return evaluate(k, bufferB, n + 1) >= 0;
+        }
+
+        /**
+         * @return distance driven along the riders, or -1 if a leg cannot be
+         *         driven or a time window is missed
+         */
+        long evaluate(int k, int[] riders, int length) {
+            if (length == 0)
+                return 0;
+            long cost = 0, time = 0;
+            int at = p.vehiclePoint(k);
+            for (int i = 0; i < length; i++) {
+                int u = riders[i];
+                if (!p.reachable(at, u))
+                    return -1;
+                long leg = p.distance(at, u);
+                cost += leg;
+                if (p.earliest != null) {
+                    time = Math.max(time + leg, p.earliest[u]);
+                    if (time > p.latest[u])
+                        return -1;
+                }
+                at = u;
+            }
+            if (!p.reachable(at, p.destinationPoint))
+                return -1;
+            return cost + p.distance(at, p.destinationPoint);
+        }
+
+        int load(int[] riders, int length) {
+            int load = 0;
+            for (int i = 0; i < length; i++)
+                load += p.demands[riders[i]];
+            return load;
+        }
+
+        void commit(int k, int[] riders, int length) {
+            if (routes[k].length < length)
+                routes[k] = Arrays.copyOf(routes[k], Math.min(p.riderCount, Math.max(length, routes[k].length * 2)));
+            System.arraycopy(riders, 0, routes[k], 0, length);
+            sizes[k] = length;
+            loads[k] = load(riders, length);
+            costs[k] = evaluate(k, riders, length);
+            for (int i = 0; i < length; i++) {
+                routeOf[riders[i]] = k;
+                positionOf[riders[i]] = i;
+            }
+        }
+
+        /**
+         * Replaces routes a and b (b may be -1) if the candidates keep within
+         * capacity and time windows, can be driven and really lower the cost.
+         * The move deltas only screen candidates; with an unreachable leg in
+         * them they are meaningless, so the routes are always evaluated.
+         */
+        boolean tryReplace(int a, int[] ridersA, int lengthA, int b, int[] ridersB, int lengthB) {
+            if (load(ridersA, lengthA) > p.capacities[a])
+                return false;
+            if (b >= 0 && load(ridersB, lengthB) > p.capacities[b])
+                return false;
+            long costA = evaluate(a, ridersA, lengthA);
+            long costB = b >= 0 ? evaluate(b, ridersB, lengthB) : 0;
+            if (costA < 0 || costB < 0 || costA + costB >= costs[a] + (b >= 0 ? costs[b] : 0))
+                return false;
+            commit(a, ridersA, lengthA);
+            if (b >= 0)
+                commit(b, ridersB, lengthB);
+            return true;
+        }
+
+        /**
+         * Local search until no move improves or the deadline passes
+         */
+        void improve(Random random, long deadline) {
+            int[] order = new int[p.riderCount];
+            for (int u = 0; u < p.riderCount; u++)
+                order[u] = u;
+            boolean improved = true;
+            while (improved && System.nanoTime() < deadline) {
+                improved = false;
+                for (Iterator<Integer> it = unassigned.iterator(); it.hasNext();) {
+                    if (insertCheapest(it.next())) {
+                        it.remove();
+                        improved = true;
+                    }
+                }
+                for (int i = p.riderCount - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                }
+                for (int u : order) {
+                    if (routeOf[u] < 0)
+                        continue;
+                    for (int v : p.neighbours[u]) {
+                        if (routeOf[v] < 0 || routeOf[u] < 0)
+                            continue;
+                        if (relocate(u, v) || swap(u, v) || twoOptStar(u, v)) {
+                            improved = true;
+                            break;
+                        }
+                    }
+                    if ((u & 63) == 0 && System.nanoTime() >= deadline)
+                        return;
+                }
+            }
+        }
+
+        /**
+         * Moves u directly after v
+         */
+        boolean relocate(int u, int v) {
+            int a = routeOf[u], b = routeOf[v], i = positionOf[u], j = positionOf[v];
+            if (a == b && j == i - 1)
+                return false;
+            int nextV = after(b, j);
+            long delta = p.distance(before(a, i), after(a, i)) - p.distance(before(a, i), u) - p.distance(u, after(a, i))
+                    + p.distance(v, u) + p.distance(u, nextV) - p.distance(v, nextV);
+            if (sizes[a] == 1 && a != b)
+                delta -= p.distance(before(a, i), after(a, i));
+            if (delta >= 0)
+                return false;
+
+            if (a == b) {
+                int n = 0;
+                for (int x = 0; x < sizes[a]; x++) {
+                    int w = routes[a][x];
+                    if (w == u)
+                        continue;
+                    bufferA[n++] = w;
+                    if (w == v)
+                        bufferA[n++] = u;
+                }
+                return tryReplace(a, bufferA, n, -1, null, 0);
+            }
+            int n = 0;
+            for (int x = 0; x < sizes[a]; x++) {
+                if (x != i)
+                    bufferA[n++] = routes[a][x];
+            }
+            int m = 0;
+            for (int x = 0; x < sizes[b]; x++) {
+                bufferB[m++] = routes[b][x];
+                if (x == j)
+                    bufferB[m++] = u;
+            }
+            return tryReplace(a, bufferA, n, b, bufferB, m);
+        }
+
+        /**
+         * Exchanges u and v between their routes
+         */
+        boolean swap(int u, int v) {
+            int a = routeOf[u], b = routeOf[v], i = positionOf[u], j = positionOf[v];
+            if (a == b)
+                return false;
+            long delta = p.distance(before(a, i), v) + p.distance(v, after(a, i))
+                    - p.distance(before(a, i), u) - p.distance(u, after(a, i))
+                    + p.distance(before(b, j), u) + p.distance(u, after(b, j))
+                    - p.distance(before(b, j), v) - p.distance(v, after(b, j));
+            if (delta >= 0)
+                return false;
+            System.arraycopy(routes[a], 0, bufferA, 0, sizes[a]);
+            bufferA[i] = v;
+            System.arraycopy(routes[b], 0, bufferB, 0, sizes[b]);
+            bufferB[j] = u;
+            return tryReplace(a, bufferA, sizes[a], b, bufferB, sizes[b]);
+        }
+
+        /**
+         * Exchanges route tails so that u is followed by v
+         */
+        boolean twoOptStar(int u, int v) {
+            int a = routeOf[u], b = routeOf[v], i = positionOf[u], j = positionOf[v];
+            if (a == b)
+                return false;
+            int nextU = after(a, i), prevV = before(b, j);
+            boolean bEmptied = j == 0 && i + 1 == sizes[a];
+            long delta = p.distance(u, v) - p.distance(u, nextU) - p.distance(prevV, v)
+                    + (bEmptied ? 0 : p.distance(prevV, nextU));
+            if (delta >= 0)
+                return false;
+            // a keeps its head up to u and takes the tail of b from v
+            int n = 0;
+            for (int x = 0; x <= i; x++)
+                bufferA[n++] = routes[a][x];
+            for (int x = j; x < sizes[b]; x++)
+                bufferA[n++] = routes[b][x];
+            // b keeps its head before v and takes the tail of a after u
+            int m = 0;
+            for (int x = 0; x < j; x++)
+                bufferB[m++] = routes[b][x];
+            for (int x = i + 1; x < sizes[a]; x++)
+                bufferB[m++] = routes[a][x];
+            return tryReplace(a, bufferA, n, b, bufferB, m);
+        }
+    }
+}
@@ -1,4 +1,4 @@
-package com.example.astar;
+package com.example.astar.core;
 
 import java.util.*;
 
@@ -12,6 +12,10 @@ public class Graph {
     // Create an adjacency list
     private final Map<Integer, List<Edge>> adjList;
 
+    // bumped on every change, so caches can tell when routes may be stale;
+    // volatile because routing threads read it while the owner edits the graph
+    private volatile long version;
+
     /**
      * Constructor for our amazing graph
      **/
@@ -28,6 +32,14 @@ public class Graph {
         adjList.computeIfAbsent(edge.getSource(), k -> new ArrayList<>()).add(edge);// Add the reverse edge
         adjList.computeIfAbsent(edge.getDestination(), k -> new ArrayList<>())
                 .add(new Edge(edge.getDestination(), edge.getSource(), edge.getWeight()));
+        version++;
+    }
+
+    /**
+     * @return number of changes made to the graph so far
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -35,7 +47,7 @@ public class Graph {
      * @return get the neighbors of the current node
      */
     public List<Edge> getNeighbors(int node) {
-        return adjList.getOrDefault(node, new ArrayList<>());
+        return adjList.getOrDefault(node, Collections.emptyList());
     }
 
     /**
@@ -44,4 +56,11 @@ public class Graph {
     public Set<Integer> getNodes() {
         return adjList.keySet();
     }
+
+    /**
+     * @return an immutable CSR snapshot of the graph for routing
+     */
+    public CsrGraph freeze() {
+        return new CsrGraph(this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.example.astar.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary file format for a road graph, so a large network can be
+ * opened with {@link #map(Path)} instead of being rebuilt edge by edge.
+ * <p>
+ * All values are little-endian. The layout is
+ *
+ * <pre>
+ *   header       magic "CCRG", version, nodeCount, edgeCount, flags, 0  (6 ints)
+ *   coordinates  nodeCount x/y pairs (doubles), present if flags has HAS_COORDINATES
+ *   offsets      nodeCount + 1 ints
+ *   targets      edgeCount ints
+ *   weights      edgeCount ints
+ * </pre>
+ *
+ * The header is 24 bytes, so the coordinate block starts 8-byte aligned.
+ */
+public final class GraphFile {
+
+    public static final int MAGIC = 0x47524343; // "CCRG" read as little-endian
+    public static final int VERSION = 1;
+    public static final int HAS_COORDINATES = 1;
+
+    static final int HEADER_BYTES = 24;
+
+    // size of the buffer used to stream sections out
+    private static final int WRITE_CHUNK = 1 << 16;
+
+    // a single mapping is limited to 2 GB, larger sections are mapped in
+    // pieces of this many bytes, a multiple of 8 so no value straddles two
+    static final int MAP_CHUNK = 1 << 30;
+
+    private GraphFile() {
+    }
+
+    /**
+     * Writes a graph and (optionally) its node coordinates
+     *
+     * @param file      file to create or overwrite
+     * @param graph     the road graph
+     * @param locations x/y of every node, or null
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, RoadGraph graph, double[][] locations) throws IOException {
+        int n = graph.getNodeCount();
+        int m = graph.getEdgeCount();
+        if (locations != null && locations.length < n)
+            throw new IllegalArgumentException("locations has " + locations.length + " entries for " + n + " nodes");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m)
+                    .putInt(locations != null ? HAS_COORDINATES : 0).putInt(0);
+
+            if (locations != null) {
+                for (int v = 0; v < n; v++) {
+                    ensureRoom(channel, buffer, 16);
+                    buffer.putDouble(locations[v][0]).putDouble(locations[v][1]);
+                }
+            }
+            for (int v = 0; v <= n; v++) {
+                ensureRoom(channel, buffer, 4);
+                buffer.putInt(v < n ? graph.edgeStart(v) : m);
+            }
+            for (int e = 0; e < m; e++) {
+                ensureRoom(channel, buffer, 4);
+                buffer.putInt(graph.getTarget(e));
+            }
+            for (int e = 0; e < m; e++) {
+                ensureRoom(channel, buffer, 4);
+                buffer.putInt(graph.getWeight(e));
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Opens a graph file by memory-mapping it. Nothing is copied onto the
+     * heap; the returned graph reads the file's pages on demand. Sections
+     * over 2 GB are mapped in several pieces.
+     *
+     * @param file a file written by {@link #write}
+     * @return the mapped graph
+     * @throws IOException if the file cannot be read or is not a graph file
+     */
+    public static MappedGraph map(Path file) throws IOException {
+        return map(file, MAP_CHUNK);
+    }
+
+    /**
+     * Same as {@link #map(Path)} with a chosen piece size, so tests can
+     * exercise sections that span several mappings
+     */
+    static MappedGraph map(Path file, int chunkBytes) throws IOException {
+        if (chunkBytes < 8 || Integer.bitCount(chunkBytes) != 1)
+            throw new IllegalArgumentException("chunk size must be a power of two of at least 8 bytes");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new IOException(file + " is too short to be a graph file");
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            }
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException(file + " is not a graph file");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException(file + " has unsupported graph file version " + version);
+            int n = header.getInt();
+            int m = header.getInt();
+            int flags = header.getInt();
+            boolean hasCoordinates = (flags & HAS_COORDINATES) != 0;
+
+            long coordinatesAt = HEADER_BYTES;
+            long offsetsAt = coordinatesAt + (hasCoordinates ? 16L * n : 0);
+            long targetsAt = offsetsAt + 4L * n + 4;
+            long weightsAt = targetsAt + 4L * m;
+            long end = weightsAt + 4L * m;
+            if (n < 0 || m < 0 || size < end)
+                throw new IOException(file + " is truncated: expected " + end + " bytes, found " + size);
+
+            return new MappedGraph(chunkBytes,
+                    hasCoordinates ? section(channel, coordinatesAt, 16L * n, chunkBytes) : null,
+                    section(channel, offsetsAt, 4L * n + 4, chunkBytes),
+                    section(channel, targetsAt, 4L * m, chunkBytes),
+                    section(channel, weightsAt, 4L * m, chunkBytes));
+        }
+    }
+
+    /**
+     * Maps a section as consecutive pieces of chunkBytes, the last one shorter
+     */
+    private static ByteBuffer[] section(FileChannel channel, long position, long size, int chunkBytes)
+            throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[(int) Math.max(1, (size + chunkBytes - 1) / chunkBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            long from = (long) i * chunkBytes;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + from, Math.min(chunkBytes, size - from))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            drain(channel, buffer);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
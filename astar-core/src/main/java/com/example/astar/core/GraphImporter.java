@@ -0,0 +1,309 @@
+package com.example.astar.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link CsrGraph} from large edge-list files without creating an
+ * object per edge.
+ * <p>
+ * The edge file has one road per line, {@code source,target,weight}; the
+ * optional node file has {@code id,x,y}. Fields may be separated by commas,
+ * semicolons, tabs or spaces, and blank lines, lines starting with '#' and a
+ * header line (the first other line, if it starts with a name rather than
+ * a number) are skipped. Node ids can be any sparse long values (such as
+ * OSM ids); they are renumbered densely in order of first appearance.
+ * <p>
+ * Files are read in fixed-size chunks through a {@link FileChannel}, and the
+ * graph is built in two passes over the edge file: the first pass maps ids
+ * and counts degrees, the second fills the CSR arrays in place. Parallel
+ * roads between the same two nodes are then merged, keeping the smallest
+ * weight. Apart from the id map, memory is the final CSR arrays plus one int
+ * per node; only if roads were merged are the edge arrays copied once more to
+ * their shorter final length.
+ */
+public class GraphImporter {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final NodeIdMap ids = new NodeIdMap();
+
+    // like Graph.addEdge, every road can be driven in both directions
+    private boolean undirected = true;
+
+    public boolean isUndirected() {
+        return undirected;
+    }
+
+    /**
+     * @param undirected whether each line is a two-way road (the default) or a
+     *                   one-way edge from source to target
+     */
+    public void setUndirected(boolean undirected) {
+        this.undirected = undirected;
+    }
+
+    /**
+     * @return the mapping between external and dense node ids
+     */
+    public NodeIdMap getIds() {
+        return ids;
+    }
+
+    /**
+     * Reads an edge file into a graph
+     *
+     * @param edgeFile file with source,target,weight lines
+     * @return the graph, node ids are the dense ids of getIds()
+     * @throws IOException if the file cannot be read or has a bad line
+     */
+    public CsrGraph importEdges(Path edgeFile) throws IOException {
+        // pass 1: assign dense ids and count the edges leaving every node
+        int[][] degree = { new int[1024] };
+        long[] edgeCount = { 0 };
+        forEachRecord(edgeFile, 3, (fields, line) -> {
+            int u = ids.getOrAdd(fields.getLong(0));
+            int v = ids.getOrAdd(fields.getLong(1));
+            fields.getLong(2);
+            if (ids.size() > degree[0].length)
+                degree[0] = Arrays.copyOf(degree[0], Math.max(ids.size(), degree[0].length * 2));
+            if (u == v)
+                return;
+            degree[0][u]++;
+            edgeCount[0]++;
+            if (undirected) {
+                degree[0][v]++;
+                edgeCount[0]++;
+            }
+        });
+        if (edgeCount[0] > Integer.MAX_VALUE - 8)
+            throw new IOException(edgeFile + " has too many edges for int edge indices");
+
+        int n = ids.size();
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++)
+            offsets[v + 1] = offsets[v] + degree[0][v];
+        int m = offsets[n];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+
+        // pass 2: fill the edge arrays, reusing the degree array as fill cursor
+        int[] fill = degree[0];
+        System.arraycopy(offsets, 0, fill, 0, n);
+        forEachRecord(edgeFile, 3, (fields, line) -> {
+            int u = ids.get(fields.getLong(0));
+            int v = ids.get(fields.getLong(1));
+            long weight = fields.getLong(2);
+            if (weight < 0 || weight > Integer.MAX_VALUE)
+                throw new IOException(edgeFile + ":" + line + ": weight out of range");
+            if (u == v)
+                return;
+            targets[fill[u]] = v;
+            weights[fill[u]++] = (int) weight;
+            if (undirected) {
+                targets[fill[v]] = u;
+                weights[fill[v]++] = (int) weight;
+            }
+        });
+
+        int merged = mergeParallelEdges(offsets, targets, weights);
+        if (merged == m)
+            return new CsrGraph(offsets, targets, weights);
+        return new CsrGraph(offsets, Arrays.copyOf(targets, merged), Arrays.copyOf(weights, merged));
+    }
+
+    /**
+     * Reads node coordinates for nodes seen in the edge file. Nodes that are
+     * missing from the file get NaN coordinates; ids that never appeared in
+     * the edge file are ignored.
+     *
+     * @param nodeFile file with id,x,y lines
+     * @return x/y of every dense node id
+     * @throws IOException if the file cannot be read or has a bad line
+     */
+    public double[][] importNodes(Path nodeFile) throws IOException {
+        double[][] locations = new double[ids.size()][];
+        forEachRecord(nodeFile, 3, (fields, line) -> {
+            int node = ids.get(fields.getLong(0));
+            if (node >= 0)
+                locations[node] = new double[] { fields.getDouble(1), fields.getDouble(2) };
+        });
+        for (int v = 0; v < locations.length; v++) {
+            if (locations[v] == null)
+                locations[v] = new double[] { Double.NaN, Double.NaN };
+        }
+        return locations;
+    }
+
+    /**
+     * Sorts every node's edges by target, keeps the cheapest edge to each
+     * target and compacts the arrays. offsets is rewritten in place.
+     *
+     * @return the new number of edges
+     */
+    private static int mergeParallelEdges(int[] offsets, int[] targets, int[] weights) {
+        int n = offsets.length - 1;
+        long[] packed = new long[16];
+        int write = 0;
+        for (int v = 0; v < n; v++) {
+            int from = offsets[v], to = offsets[v + 1];
+            int degree = to - from;
+            if (degree > packed.length)
+                packed = new long[Math.max(degree, packed.length * 2)];
+            for (int i = 0; i < degree; i++)
+                packed[i] = ((long) targets[from + i] << 32) | weights[from + i];
+            // sorting by target then weight puts the cheapest copy first
+            Arrays.sort(packed, 0, degree);
+
+            offsets[v] = write;
+            int last = -1;
+            for (int i = 0; i < degree; i++) {
+                int target = (int) (packed[i] >>> 32);
+                if (target == last)
+                    continue;
+                targets[write] = target;
+                weights[write] = (int) packed[i];
+                write++;
+                last = target;
+            }
+        }
+        offsets[n] = write;
+        return write;
+    }
+
+    /**
+     * Field positions of the current line
+     */
+    private static class Fields {
+        private final Path file;
+        private byte[] line;
+        private long lineNumber;
+        private final int[] start, end;
+
+        // no data line seen yet, so the next one may be a header
+        private boolean beforeFirstRecord = true;
+
+        Fields(Path file, int count) {
+            this.file = file;
+            start = new int[count];
+            end = new int[count];
+        }
+
+        long getLong(int field) throws IOException {
+            int i = start[field], to = end[field];
+            boolean negative = line[i] == '-';
+            if (negative || line[i] == '+')
+                i++;
+            if (i == to)
+                throw error("expected a number");
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9)
+                    throw error("expected an integer in field " + (field + 1));
+                try {
+                    value = Math.addExact(Math.multiplyExact(value, 10), digit);
+                } catch (ArithmeticException e) {
+                    throw error("integer out of range in field " + (field + 1));
+                }
+            }
+            return negative ? -value : value;
+        }
+
+        double getDouble(int field) throws IOException {
+            try {
+                return Double.parseDouble(
+                        new String(line, start[field], end[field] - start[field], StandardCharsets.ISO_8859_1));
+            } catch (NumberFormatException e) {
+                throw error("expected a number in field " + (field + 1));
+            }
+        }
+
+        IOException error(String message) {
+            return new IOException(file + ":" + lineNumber + ": " + message);
+        }
+    }
+
+    private interface RecordHandler {
+        void accept(Fields fields, long lineNumber) throws IOException;
+    }
+
+    /**
+     * Streams a delimited text file chunk by chunk and passes every data line
+     * with at least fieldCount fields to the handler
+     */
+    private static void forEachRecord(Path file, int fieldCount, RecordHandler handler) throws IOException {
+        Fields fields = new Fields(file, fieldCount);
+        byte[] line = new byte[256];
+        int length = 0;
+        long lineNumber = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+            byte[] bytes = chunk.array();
+            while (true) {
+                chunk.clear();
+                int read = channel.read(chunk);
+                if (read < 0)
+                    break;
+                for (int i = 0; i < read; i++) {
+                    byte b = bytes[i];
+                    if (b == '\n') {
+                        lineNumber++;
+                        handleLine(line, length, lineNumber, fields, handler);
+                        length = 0;
+                    } else {
+                        if (length == line.length)
+                            line = Arrays.copyOf(line, length * 2);
+                        line[length++] = b;
+                    }
+                }
+            }
+            if (length > 0)
+                handleLine(line, length, lineNumber + 1, fields, handler);
+        }
+    }
+
+    private static void handleLine(byte[] line, int length, long lineNumber, Fields fields, RecordHandler handler)
+            throws IOException {
+        if (length > 0 && line[length - 1] == '\r')
+            length--;
+        int i = 0;
+        while (i < length && isSeparator(line[i]))
+            i++;
+        if (i == length || line[i] == '#')
+            return;
+
+        fields.line = line;
+        fields.lineNumber = lineNumber;
+        int count = 0;
+        while (i < length && count < fields.start.length) {
+            int from = i;
+            while (i < length && !isSeparator(line[i]))
+                i++;
+            fields.start[count] = from;
+            fields.end[count] = i;
+            count++;
+            while (i < length && isSeparator(line[i]))
+                i++;
+        }
+        if (count < fields.start.length)
+            throw fields.error("expected " + fields.start.length + " fields, found " + count);
+
+        // a header line starts with a name rather than a number
+        byte first = line[fields.start[0]];
+        boolean header = fields.beforeFirstRecord && first != '-' && first != '+' && (first < '0' || first > '9');
+        fields.beforeFirstRecord = false;
+        if (header)
+            return;
+        handler.accept(fields, lineNumber);
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ',' || b == ';' || b == '\t' || b == ' ';
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Nested partition of the road graph into cells of bounded size, for the
+ * {@link OverlayRouter} and for spreading one network over several routing
+ * servers.
+ * <p>
+ * Cells are found by inertial flow: the nodes of a cell are sorted along a
+ * few directions by their coordinates, the first and last quarter along a
+ * direction are tied to a source and a sink, and a maximum flow with unit
+ * capacities gives the smallest cut between them. The direction with the
+ * smallest cut wins, and both sides are split again until they are small
+ * enough. Road networks have small natural cuts (rivers, ridges, sparse
+ * countryside), and this finds them without any tuning.
+ * <p>
+ * Levels are nested: level 1 has the smallest cells, and every cell of level
+ * L + 1 is a union of level L cells. A node is a boundary node of a level if
+ * one of its roads, in either direction, leads into another cell of that
+ * level. The partition only depends on the topology, not on the weights.
+ */
+public class GraphPartition {
+
+    // fraction of a cell tied to the source and to the sink
+    private static final double BALANCE = 0.25;
+
+    // directions the nodes are sorted along: x, y and both diagonals
+    private static final double[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 } };
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    // cellOf[L - 1][v] is the cell of node v on level L
+    private final int[][] cellOf;
+    private final int[] cellCounts;
+    private final int[] cutEdgeCounts;
+
+    // boundary nodes of cell c on level L are
+    // boundaryNodes[L - 1][boundaryOffsets[L - 1][c] .. boundaryOffsets[L - 1][c + 1] - 1]
+    private final int[][] boundaryOffsets;
+    private final int[][] boundaryNodes;
+
+    // position of v among the boundary nodes of its level L cell, or -1
+    private final int[][] boundaryIndex;
+
+    // source node of every edge
+    private final int[] edgeSource;
+
+    private GraphPartition(RoadGraph graph, int[][] cellOf, int[] cellCounts) {
+        this.nodeCount = graph.getNodeCount();
+        this.edgeCount = graph.getEdgeCount();
+        this.cellOf = cellOf;
+        this.cellCounts = cellCounts;
+        int levels = cellOf.length;
+
+        edgeSource = new int[edgeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            for (int e = graph.edgeStart(v), last = graph.edgeEnd(v); e < last; e++)
+                edgeSource[e] = v;
+        }
+
+        boundaryOffsets = new int[levels][];
+        boundaryNodes = new int[levels][];
+        boundaryIndex = new int[levels][];
+        cutEdgeCounts = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            int[] cells = cellOf[level];
+            boolean[] isBoundary = new boolean[nodeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int from = edgeSource[e], to = graph.getTarget(e);
+                if (cells[from] != cells[to]) {
+                    cutEdgeCounts[level]++;
+                    isBoundary[from] = true;
+                    isBoundary[to] = true;
+                }
+            }
+            int[] offsets = new int[cellCounts[level] + 1];
+            for (int v = 0; v < nodeCount; v++) {
+                if (isBoundary[v])
+                    offsets[cells[v] + 1]++;
+            }
+            for (int c = 0; c < cellCounts[level]; c++)
+                offsets[c + 1] += offsets[c];
+            int[] nodes = new int[offsets[cellCounts[level]]];
+            int[] index = new int[nodeCount];
+            int[] fill = Arrays.copyOf(offsets, cellCounts[level]);
+            Arrays.fill(index, -1);
+            for (int v = 0; v < nodeCount; v++) {
+                if (!isBoundary[v])
+                    continue;
+                int c = cells[v];
+                index[v] = fill[c] - offsets[c];
+                nodes[fill[c]++] = v;
+            }
+            boundaryOffsets[level] = offsets;
+            boundaryNodes[level] = nodes;
+            boundaryIndex[level] = index;
+        }
+    }
+
+    /**
+     * Partitions the graph by recursive inertial flow bisection
+     *
+     * @param graph     the road graph
+     * @param locations x/y position of every node
+     * @param cellSizes largest cell size of every level, smallest first, for
+     *                  example 256, 4096
+     * @return the partition
+     */
+    public static GraphPartition inertialFlow(RoadGraph graph, double[][] locations, int... cellSizes) {
+        int n = graph.getNodeCount();
+        if (locations.length != n)
+            throw new IllegalArgumentException("need a location for every node");
+        if (cellSizes.length == 0)
+            throw new IllegalArgumentException("need at least one level");
+        for (int i = 0; i < cellSizes.length; i++) {
+            if (cellSizes[i] < 1 || i > 0 && cellSizes[i] <= cellSizes[i - 1])
+                throw new IllegalArgumentException("cell sizes must be positive and increasing");
+        }
+
+        Bisector bisector = new Bisector(graph, locations);
+        int levels = cellSizes.length;
+        int[][] cellOf = new int[levels][n];
+        int[] cellCounts = new int[levels];
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++)
+            all[v] = v;
+
+        // split from the top level down, so lower cells nest in upper ones
+        Deque<int[]> pieces = new ArrayDeque<>();
+        Deque<Integer> pieceLevels = new ArrayDeque<>();
+        pieces.push(all);
+        pieceLevels.push(levels - 1);
+        while (!pieces.isEmpty()) {
+            int[] piece = pieces.pop();
+            int level = pieceLevels.pop();
+            for (int[] cell : bisector.splitUntil(piece, cellSizes[level])) {
+                int id = cellCounts[level]++;
+                for (int v : cell)
+                    cellOf[level][v] = id;
+                if (level > 0) {
+                    pieces.push(cell);
+                    pieceLevels.push(level - 1);
+                }
+            }
+        }
+        return new GraphPartition(graph, cellOf, cellCounts);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return number of levels, level 1 has the smallest cells
+     */
+    public int getLevelCount() {
+        return cellOf.length;
+    }
+
+    /**
+     * @param level a level from 1 to getLevelCount()
+     * @return number of cells on that level
+     */
+    public int getCellCount(int level) {
+        return cellCounts[level - 1];
+    }
+
+    /**
+     * @param level a level from 1 to getLevelCount()
+     * @param node  a node id
+     * @return the cell of node on that level
+     */
+    public int getCell(int level, int node) {
+        return cellOf[level - 1][node];
+    }
+
+    /**
+     * @param level a level from 1 to getLevelCount()
+     * @return number of edges between different cells of that level
+     */
+    public int getCutEdgeCount(int level) {
+        return cutEdgeCounts[level - 1];
+    }
+
+    /**
+     * @param level a level from 1 to getLevelCount()
+     * @param cell  a cell of that level
+     * @return number of boundary nodes of the cell
+     */
+    public int getBoundarySize(int level, int cell) {
+        return boundaryOffsets[level - 1][cell + 1] - boundaryOffsets[level - 1][cell];
+    }
+
+    /**
+     * @param level a level from 1 to getLevelCount()
+     * @param cell  a cell of that level
+     * @param i     index among the boundary nodes of the cell
+     * @return the i-th boundary node of the cell
+     */
+    public int getBoundaryNode(int level, int cell, int i) {
+        return boundaryNodes[level - 1][boundaryOffsets[level - 1][cell] + i];
+    }
+
+    /**
+     * @param level a level from 1 to getLevelCount()
+     * @param node  a node id
+     * @return position of node among the boundary nodes of its cell, or -1 if
+     *         it is not a boundary node
+     */
+    public int getBoundaryIndex(int level, int node) {
+        return boundaryIndex[level - 1][node];
+    }
+
+    /**
+     * @param edge an edge id
+     * @return the node the edge leaves from
+     */
+    public int getSource(int edge) {
+        return edgeSource[edge];
+    }
+
+    /**
+     * Recursive bisection of node sets by minimum cuts. The graph is treated
+     * as undirected: every road is an arc with capacity 1 both ways.
+     */
+    private static class Bisector {
+        private final double[][] locations;
+
+        // undirected adjacency: arcs of v are arcTarget[arcOffsets[v] .. arcOffsets[v + 1] - 1]
+        private final int[] arcOffsets;
+        private final int[] arcTarget;
+
+        // index of every node of the current piece within it, valid where
+        // mark equals markGeneration
+        private final int[] local;
+        private final int[] mark;
+        private int markGeneration;
+
+        Bisector(RoadGraph graph, double[][] locations) {
+            this.locations = locations;
+            int n = graph.getNodeCount();
+            arcOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.edgeStart(v), last = graph.edgeEnd(v); e < last; e++) {
+                    int w = graph.getTarget(e);
+                    if (w == v)
+                        continue;
+                    arcOffsets[v + 1]++;
+                    arcOffsets[w + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++)
+                arcOffsets[v + 1] += arcOffsets[v];
+            arcTarget = new int[arcOffsets[n]];
+            int[] fill = Arrays.copyOf(arcOffsets, n);
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.edgeStart(v), last = graph.edgeEnd(v); e < last; e++) {
+                    int w = graph.getTarget(e);
+                    if (w == v)
+                        continue;
+                    arcTarget[fill[v]++] = w;
+                    arcTarget[fill[w]++] = v;
+                }
+            }
+            local = new int[n];
+            mark = new int[n];
+        }
+
+        /**
+         * @return pieces of at most maxSize nodes that together hold nodes
+         */
+        List<int[]> splitUntil(int[] nodes, int maxSize) {
+            List<int[]> done = new ArrayList<>();
+            Deque<int[]> open = new ArrayDeque<>();
+            open.push(nodes);
+            while (!open.isEmpty()) {
+                int[] piece = open.pop();
+                if (piece.length <= maxSize) {
+                    done.add(piece);
+                    continue;
+                }
+                int[][] halves = bisect(piece);
+                open.push(halves[1]);
+                open.push(halves[0]);
+            }
+            return done;
+        }
+
+        /**
+         * @return the two sides of the smallest cut found over all directions
+         */
+        private int[][] bisect(int[] nodes) {
+            int size = nodes.length;
+            if (++markGeneration == 0) {
+                Arrays.fill(mark, 0);
+                markGeneration = 1;
+            }
+            for (int i = 0; i < size; i++) {
+                local[nodes[i]] = i;
+                mark[nodes[i]] = markGeneration;
+            }
+
+            // the piece as a local undirected graph with paired arcs,
+            // arc a and arc a ^ 1 run between the same nodes in opposite ways
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                int v = nodes[i];
+                for (int a = arcOffsets[v]; a < arcOffsets[v + 1]; a++) {
+                    if (mark[arcTarget[a]] == markGeneration && local[arcTarget[a]] > i) {
+                        offsets[i + 1]++;
+                        offsets[local[arcTarget[a]] + 1]++;
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++)
+                offsets[i + 1] += offsets[i];
+            int[] head = new int[offsets[size]];
+            int[] twin = new int[offsets[size]];
+            int[] fill = Arrays.copyOf(offsets, size);
+            for (int i = 0; i < size; i++) {
+                int v = nodes[i];
+                for (int a = arcOffsets[v]; a < arcOffsets[v + 1]; a++) {
+                    int j = mark[arcTarget[a]] == markGeneration ? local[arcTarget[a]] : -1;
+                    if (j <= i)
+                        continue;
+                    int forward = fill[i]++, backward = fill[j]++;
+                    head[forward] = j;
+                    head[backward] = i;
+                    twin[forward] = backward;
+                    twin[backward] = forward;
+                }
+            }
+
+            boolean[] best = null;
+            int bestCut = Integer.MAX_VALUE, bestBalance = -1;
+            Integer[] order = new Integer[size];
+            int tied = Math.max(1, (int) (size * BALANCE));
+            for (double[] direction : DIRECTIONS) {
+                for (int i = 0; i < size; i++)
+                    order[i] = i;
+                Arrays.sort(order, Comparator.comparingDouble(
+                        i -> locations[nodes[i]][0] * direction[0] + locations[nodes[i]][1] * direction[1]));
+                boolean[] side = new boolean[size];
+                int cut = minCut(offsets, head, twin, order, tied, side);
+                int inside = 0;
+                for (boolean s : side)
+                    inside += s ? 1 : 0;
+                int balance = Math.min(inside, size - inside);
+                if (cut < bestCut || cut == bestCut && balance > bestBalance) {
+                    best = side;
+                    bestCut = cut;
+                    bestBalance = balance;
+                }
+            }
+
+            int inside = 0;
+            for (boolean s : best)
+                inside += s ? 1 : 0;
+            int[][] halves = { new int[inside], new int[size - inside] };
+            int a = 0, b = 0;
+            for (int i = 0; i < size; i++) {
+                if (best[i])
+                    halves[0][a++] = nodes[i];
+                else
+                    halves[1][b++] = nodes[i];
+            }
+            return halves;
+        }
+
+        /**
+         * Unit capacity maximum flow from the first tied nodes of order to
+         * the last ones, by repeated breadth-first augmenting paths
+         *
+         * @param side set to the nodes still reachable from the sources
+         *             afterwards, the source side of a minimum cut
+         * @return the size of the cut
+         */
+        private static int minCut(int[] offsets, int[] head, int[] twin, Integer[] order, int tied, boolean[] side) {
+            int size = order.length;
+            int[] capacity = new int[head.length];
+            Arrays.fill(capacity, 1);
+            boolean[] isSource = new boolean[size], isSink = new boolean[size];
+            for (int i = 0; i < tied; i++) {
+                isSource[order[i]] = true;
+                isSink[order[size - 1 - i]] = true;
+            }
+
+            int[] parentArc = new int[size];
+            int[] queue = new int[size];
+            int flow = 0;
+            while (true) {
+                Arrays.fill(side, false);
+                int qHead = 0, qTail = 0, reachedSink = -1;
+                for (int i = 0; i < size; i++) {
+                    if (isSource[i]) {
+                        side[i] = true;
+                        parentArc[i] = -1;
+                        queue[qTail++] = i;
+                    }
+                }
+                while (qHead < qTail && reachedSink < 0) {
+                    int u = queue[qHead++];
+                    for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+                        int w = head[a];
+                        if (capacity[a] == 0 || side[w])
+                            continue;
+                        side[w] = true;
+                        parentArc[w] = a;
+                        if (isSink[w]) {
+                            reachedSink = w;
+                            break;
+                        }
+                        queue[qTail++] = w;
+                    }
+                }
+                if (reachedSink < 0)
+                    return flow;
+                for (int at = reachedSink; parentArc[at] >= 0; at = head[twin[parentArc[at]]]) {
+                    capacity[parentArc[at]]--;
+                    capacity[twin[parentArc[at]]]++;
+                }
+                flow++;
+            }
+        }
+    }
+}
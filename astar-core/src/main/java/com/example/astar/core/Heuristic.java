@@ -0,0 +1,17 @@
+package com.example.astar.core;
+
+/**
+ * Lower bound on the remaining cost from a node to the target, used by
+ * {@link AStar} to direct the search. An implementation must never
+ * overestimate the true shortest distance, otherwise A* can return a path that
+ * is not the shortest one.
+ */
+public interface Heuristic {
+
+    /**
+     * @param node   the node currently being expanded
+     * @param target the node the search is heading to
+     * @return admissible estimate of the cost from node to target
+     */
+    int estimate(int node, int target);
+}
@@ -0,0 +1,156 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+
+/**
+ * 4-ary min-heap of node ids ordered by an int key, with decrease-key.
+ * <p>
+ * Every node id can be in the heap at most once; its position is tracked in
+ * {@code pos} so a key can be lowered in place instead of pushing a duplicate
+ * entry. A 4-ary layout keeps the tree shallow and the children of a slot on
+ * the same cache line, which makes sift-down cheaper than in a binary heap.
+ */
+public class IndexedMinHeap {
+
+    private static final int ARITY = 4;
+
+    // node stored in each heap slot
+    private final int[] nodes;
+
+    // key of the node stored in each heap slot
+    private final int[] keys;
+
+    // heap slot of each node, or -1 if the node is not in the heap
+    private final int[] pos;
+
+    private int size;
+
+    // pushes and key decreases since the last clear
+    private int pushCount;
+
+    /**
+     * @param capacity number of distinct node ids (node ids are 0 to
+     *                 capacity - 1)
+     */
+    public IndexedMinHeap(int capacity) {
+        nodes = new int[capacity];
+        keys = new int[capacity];
+        pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param node a node id
+     * @return whether node is currently in the heap
+     */
+    public boolean contains(int node) {
+        return pos[node] >= 0;
+    }
+
+    /**
+     * Adds node with the given key, or lowers its key if it is already in the
+     * heap and the new key is smaller.
+     *
+     * @param node a node id
+     * @param key  priority of the node
+     */
+    public void push(int node, int key) {
+        int slot = pos[node];
+        if (slot < 0) {
+            slot = size++;
+        } else if (key >= keys[slot]) {
+            return;
+        }
+        pushCount++;
+        siftUp(slot, node, key);
+    }
+
+    /**
+     * @return key of the smallest entry, the heap must not be empty
+     */
+    public int peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * @return node of the smallest entry, the heap must not be empty
+     */
+    public int peek() {
+        return nodes[0];
+    }
+
+    /**
+     * Removes the smallest entry
+     *
+     * @return its node id
+     */
+    public int poll() {
+        int top = nodes[0];
+        pos[top] = -1;
+        size--;
+        if (size > 0)
+            siftDown(0, nodes[size], keys[size]);
+        return top;
+    }
+
+    /**
+     * Empties the heap in O(size)
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            pos[nodes[i]] = -1;
+        size = 0;
+        pushCount = 0;
+    }
+
+    /**
+     * @return number of pushes and key decreases since the last clear
+     */
+    public int getPushCount() {
+        return pushCount;
+    }
+
+    private void siftUp(int slot, int node, int key) {
+        while (slot > 0) {
+            int parent = (slot - 1) / ARITY;
+            if (keys[parent] <= key)
+                break;
+            place(slot, nodes[parent], keys[parent]);
+            slot = parent;
+        }
+        place(slot, node, key);
+    }
+
+    private void siftDown(int slot, int node, int key) {
+        while (true) {
+            int first = slot * ARITY + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[best])
+                    best = c;
+            }
+            if (keys[best] >= key)
+                break;
+            place(slot, nodes[best], keys[best]);
+            slot = best;
+        }
+        place(slot, node, key);
+    }
+
+    private void place(int slot, int node, int key) {
+        nodes[slot] = node;
+        keys[slot] = key;
+        pos[node] = slot;
+    }
+}
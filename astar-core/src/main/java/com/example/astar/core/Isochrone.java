@@ -0,0 +1,85 @@
+package com.example.astar.core;
+
+/**
+ * Nodes reachable within a cost budget, as found by {@link IsochroneSearch}.
+ * <p>
+ * Entry i is the i-th node settled, so the entries are ordered by distance,
+ * nearest first. Results are kept in flat int arrays sized to the number of
+ * nodes reached.
+ */
+public class Isochrone {
+
+    private final int budget;
+    private final int[] nodes;
+    private final int[] distances;
+
+    // source each node was reached from, null for single-source searches
+    private final int[] origins;
+
+    Isochrone(int budget, int[] nodes, int[] distances, int[] origins) {
+        this.budget = budget;
+        this.nodes = nodes;
+        this.distances = distances;
+        this.origins = origins;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return number of nodes within the budget, the sources included
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @param i entry index
+     * @return node of entry i
+     */
+    public int getNode(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * @param i entry index
+     * @return cost between the source and the node of entry i
+     */
+    public int getDistance(int i) {
+        return distances[i];
+    }
+
+    /**
+     * @param i entry index
+     * @return the source nearest to the node of entry i, for searches from
+     *         several sources
+     */
+    public int getOrigin(int i) {
+        if (origins == null)
+            throw new IllegalStateException("single-source isochrone");
+        return origins[i];
+    }
+
+    /**
+     * @return the reached nodes, nearest first (not a copy)
+     */
+    public int[] getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return distance of every entry (not a copy)
+     */
+    public int[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return nearest source of every entry (not a copy), or null for a
+     *         single-source search
+     */
+    public int[] getOrigins() {
+        return origins;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+
+/**
+ * Budget-bounded Dijkstra: finds every node within a given cost of a
+ * source, or every node that can get to a target within that cost.
+ * <p>
+ * The search settles nodes in order of distance and stops once the cheapest
+ * node left on the heap is over budget. Neighbours that would be over budget
+ * are never pushed. With the generation-stamped {@link SearchWorkspace}
+ * nothing is cleared between queries, so a query costs time proportional to
+ * the part of the graph inside the budget, however large the whole graph
+ * is. The forward and backward searches each keep one workspace per thread.
+ */
+public class IsochroneSearch {
+
+    private final RoadGraph graph;
+
+    // reverse graph for the many-to-one direction, transposed on first use
+    // unless one was given
+    private volatile RoadGraph reverse;
+    private final ThreadLocal<Scratch> forward;
+    private final ThreadLocal<Scratch> backward;
+
+    // null unless searches are being recorded
+    private RoutingMetrics metrics;
+
+    /**
+     * @param graph the road graph
+     */
+    public IsochroneSearch(RoadGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * @param graph   the road graph
+     * @param reverse the transposed road graph, shared with other searches,
+     *                or null to transpose on the first many-to-one query
+     */
+    public IsochroneSearch(RoadGraph graph, RoadGraph reverse) {
+        if (reverse != null && reverse.getNodeCount() != graph.getNodeCount())
+            throw new IllegalArgumentException("graph and reverse differ in size");
+        this.graph = graph;
+        this.reverse = reverse;
+        this.forward = ThreadLocal.withInitial(() -> new Scratch(graph.getNodeCount()));
+        this.backward = ThreadLocal.withInitial(() -> new Scratch(graph.getNodeCount()));
+    }
+
+    /**
+     * @param metrics where to record every search from now on, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * One-to-all: every node the source can get to within the budget
+     *
+     * @param source the start node
+     * @param budget largest cost included
+     * @return the reached nodes, nearest first
+     */
+    public Isochrone reachableFrom(int source, int budget) {
+        return search(graph, forward.get(), new int[] { source }, budget, false);
+    }
+
+    /**
+     * All-to-one: every node that can get to the target within the budget,
+     * with the cost of getting there
+     *
+     * @param target the destination node
+     * @param budget largest cost included
+     * @return the nodes that reach the target, nearest first
+     */
+    public Isochrone reachingTo(int target, int budget) {
+        return search(reverse(), backward.get(), new int[] { target }, budget, false);
+    }
+
+    /**
+     * One search from all sources at once: every node within the budget of
+     * at least one source, with the distance to the nearest of them
+     *
+     * @param sources the start nodes
+     * @param budget  largest cost included
+     * @return the reached nodes with their nearest source, nearest first
+     */
+    public Isochrone reachableFromAny(int[] sources, int budget) {
+        return search(graph, forward.get(), sources, budget, true);
+    }
+
+    /**
+     * A separate isochrone for every source, run one after the other in the
+     * calling thread's workspace
+     *
+     * @param sources the start nodes
+     * @param budget  largest cost included
+     * @return isochrone i belongs to sources[i]
+     */
+    public Isochrone[] reachableFromEach(int[] sources, int budget) {
+        Scratch scratch = forward.get();
+        Isochrone[] result = new Isochrone[sources.length];
+        for (int i = 0; i < sources.length; i++)
+            result[i] = search(graph, scratch, new int[] { sources[i] }, budget, false);
+        return result;
+    }
+
+    /**
+     * A separate reverse isochrone for every target
+     *
+     * @param targets the destination nodes
+     * @param budget  largest cost included
+     * @return isochrone i belongs to targets[i]
+     */
+    public Isochrone[] reachingEach(int[] targets, int budget) {
+        RoadGraph reverse = reverse();
+        Scratch scratch = backward.get();
+        Isochrone[] result = new Isochrone[targets.length];
+        for (int i = 0; i < targets.length; i++)
+            result[i] = search(reverse, scratch, new int[] { targets[i] }, budget, false);
+        return result;
+    }
+
+    private RoadGraph reverse() {
+        RoadGraph reverse = this.reverse;
+        if (reverse == null) {
+            synchronized (this) {
+                reverse = this.reverse;
+                if (reverse == null)
+                    this.reverse = reverse = graph.transpose();
+            }
+        }
+        return reverse;
+    }
+
+    private Isochrone search(RoadGraph g, Scratch scratch, int[] sources, int budget, boolean withOrigins) {
+        if (budget < 0)
+            throw new IllegalArgumentException("budget must not be negative");
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        SearchWorkspace ws = scratch.ws;
+        int[] origin = scratch.origin;
+        ws.reset();
+        IndexedMinHeap heap = ws.getHeap();
+        for (int source : sources) {
+            ws.setDistance(source, 0, -1);
+            heap.push(source, 0);
+        }
+
+        int[] nodes = scratch.nodes;
+        int count = 0;
+        while (!heap.isEmpty() && heap.peekKey() <= budget) {
+            int node = ws.settleNext();
+            if (count == nodes.length)
+                nodes = scratch.nodes = Arrays.copyOf(nodes, count * 2);
+            nodes[count++] = node;
+            if (withOrigins) {
+                // the predecessor was settled earlier in this query
+                int previous = ws.getPrevious(node);
+                origin[node] = previous < 0 ? node : origin[previous];
+            }
+
+            int cost = ws.getDistance(node);
+            for (int e = g.edgeStart(node), last = g.edgeEnd(node); e < last; e++) {
+                int next = g.getTarget(e);
+                int newCost = cost + g.getWeight(e);
+                if (newCost <= budget && newCost < ws.getDistance(next)) {
+                    ws.setDistance(next, newCost, node);
+                    heap.push(next, newCost);
+                }
+            }
+        }
+
+        int[] reached = Arrays.copyOf(nodes, count);
+        int[] distances = new int[count];
+        int[] origins = withOrigins ? new int[count] : null;
+        for (int i = 0; i < count; i++) {
+            distances[i] = ws.getDistance(reached[i]);
+            if (withOrigins)
+                origins[i] = origin[reached[i]];
+        }
+        if (metrics != null)
+            metrics.record("isochrone", began, ws);
+        return new Isochrone(budget, reached, distances, origins);
+    }
+
+    /**
+     * Per-thread search state
+     */
+    private static class Scratch {
+        final SearchWorkspace ws;
+
+        // nearest source of each settled node, only valid in the current query
+        final int[] origin;
+
+        // settled nodes in order, grown as needed and kept for the next query
+        int[] nodes = new int[256];
+
+        Scratch(int nodeCount) {
+            ws = new SearchWorkspace(nodeCount);
+            origin = new int[nodeCount];
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.astar.core;
+
+/**
+ * Landmark (ALT) heuristic based on the triangle inequality.
+ * <p>
+ * Uses the distance tables of a {@link Landmarks} set; for every node the
+ * estimate is the best lower bound any landmark gives on the distance to the
+ * target. Unlike the Euclidean bound this works in whatever unit the edge
+ * weights are in, so it stays tight when weights are travel times.
+ */
+public class LandmarkHeuristic implements Heuristic {
+
+    private final Landmarks landmarks;
+
+    /**
+     * @param landmarks precomputed landmark distance tables
+     */
+    public LandmarkHeuristic(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * @param graph     the road graph
+     * @param landmarks nodes to use as landmarks
+     */
+    public LandmarkHeuristic(RoadGraph graph, int... landmarks) {
+        this(new Landmarks(graph, landmarks));
+    }
+
+    @Override
+    public int estimate(int node, int target) {
+        return landmarks.lowerBound(node, target);
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Precomputed distances between a small set of landmark nodes and every node
+ * of the graph, for ALT (A*, Landmarks, Triangle inequality) routing.
+ * <p>
+ * For every landmark L both d(L, v) and d(v, L) are stored. They are kept in
+ * two flat int arrays laid out node by node, {@code table[v * k + i]} for
+ * landmark i, so evaluating the bound for one node reads one short run of
+ * memory. Landmarks can be given explicitly or picked with the "farthest" or
+ * "avoid" strategies.
+ */
+public class Landmarks {
+
+    private final int[] landmarks;
+    private final int nodeCount;
+
+    // fromLandmark[v * k + i] = d(landmark i, v)
+    private final int[] fromLandmark;
+
+    // toLandmark[v * k + i] = d(v, landmark i)
+    private final int[] toLandmark;
+
+    /**
+     * Computes the distance tables for the given landmarks
+     *
+     * @param graph     the road graph
+     * @param landmarks landmark nodes
+     */
+    public Landmarks(RoadGraph graph, int... landmarks) {
+        this(new Rows(graph), landmarks);
+    }
+
+    private Landmarks(Rows rows, int... landmarks) {
+        this.landmarks = landmarks.clone();
+        this.nodeCount = rows.nodeCount;
+        int k = landmarks.length;
+        fromLandmark = new int[nodeCount * k];
+        toLandmark = new int[nodeCount * k];
+        for (int i = 0; i < k; i++) {
+            store(rows.from(landmarks[i]), fromLandmark, i);
+            store(rows.to(landmarks[i]), toLandmark, i);
+        }
+    }
+
+    /**
+     * Farthest selection: every new landmark is the node farthest from all
+     * landmarks chosen so far. Nodes no landmark can reach count as farthest,
+     * so every connected piece of the graph ends up with a landmark.
+     *
+     * @param graph the road graph
+     * @param count number of landmarks
+     * @param seed  seed for picking the starting node
+     * @return the landmark tables, with no landmarks for an empty graph
+     */
+    public static Landmarks selectFarthest(RoadGraph graph, int count, long seed) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be at least 1");
+        int n = graph.getNodeCount();
+        Rows rows = new Rows(graph);
+        if (n == 0)
+            return new Landmarks(rows);
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, SearchWorkspace.INFINITY);
+
+        // the first landmark is the node farthest from a random start
+        int[] selected = new int[Math.min(count, n)];
+        selected[0] = firstLandmark(rows, seed);
+        for (int i = 0; i < selected.length; i++) {
+            if (i > 0)
+                selected[i] = farthest(nearest);
+            int[] dist = rows.from(selected[i]);
+            for (int v = 0; v < n; v++)
+                nearest[v] = Math.min(nearest[v], dist[v]);
+            // chosen landmarks must not be picked again
+            nearest[selected[i]] = -1;
+        }
+        return new Landmarks(rows, selected);
+    }
+
+    /**
+     * Avoid selection (Goldberg and Harrelson): grow a shortest path tree
+     * from a random root and weight every node by how badly the current
+     * landmarks bound its distance from the root. The next landmark is a leaf
+     * of the heaviest branch that does not already contain a landmark, which
+     * puts landmarks behind the regions that are covered worst. Each new
+     * landmark adds its own two distance rows to the bounds; the rows of the
+     * landmarks before it are kept, not searched again.
+     *
+     * @param graph the road graph
+     * @param count number of landmarks
+     * @param seed  seed for picking tree roots
+     * @return the landmark tables, with no landmarks for an empty graph
+     */
+    public static Landmarks selectAvoid(RoadGraph graph, int count, long seed) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be at least 1");
+        int n = graph.getNodeCount();
+        Random random = new Random(seed);
+        Rows rows = new Rows(graph);
+        if (n == 0)
+            return new Landmarks(rows);
+        Dijkstra dijkstra = rows.forward;
+        SearchWorkspace ws = dijkstra.getWorkspace();
+
+        List<Integer> selected = new ArrayList<>();
+        selected.add(firstLandmark(rows, seed));
+
+        long[] size = new long[n];
+        int[] pendingChildren = new int[n];
+        boolean[] holdsLandmark = new boolean[n];
+        int[] childOffsets = new int[n + 1];
+        int[] children = new int[n];
+        int[] queue = new int[n];
+        int[] bound = new int[n];
+
+        // roots whose heaviest branch ended on a landmark, small or
+        // path-like graphs can run out of uncovered leaves
+        int misses = 0;
+        while (selected.size() < Math.min(count, n)) {
+            int root = random.nextInt(n);
+            if (misses > 4 * count) {
+                if (!selected.contains(root))
+                    selected.add(root);
+                continue;
+            }
+            // rows of a new landmark are searched in the same workspace, so
+            // the bounds go first
+            rows.lowerBounds(selected, root, bound);
+            dijkstra.search(root, -1, ws);
+
+            Arrays.fill(size, 0);
+            Arrays.fill(pendingChildren, 0);
+            Arrays.fill(holdsLandmark, false);
+            Arrays.fill(childOffsets, 0);
+            for (int landmark : selected)
+                holdsLandmark[landmark] = true;
+            for (int v = 0; v < n; v++) {
+                int parent = ws.getPrevious(v);
+                if (parent >= 0) {
+                    pendingChildren[parent]++;
+                    childOffsets[parent + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++)
+                childOffsets[v + 1] += childOffsets[v];
+            int[] fill = Arrays.copyOf(childOffsets, n);
+            for (int v = 0; v < n; v++) {
+                int parent = ws.getPrevious(v);
+                if (parent >= 0)
+                    children[fill[parent]++] = v;
+            }
+
+            // add up subtree weights from the leaves towards the root
+            int head = 0, tail = 0;
+            for (int v = 0; v < n; v++) {
+                if (ws.isReached(v) && pendingChildren[v] == 0)
+                    queue[tail++] = v;
+            }
+            while (head < tail) {
+                int v = queue[head++];
+                if (holdsLandmark[v])
+                    size[v] = 0;
+                else
+                    size[v] += ws.getDistance(v) - bound[v];
+                int parent = ws.getPrevious(v);
+                if (parent < 0)
+                    continue;
+                if (holdsLandmark[v])
+                    holdsLandmark[parent] = true;
+                else
+                    size[parent] += size[v];
+                if (--pendingChildren[parent] == 0)
+                    queue[tail++] = parent;
+            }
+
+            // walk down the heaviest branch to a leaf
+            int leaf = root;
+            while (true) {
+                int best = -1;
+                for (int c = childOffsets[leaf]; c < childOffsets[leaf + 1]; c++) {
+                    int child = children[c];
+                    if (!holdsLandmark[child] && (best < 0 || size[child] > size[best]))
+                        best = child;
+                }
+                if (best < 0)
+                    break;
+                leaf = best;
+            }
+            if (holdsLandmark[leaf] || selected.contains(leaf)) {
+                misses++;
+                continue;
+            }
+            selected.add(leaf);
+        }
+        return new Landmarks(rows, selected.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return number of landmarks
+     */
+    public int getCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param i landmark index
+     * @return node id of landmark i
+     */
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    /**
+     * Best triangle inequality bound over all landmarks:
+     * {@code d(v, t) >= d(L, t) - d(L, v)} and {@code d(v, t) >= d(v, L) - d(t, L)}.
+     *
+     * @param node   a node id
+     * @param target the target node
+     * @return lower bound on the cost from node to target
+     */
+    public int lowerBound(int node, int target) {
+        int k = landmarks.length;
+        int nodeBase = node * k, targetBase = target * k;
+        int best = 0;
+        for (int i = 0; i < k; i++) {
+            int fromToTarget = fromLandmark[targetBase + i];
+            int fromToNode = fromLandmark[nodeBase + i];
+            if (fromToTarget != SearchWorkspace.INFINITY && fromToNode != SearchWorkspace.INFINITY)
+                best = Math.max(best, fromToTarget - fromToNode);
+
+            int nodeTo = toLandmark[nodeBase + i];
+            int targetTo = toLandmark[targetBase + i];
+            if (nodeTo != SearchWorkspace.INFINITY && targetTo != SearchWorkspace.INFINITY)
+                best = Math.max(best, nodeTo - targetTo);
+        }
+        return best;
+    }
+
+    private void store(int[] dist, int[] table, int landmark) {
+        int k = landmarks.length;
+        for (int v = 0; v < nodeCount; v++)
+            table[v * k + landmark] = dist[v];
+    }
+
+    /**
+     * @return the node farthest from a node picked with the seed
+     */
+    private static int firstLandmark(Rows rows, long seed) {
+        return farthest(rows.forward.distancesFrom(new Random(seed).nextInt(rows.nodeCount)));
+    }
+
+    /**
+     * @return index of the largest entry, treating INFINITY as largest
+     */
+    private static int farthest(int[] dist) {
+        int best = 0;
+        for (int v = 1; v < dist.length; v++) {
+            if (dist[v] > dist[best])
+                best = v;
+        }
+        return best;
+    }
+
+    /**
+     * Distance rows of the landmarks picked so far, each searched once while
+     * the landmarks are being selected
+     */
+    private static class Rows {
+        final int nodeCount;
+        final Dijkstra forward;
+        final Dijkstra backward;
+
+        // d(L, v) and d(v, L) for every node v, by landmark L
+        private final Map<Integer, int[]> from = new HashMap<>();
+        private final Map<Integer, int[]> to = new HashMap<>();
+
+        Rows(RoadGraph graph) {
+            nodeCount = graph.getNodeCount();
+            forward = new Dijkstra(graph);
+            backward = new Dijkstra(graph.transpose());
+        }
+
+        int[] from(int landmark) {
+            return from.computeIfAbsent(landmark, forward::distancesFrom);
+        }
+
+        int[] to(int landmark) {
+            return to.computeIfAbsent(landmark, backward::distancesFrom);
+        }
+
+        /**
+         * Same bound as {@link Landmarks#lowerBound} over the given
+         * landmarks, from one node to every target
+         *
+         * @param bounds receives the bound to every node
+         */
+        void lowerBounds(List<Integer> landmarks, int node, int[] bounds) {
+            Arrays.fill(bounds, 0);
+            for (int landmark : landmarks) {
+                int[] fromRow = from(landmark), toRow = to(landmark);
+                int fromToNode = fromRow[node], nodeTo = toRow[node];
+                for (int t = 0; t < nodeCount; t++) {
+                    if (fromRow[t] != SearchWorkspace.INFINITY && fromToNode != SearchWorkspace.INFINITY)
+                        bounds[t] = Math.max(bounds[t], fromRow[t] - fromToNode);
+                    if (nodeTo != SearchWorkspace.INFINITY && toRow[t] != SearchWorkspace.INFINITY)
+                        bounds[t] = Math.max(bounds[t], nodeTo - toRow[t]);
+                }
+            }
+        }
+    }
+}
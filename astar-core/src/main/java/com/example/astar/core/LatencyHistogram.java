@@ -0,0 +1,117 @@
+package com.example.astar.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, bucketed like an HDR
+ * histogram.
+ * <p>
+ * Values below 32 get a bucket each. Above that, every power of two is split
+ * into 32 equal buckets, so a bucket is never wider than about 3% of the
+ * values in it, whatever their magnitude. That is 1888 buckets for the whole
+ * long range. Recording is one atomic increment; percentiles are read by
+ * walking the counts, so they may be slightly out of date while other threads
+ * are recording.
+ */
+public class LatencyHistogram {
+
+    // buckets per power of two is 1 << SUB_BITS
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos a duration, negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @return largest recorded value, 0 if there is none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the recorded values, 0 if there is none
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.get() / count;
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return upper end of the bucket holding the value at the percentile,
+     *         at most the recorded maximum, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded value. Values recorded while this runs may be
+     * partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * @return largest value that falls into bucket i
+     */
+    static long upperBound(int i) {
+        if (i < SUB_COUNT)
+            return i;
+        int exponent = (i >>> SUB_BITS) + SUB_BITS - 1;
+        long low = (long) (SUB_COUNT + (i & (SUB_COUNT - 1))) << (exponent - SUB_BITS);
+        long width = 1L << (exponent - SUB_BITS);
+        return low + width - 1 < 0 ? Long.MAX_VALUE : low + width - 1;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.astar.core;
+
+import java.util.List;
+
+/**
+ * Distance matrix that stays current under live traffic.
+ * <p>
+ * Unlike {@link DistanceMatrix}, which is a one-off table, this keeps a full
+ * {@link ShortestPathTree} per source. After a traffic update every tree is
+ * repaired from the changed edges alone, and only the rows whose tree
+ * actually changed are re-read. Keeping the trees costs memory proportional
+ * to sources times nodes, so it is meant for a modest number of sources such
+ * as the stops of the current carpool plan.
+ */
+public class LiveDistanceMatrix {
+
+    private final int[] sources;
+    private final int[] targets;
+    private final ShortestPathTree[] trees;
+    private final int[] distances;
+    private final IndexedMinHeap heap;
+
+    // rows refreshed by the last update
+    private int lastRepairedRows;
+
+    /**
+     * @param graph   the current snapshot
+     * @param sources source nodes (rows)
+     * @param targets target nodes (columns)
+     */
+    public LiveDistanceMatrix(TrafficGraph graph, int[] sources, int[] targets) {
+        this.sources = sources.clone();
+        this.targets = targets.clone();
+        this.trees = new ShortestPathTree[sources.length];
+        this.distances = new int[sources.length * targets.length];
+        this.heap = new IndexedMinHeap(graph.getNodeCount());
+        for (int i = 0; i < sources.length; i++) {
+            trees[i] = new ShortestPathTree(graph, sources[i]);
+            refreshRow(i);
+        }
+    }
+
+    /**
+     * Repairs the matrix for a traffic update
+     *
+     * @param update result of LiveTraffic.applyUpdates
+     * @return number of rows whose distances or paths changed
+     */
+    public int update(LiveTraffic.Update update) {
+        lastRepairedRows = 0;
+        for (int i = 0; i < trees.length; i++) {
+            if (trees[i].repair(update.getSnapshot(), update.getChangedEdges(), heap)) {
+                refreshRow(i);
+                lastRepairedRows++;
+            }
+        }
+        return lastRepairedRows;
+    }
+
+    /**
+     * @return number of rows whose tree changed in the last update
+     */
+    public int getLastRepairedRows() {
+        return lastRepairedRows;
+    }
+
+    public int getSourceCount() {
+        return sources.length;
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return cost from source i to target j, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int i, int j) {
+        return distances[i * targets.length + j];
+    }
+
+    /**
+     * @return the flat row-major distance table (not a copy)
+     */
+    public int[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return list of nodes from source i to target j, empty if unreachable
+     */
+    public List<Integer> getPath(int i, int j) {
+        return trees[i].getPath(targets[j]);
+    }
+
+    private void refreshRow(int i) {
+        for (int j = 0; j < targets.length; j++)
+            distances[i * targets.length + j] = trees[i].getDistance(targets[j]);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes {@link TrafficGraph} snapshots as traffic updates arrive.
+ * <p>
+ * Readers call {@link #snapshot()} once per query (or per batch) and route
+ * on that snapshot; an update builds a new snapshot next to it and swaps it
+ * in atomically, so in-flight queries never see a half-applied batch.
+ * Updates are applied one batch at a time.
+ */
+public class LiveTraffic {
+
+    private final AtomicReference<TrafficGraph> current;
+
+    /**
+     * @param base the road graph with its normal weights
+     */
+    public LiveTraffic(RoadGraph base) {
+        current = new AtomicReference<>(new TrafficGraph(base));
+    }
+
+    /**
+     * @return the latest published snapshot
+     */
+    public TrafficGraph snapshot() {
+        return current.get();
+    }
+
+    /**
+     * @return version of the latest snapshot, e.g. for a RouteCache
+     */
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * Result of one applied batch
+     */
+    public static class Update {
+        private final TrafficGraph snapshot;
+        private final int[] changedEdges;
+
+        Update(TrafficGraph snapshot, int[] changedEdges) {
+            this.snapshot = snapshot;
+            this.changedEdges = changedEdges;
+        }
+
+        /**
+         * @return the snapshot published by the batch
+         */
+        public TrafficGraph getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return indices of the edges whose weight actually changed
+         */
+        public int[] getChangedEdges() {
+            return changedEdges;
+        }
+    }
+
+    /**
+     * Applies a batch of road weight changes. Roads are given by their end
+     * nodes; with bothDirections the reverse edge gets the same weight, which
+     * matches roads added through Graph.addEdge. Roads that do not exist are
+     * ignored.
+     *
+     * @param from           first node of each road
+     * @param to             second node of each road
+     * @param weights        new weight of each road
+     * @param bothDirections whether to update to -&gt; from as well
+     * @return the new snapshot and the edges that changed
+     */
+    public synchronized Update applyUpdates(int[] from, int[] to, int[] weights, boolean bothDirections) {
+        if (from.length != to.length || from.length != weights.length)
+            throw new IllegalArgumentException("from, to and weights must have the same length");
+        TrafficGraph graph = current.get();
+        int[] edges = new int[bothDirections ? from.length * 2 : from.length];
+        int[] newWeights = new int[edges.length];
+        int count = 0;
+        for (int i = 0; i < from.length; i++) {
+            count = collect(graph, graph.findEdge(from[i], to[i]), weights[i], edges, newWeights, count);
+            if (bothDirections)
+                count = collect(graph, graph.findEdge(to[i], from[i]), weights[i], edges, newWeights, count);
+        }
+        edges = Arrays.copyOf(edges, count);
+        TrafficGraph next = graph.withWeights(edges, Arrays.copyOf(newWeights, count));
+        current.set(next);
+        return new Update(next, edges);
+    }
+
+    private static int collect(TrafficGraph graph, int edge, int weight, int[] edges, int[] weights, int count) {
+        if (edge < 0 || graph.getWeight(edge) == weight)
+            return count;
+        edges[count] = edge;
+        weights[count] = weight;
+        return count + 1;
+    }
+}
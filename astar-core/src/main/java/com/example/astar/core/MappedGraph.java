@@ -0,0 +1,127 @@
+package com.example.astar.core;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Road graph served directly from a memory-mapped {@link GraphFile}.
+ * <p>
+ * The CSR arrays are read through buffer views over the mapping, so opening
+ * even a very large graph costs a few system calls and the operating system
+ * pages data in as queries touch it. The mapping stays valid after the file
+ * channel is closed and is released when this object is garbage collected.
+ * <p>
+ * One mapping can hold at most 2 GB, so every section is a sequence of
+ * equally sized pieces and value i lives in piece i / perPiece. For graphs
+ * below that size each section is a single piece.
+ */
+public class MappedGraph implements RoadGraph {
+
+    // x0, y0, x1, y1, ... or null if the file has no coordinates
+    private final DoubleBuffer[] coordinates;
+    private final IntBuffer[] offsets;
+    private final IntBuffer[] targets;
+    private final IntBuffer[] weights;
+
+    // ints and doubles per piece, as a shift and a mask
+    private final int intShift, intMask;
+    private final int doubleShift, doubleMask;
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    /**
+     * @param chunkBytes size of every piece but the last, a power of two
+     */
+    MappedGraph(int chunkBytes, ByteBuffer[] coordinates, ByteBuffer[] offsets, ByteBuffer[] targets,
+            ByteBuffer[] weights) {
+        intShift = Integer.numberOfTrailingZeros(chunkBytes / 4);
+        intMask = chunkBytes / 4 - 1;
+        doubleShift = Integer.numberOfTrailingZeros(chunkBytes / 8);
+        doubleMask = chunkBytes / 8 - 1;
+        if (coordinates != null) {
+            this.coordinates = new DoubleBuffer[coordinates.length];
+            for (int i = 0; i < coordinates.length; i++)
+                this.coordinates[i] = coordinates[i].asDoubleBuffer();
+        } else {
+            this.coordinates = null;
+        }
+        this.offsets = ints(offsets);
+        this.targets = ints(targets);
+        this.weights = ints(weights);
+        nodeCount = (int) (count(this.offsets) - 1);
+        edgeCount = (int) count(this.targets);
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public int edgeStart(int node) {
+        return offsets[node >>> intShift].get(node & intMask);
+    }
+
+    @Override
+    public int edgeEnd(int node) {
+        return offsets[(node + 1) >>> intShift].get((node + 1) & intMask);
+    }
+
+    @Override
+    public int getTarget(int edge) {
+        return targets[edge >>> intShift].get(edge & intMask);
+    }
+
+    @Override
+    public int getWeight(int edge) {
+        return weights[edge >>> intShift].get(edge & intMask);
+    }
+
+    /**
+     * @return whether the file stored node coordinates
+     */
+    public boolean hasCoordinates() {
+        return coordinates != null;
+    }
+
+    /**
+     * @param node a node id
+     * @return x coordinate of node
+     */
+    public double getX(int node) {
+        return coordinate(2L * node);
+    }
+
+    /**
+     * @param node a node id
+     * @return y coordinate of node
+     */
+    public double getY(int node) {
+        return coordinate(2L * node + 1);
+    }
+
+    private double coordinate(long i) {
+        return coordinates[(int) (i >>> doubleShift)].get((int) (i & doubleMask));
+    }
+
+    private static IntBuffer[] ints(ByteBuffer[] chunks) {
+        IntBuffer[] ints = new IntBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++)
+            ints[i] = chunks[i].asIntBuffer();
+        return ints;
+    }
+
+    private static long count(IntBuffer[] chunks) {
+        long count = 0;
+        for (IntBuffer chunk : chunks)
+            count += chunk.limit();
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+
+/**
+ * Maps sparse external node ids (for example OSM ids) to dense ids 0, 1, 2,
+ * ... in order of first appearance.
+ * <p>
+ * Open-addressing hash table on plain long and int arrays with linear
+ * probing, so millions of ids can be mapped without a boxed key per entry.
+ */
+public class NodeIdMap {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private long[] externalIds;
+    private int size;
+
+    public NodeIdMap() {
+        this(1024);
+    }
+
+    /**
+     * @param expected number of ids expected, the table grows past it as needed
+     */
+    public NodeIdMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        externalIds = new long[Math.max(16, expected)];
+    }
+
+    /**
+     * @return number of distinct ids mapped so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param external an external id
+     * @return its dense id, assigning the next free one if it is new
+     */
+    public int getOrAdd(long external) {
+        int slot = find(external);
+        if (values[slot] != EMPTY)
+            return values[slot];
+
+        if (size == externalIds.length)
+            externalIds = Arrays.copyOf(externalIds, size * 2);
+        externalIds[size] = external;
+        keys[slot] = external;
+        values[slot] = size;
+        if (++size * 2 > keys.length)
+            grow();
+        return size - 1;
+    }
+
+    /**
+     * @param external an external id
+     * @return its dense id, or -1 if it was never mapped
+     */
+    public int get(long external) {
+        return values[find(external)];
+    }
+
+    /**
+     * @param dense a dense id
+     * @return the external id it was assigned for
+     */
+    public long getExternalId(int dense) {
+        return externalIds[dense];
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
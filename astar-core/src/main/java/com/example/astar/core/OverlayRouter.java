@@ -0,0 +1,347 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Multi-level overlay routing on a {@link GraphPartition}, in the style of
+ * customizable route planning.
+ * <p>
+ * Customisation stores, for every cell on every level, the shortest distance
+ * between each pair of its boundary nodes using only roads inside the cell:
+ * a clique. Level 1 cliques are found by searches over the roads of the cell,
+ * level L cliques by searches over the level L - 1 cliques and roads of the
+ * cell, so each level builds on the one below. A query runs Dijkstra from
+ * the start, but any node whose level L cell holds neither start nor end
+ * skips across that cell through its clique. Only the cells around the start
+ * and the end are searched road by road.
+ * <p>
+ * The partition only depends on the topology, so after a traffic update
+ * {@link #withWeights} redoes the cliques of the cells that contain a
+ * changed road and shares all others with this router. A router never
+ * changes once built and is safe to share between threads.
+ */
+public class OverlayRouter implements Router {
+
+    private final GraphPartition partition;
+    private final RoadGraph graph;
+
+    // cliques[L - 1][c] is the b by b row-major distance table between the
+    // boundary nodes of cell c on level L
+    private final int[][][] cliques;
+
+    // number of cell cliques computed when this router was built
+    private final int customizedCells;
+
+    // shared with the routers made from this one by withWeights
+    private final ThreadLocal<Scratch> scratch;
+
+    // null unless searches are being recorded
+    private volatile RoutingMetrics metrics;
+
+    /**
+     * Computes the cliques of the dirty cells; cliques holds the clean ones
+     */
+    private OverlayRouter(GraphPartition partition, RoadGraph graph, int[][][] cliques, boolean[][] dirty,
+            ThreadLocal<Scratch> scratch, RoutingMetrics metrics) {
+        this.partition = partition;
+        this.graph = graph;
+        this.cliques = cliques;
+        this.scratch = scratch;
+        this.metrics = metrics;
+        this.customizedCells = customize(dirty);
+    }
+
+    /**
+     * Computes the cliques of every cell
+     *
+     * @param partition partition of the graph's topology
+     * @param graph     the road graph with its current weights
+     * @return a router for the graph
+     */
+    public static OverlayRouter customize(GraphPartition partition, RoadGraph graph) {
+        checkTopology(partition, graph);
+        int levels = partition.getLevelCount();
+        int[][][] cliques = new int[levels][][];
+        boolean[][] dirty = new boolean[levels][];
+        for (int level = 1; level <= levels; level++) {
+            cliques[level - 1] = new int[partition.getCellCount(level)][];
+            dirty[level - 1] = new boolean[partition.getCellCount(level)];
+            Arrays.fill(dirty[level - 1], true);
+        }
+        int n = graph.getNodeCount();
+        return new OverlayRouter(partition, graph, cliques, dirty, ThreadLocal.withInitial(() -> new Scratch(n)), null);
+    }
+
+    /**
+     * Re-customises for new weights on the same topology. Only cells that
+     * contain a changed road, and the cells above them, are searched again.
+     *
+     * @param snapshot     the graph with the new weights
+     * @param changedEdges edges whose weight differs from this router's graph
+     * @return a router for the snapshot
+     */
+    public OverlayRouter withWeights(RoadGraph snapshot, int[] changedEdges) {
+        checkTopology(partition, snapshot);
+        int levels = partition.getLevelCount();
+        int[][][] next = new int[levels][][];
+        boolean[][] dirty = new boolean[levels][];
+        for (int level = 1; level <= levels; level++) {
+            next[level - 1] = cliques[level - 1].clone();
+            dirty[level - 1] = new boolean[partition.getCellCount(level)];
+        }
+        for (int e : changedEdges) {
+            int from = partition.getSource(e), to = snapshot.getTarget(e);
+            // a road only shapes the cliques of cells it lies inside; cells
+            // nest, so once it is inside it stays inside on the levels above
+            for (int level = 1; level <= levels; level++) {
+                int cell = partition.getCell(level, from);
+                if (cell == partition.getCell(level, to))
+                    dirty[level - 1][cell] = true;
+            }
+        }
+        return new OverlayRouter(partition, snapshot, next, dirty, scratch, metrics);
+    }
+
+    /**
+     * Routers made from this one by {@link #withWeights} afterwards start
+     * out with the same metrics.
+     *
+     * @param metrics where to record every search from now on, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public GraphPartition getPartition() {
+        return partition;
+    }
+
+    /**
+     * @return number of cell cliques computed when this router was built,
+     *         all cells for {@link #customize}, the affected ones for
+     *         {@link #withWeights}
+     */
+    public int getCustomizedCellCount() {
+        return customizedCells;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return list of nodes representing the shortest path, or an empty list
+     *         if end cannot be reached
+     */
+    @Override
+    public List<Integer> findPath(int start, int end) {
+        Scratch s = scratch.get();
+        search(start, end, s);
+        if (!s.ws.isReached(end))
+            return Collections.emptyList();
+
+        int[][] steps = steps(s, end);
+        List<Integer> path = new ArrayList<>();
+        path.add(start);
+        appendSteps(steps, path, s);
+        return path;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return cost of the shortest path, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int start, int end) {
+        Scratch s = scratch.get();
+        search(start, end, s);
+        return s.ws.getDistance(end);
+    }
+
+    /**
+     * @return number of nodes settled by the calling thread's last query
+     */
+    public int getSettledCount() {
+        return scratch.get().ws.getSettledCount();
+    }
+
+    private void search(int start, int end, Scratch s) {
+        RoutingMetrics metrics = this.metrics;
+        long began = metrics == null ? 0 : System.nanoTime();
+        SearchWorkspace ws = s.ws;
+        ws.reset();
+        ws.setDistance(start, 0, -1);
+        ws.getHeap().push(start, 0);
+        while (!ws.getHeap().isEmpty()) {
+            int node = ws.settleNext();
+            if (node == end)
+                break;
+            relax(node, queryLevel(node, start, end), 0, -1, s);
+        }
+        if (metrics != null)
+            metrics.record("overlay", began, ws);
+    }
+
+    /**
+     * @return highest level on which node's cell holds neither start nor
+     *         end, 0 if there is none
+     */
+    private int queryLevel(int node, int start, int end) {
+        for (int level = partition.getLevelCount(); level > 0; level--) {
+            int cell = partition.getCell(level, node);
+            if (cell != partition.getCell(level, start) && cell != partition.getCell(level, end))
+                return level;
+        }
+        return 0;
+    }
+
+    /**
+     * Relaxes the arcs of node in the level graph. Level 0 is the road graph;
+     * on level L the arcs are the clique of node's level L cell plus the
+     * roads leaving that cell. With a restrict level, only arcs into the
+     * given cell of that level are followed.
+     */
+    private void relax(int node, int level, int restrictLevel, int restrictCell, Scratch s) {
+        SearchWorkspace ws = s.ws;
+        int cost = ws.getDistance(node);
+        int cell = level > 0 ? partition.getCell(level, node) : -1;
+        if (level > 0) {
+            // nodes reached on a level are always boundary nodes of it
+            int i = partition.getBoundaryIndex(level, node);
+            int b = partition.getBoundarySize(level, cell);
+            int[] clique = cliques[level - 1][cell];
+            for (int j = 0, row = i * b; j < b; j++) {
+                int d = clique[row + j];
+                if (j != i && d != SearchWorkspace.INFINITY)
+                    update(s, node, partition.getBoundaryNode(level, cell, j), cost + d, level);
+            }
+        }
+        for (int e = graph.edgeStart(node), last = graph.edgeEnd(node); e < last; e++) {
+            int next = graph.getTarget(e);
+            if (level > 0 && partition.getCell(level, next) == cell)
+                continue;
+            if (restrictLevel > 0 && partition.getCell(restrictLevel, next) != restrictCell)
+                continue;
+            update(s, node, next, cost + graph.getWeight(e), 0);
+        }
+    }
+
+    private static void update(Scratch s, int from, int to, int cost, int level) {
+        if (cost < s.ws.getDistance(to)) {
+            s.ws.setDistance(to, cost, from);
+            s.arcLevel[to] = level;
+            s.ws.getHeap().push(to, cost);
+        }
+    }
+
+    /**
+     * Computes the cliques of the dirty cells, lowest level first
+     *
+     * @param dirty dirty[L - 1][c] is set for every cell c of level L to redo
+     * @return number of cliques computed
+     */
+    private int customize(boolean[][] dirty) {
+        Scratch s = scratch.get();
+        int count = 0;
+        for (int level = 1; level <= partition.getLevelCount(); level++) {
+            for (int cell = 0; cell < partition.getCellCount(level); cell++) {
+                if (!dirty[level - 1][cell])
+                    continue;
+                cliques[level - 1][cell] = clique(level, cell, s);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One search per boundary node over the level below, inside the cell
+     */
+    private int[] clique(int level, int cell, Scratch s) {
+        int b = partition.getBoundarySize(level, cell);
+        int[] clique = new int[b * b];
+        SearchWorkspace ws = s.ws;
+        for (int i = 0; i < b; i++) {
+            ws.reset();
+            int source = partition.getBoundaryNode(level, cell, i);
+            ws.setDistance(source, 0, -1);
+            ws.getHeap().push(source, 0);
+            int remaining = b;
+            while (!ws.getHeap().isEmpty()) {
+                int node = ws.settleNext();
+                if (partition.getBoundaryIndex(level, node) >= 0 && --remaining == 0)
+                    break;
+                relax(node, level - 1, level, cell, s);
+            }
+            for (int j = 0; j < b; j++)
+                clique[i * b + j] = ws.getDistance(partition.getBoundaryNode(level, cell, j));
+        }
+        return clique;
+    }
+
+    /**
+     * @return the nodes from the search source to end, source excluded, and
+     *         the level of the arc that reached each of them
+     */
+    private static int[][] steps(Scratch s, int end) {
+        int count = 0;
+        for (int at = end; s.ws.getPrevious(at) != -1; at = s.ws.getPrevious(at))
+            count++;
+        int[] nodes = new int[count], levels = new int[count];
+        int at = end;
+        for (int i = count - 1; i >= 0; i--) {
+            nodes[i] = at;
+            levels[i] = s.arcLevel[at];
+            at = s.ws.getPrevious(at);
+        }
+        return new int[][] { nodes, levels };
+    }
+
+    /**
+     * Appends the road nodes of the steps, replacing every clique arc by the
+     * roads it stands for
+     */
+    private void appendSteps(int[][] steps, List<Integer> path, Scratch s) {
+        int[] nodes = steps[0], levels = steps[1];
+        for (int i = 0; i < nodes.length; i++) {
+            if (levels[i] == 0) {
+                path.add(nodes[i]);
+                continue;
+            }
+            int from = path.get(path.size() - 1), to = nodes[i], level = levels[i];
+            int cell = partition.getCell(level, to);
+            SearchWorkspace ws = s.ws;
+            ws.reset();
+            ws.setDistance(from, 0, -1);
+            ws.getHeap().push(from, 0);
+            while (!ws.getHeap().isEmpty()) {
+                int node = ws.settleNext();
+                if (node == to)
+                    break;
+                relax(node, level - 1, level, cell, s);
+            }
+            // the clique arc came from this very search, so to is reached
+            appendSteps(steps(s, to), path, s);
+        }
+    }
+
+    private static void checkTopology(GraphPartition partition, RoadGraph graph) {
+        if (graph.getNodeCount() != partition.getNodeCount() || graph.getEdgeCount() != partition.getEdgeCount())
+            throw new IllegalArgumentException("graph does not match the partition");
+    }
+
+    /**
+     * Per-thread search state
+     */
+    private static class Scratch {
+        final SearchWorkspace ws;
+
+        // level of the arc that reached each node in the current search,
+        // 0 for a road
+        final int[] arcLevel;
+
+        Scratch(int nodeCount) {
+            ws = new SearchWorkspace(nodeCount);
+            arcLevel = new int[nodeCount];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.astar.core;
+
+/**
+ * Work done by one shortest path search: how many nodes it settled, how many
+ * tentative distances it set or lowered (improved labels), how often it
+ * touched the heap, and how long it took.
+ */
+public class QueryStats {
+
+    private final String algorithm;
+    private final int settled;
+    private final int improvedLabels;
+    private final int heapPushes;
+    private final long nanos;
+
+    /**
+     * @param algorithm      name of the search that ran
+     * @param settled        nodes taken off the heap
+     * @param improvedLabels tentative distances set or lowered
+     * @param heapPushes     heap pushes and key decreases
+     * @param nanos          wall clock time of the search
+     */
+    public QueryStats(String algorithm, int settled, int improvedLabels, int heapPushes, long nanos) {
+        this.algorithm = algorithm;
+        this.settled = settled;
+        this.improvedLabels = improvedLabels;
+        this.heapPushes = heapPushes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Reads the counters a search left in its workspaces
+     *
+     * @param algorithm  name of the search that ran
+     * @param nanos      wall clock time of the search
+     * @param workspaces every workspace the search used
+     * @return the stats of that search
+     */
+    public static QueryStats of(String algorithm, long nanos, SearchWorkspace... workspaces) {
+        int settled = 0, improved = 0, pushes = 0;
+        for (SearchWorkspace ws : workspaces) {
+            settled += ws.getSettledCount();
+            improved += ws.getImprovedLabelCount();
+            pushes += ws.getHeap().getPushCount();
+        }
+        return new QueryStats(algorithm, settled, improved, pushes, nanos);
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getSettled() {
+        return settled;
+    }
+
+    public int getImprovedLabels() {
+        return improvedLabels;
+    }
+
+    public int getHeapPushes() {
+        return heapPushes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + ": " +  settled + " settled, " + improvedLabels + " improved, " + heapPushes + " pushes, "
+                + nanos / 1000 + " us";
+    }
+}
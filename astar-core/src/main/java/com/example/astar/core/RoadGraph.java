@@ -0,0 +1,86 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+
+/**
+ * Read-only view of a road graph in compressed-sparse-row form, which is all
+ * the search code needs.
+ * <p>
+ * The outgoing edges of node {@code v} are the edge indices
+ * {@code edgeStart(v) .. edgeEnd(v) - 1}. {@link CsrGraph} keeps the arrays
+ * on the heap, {@link MappedGraph} reads them straight from a memory-mapped
+ * graph file.
+ */
+public interface RoadGraph {
+
+    /**
+     * @return number of nodes, node ids run from 0 to getNodeCount() - 1
+     */
+    int getNodeCount();
+
+    /**
+     * @return number of directed edges (each road is stored once per direction)
+     */
+    int getEdgeCount();
+
+    /**
+     * @param node a node id
+     * @return index of the first edge leaving node
+     */
+    int edgeStart(int node);
+
+    /**
+     * @param node a node id
+     * @return one past the index of the last edge leaving node
+     */
+    int edgeEnd(int node);
+
+    /**
+     * @param edge an edge index
+     * @return destination node of the edge
+     */
+    int getTarget(int edge);
+
+    /**
+     * @param edge an edge index
+     * @return weight of the edge
+     */
+    int getWeight(int edge);
+
+    /**
+     * @param node a node id
+     * @return number of edges leaving node
+     */
+    default int getDegree(int node) {
+        return edgeEnd(node) - edgeStart(node);
+    }
+
+    /**
+     * Builds the reverse graph on the heap, where every edge u-&gt;v becomes
+     * v-&gt;u with the same weight. Searching it from a node gives distances
+     * <i>to</i> that node.
+     *
+     * @return the transposed graph
+     */
+    default CsrGraph transpose() {
+        int n = getNodeCount();
+        int m = getEdgeCount();
+        int[] reverseOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++)
+            reverseOffsets[getTarget(e) + 1]++;
+        for (int v = 0; v < n; v++)
+            reverseOffsets[v + 1] += reverseOffsets[v];
+
+        int[] fill = Arrays.copyOf(reverseOffsets, n);
+        int[] reverseTargets = new int[m];
+        int[] reverseWeights = new int[m];
+        for (int v = 0; v < n; v++) {
+            for (int e = edgeStart(v), last = edgeEnd(v); e < last; e++) {
+                int slot = fill[getTarget(e)]++;
+                reverseTargets[slot] = v;
+                reverseWeights[slot] = getWeight(e);
+            }
+        }
+        return new CsrGraph(reverseOffsets, reverseTargets, reverseWeights);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.astar.core;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of shortest paths in front of another {@link Router}.
+ * <p>
+ * Entries are keyed by (start, end) and tagged with the graph version they
+ * were computed on. Whenever the version reported by the graph changes (for
+ * example after {@link Graph#addEdge}) the whole cache is dropped, so a
+ * changed graph never serves an old route. Beyond that, entries expire after
+ * a fixed time to live, and the least recently used entry is evicted once
+ * the cache is full. Paths are stored as int arrays rather than lists of
+ * boxed Integers.
+ * <p>
+ * The cache is thread-safe and can be shared between threads.
+ */
+public class RouteCache implements Router {
+
+    private final Router delegate;
+    private final int capacity;
+    private final long ttlNanos;
+    private final LongSupplier graphVersion;
+
+    // nanosecond time source, System.nanoTime outside of tests
+    private final LongSupplier clock;
+    private final LinkedHashMap<Long, CachedRoute> routes;
+
+    // version of the graph the cached routes were computed on
+    private long cachedVersion;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * A cached path and when it was computed
+     */
+    private static class CachedRoute {
+        final int[] path;
+        final long createdAt;
+
+        CachedRoute(int[] path, long createdAt) {
+            this.path = path;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * @param delegate     router that computes routes on a miss
+     * @param capacity     maximum number of cached routes
+     * @param timeToLive   how long a route may be served after it was computed
+     * @param graphVersion current version of the graph, e.g. graph::getVersion
+     */
+    public RouteCache(Router delegate, int capacity, Duration timeToLive, LongSupplier graphVersion) {
+        this(delegate, capacity, timeToLive, graphVersion, System::nanoTime);
+    }
+
+    /**
+     * Same as the public constructor with a chosen time source, so tests can
+     * move time forward
+     */
+    RouteCache(Router delegate, int capacity, Duration timeToLive, LongSupplier graphVersion, LongSupplier clock) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.ttlNanos = timeToLive.toNanos();
+        this.graphVersion = graphVersion;
+        this.clock = clock;
+        this.cachedVersion = graphVersion.getAsLong();
+        this.routes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedRoute> eldest) {
+                if (size() <= RouteCache.this.capacity)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The delegate runs outside the lock, so concurrent misses do not wait for
+     * each other.
+     *
+     * @param start the start node
+     * @param end   the end node
+     * @return the cached path if there is a fresh one, otherwise the path from
+     *         the delegate router
+     */
+    @Override
+    public List<Integer> findPath(int start, int end) {
+        long key = ((long) start << 32) | (end & 0xFFFFFFFFL);
+        long version = graphVersion.getAsLong();
+        int[] cached = lookup(key, version);
+        if (cached != null)
+            return toList(cached);
+
+        List<Integer> path = delegate.findPath(start, end);
+        store(key, version, path);
+        return path;
+    }
+
+    /**
+     * Drops every cached route
+     */
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return routes dropped because the cache was full
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return routes dropped because they outlived the time to live
+     */
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return how many times the cache was cleared because the graph changed
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return fraction of lookups answered from the cache, 0 if there were none
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private synchronized int[] lookup(long key, long version) {
+        if (version != cachedVersion) {
+            invalidations++;
+            routes.clear();
+            cachedVersion = version;
+        }
+
+        CachedRoute cached = routes.get(key);
+        if (cached != null && clock.getAsLong() - cached.createdAt <= ttlNanos) {
+            hits++;
+            return cached.path;
+        }
+        if (cached != null) {
+            expirations++;
+            routes.remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void store(long key, long version, List<Integer> path) {
+        // the graph changed while the route was computed, it may be stale;
+        // ask the graph again rather than trusting the last lookup to have
+        // seen the change
+        if (version != graphVersion.getAsLong() || version != cachedVersion)
+            return;
+        routes.put(key, new CachedRoute(path.stream().mapToInt(Integer::intValue).toArray(), clock.getAsLong()));
+    }
+
+    private static List<Integer> toList(int[] path) {
+        List<Integer> list = new ArrayList<>(path.length);
+        for (int node : path)
+            list.add(node);
+        return list;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.astar.core;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for a search that took longer than the slow query
+ * threshold of its {@link RoutingMetrics}.
+ * <p>
+ * The event is committed after the search has finished, so its own duration
+ * is zero and the search time is in the latency field. Record it with
+ * {@code -XX:StartFlightRecording} or enable it by name,
+ * {@code com.example.astar.RouteQuery}.
+ */
+@Name("com.example.astar.RouteQuery")
+@Label("Route Query")
+@Category("Routing")
+@Description("Shortest path search slower than the slow query threshold")
+@StackTrace(false)
+public class RouteQueryEvent extends Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Settled Nodes")
+    int settled;
+
+    @Label("Improved Labels")
+    int improvedLabels;
+
+    @Label("Heap Pushes")
+    int heapPushes;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -0,0 +1,327 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * A multi-stop route that is edited one stop at a time.
+ * <p>
+ * The session keeps the distance and path between every pair of its stops.
+ * Adding a stop runs one forward search from it and one backward search
+ * towards it, both stopping once every other stop is settled, and fills in
+ * its row and column. The stop goes in at the cheapest position and the
+ * tour is then repaired by moving single stops while that lowers the cost,
+ * which only looks at the cached distances. Removing a stop splices its two
+ * legs into one whose path is already cached, so it needs no search at all.
+ * <p>
+ * The first and last stop are fixed. A session is not thread-safe; confine
+ * it to one thread. Sessions on the same graph can share their two searches,
+ * which keep their workspaces per thread; {@link RoutingEngine#newSession}
+ * does that. An edit whose search is cancelled by an interrupt throws the
+ * {@link java.util.concurrent.CancellationException} and leaves the session
+ * as it was before the edit.
+ */
+public class RouteSession {
+
+    // cost used for legs that cannot be driven
+    private static final long UNREACHABLE = Long.MAX_VALUE / 4;
+
+    private final Dijkstra forward;
+    private final Dijkstra backward;
+    private final boolean[] isTarget;
+
+    // node of each slot, -1 for a free slot
+    private int[] nodes = new int[8];
+    private int slotCount;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<Integer, Integer> slotOfStop = new HashMap<>();
+
+    // distance and path from slot i to slot j
+    private int[][] distances = new int[8][8];
+    private int[][][] paths = new int[8][8][];
+
+    // slots in visiting order, start first and end last
+    private final List<Integer> tour = new ArrayList<>();
+
+    private long searchCount;
+
+    /**
+     * Builds its own searches, which transposes the graph; prefer
+     * {@link #RouteSession(Dijkstra, Dijkstra, int, int)} for more than one
+     * session on a graph
+     *
+     * @param graph the road graph
+     * @param start first stop of the route
+     * @param end   last stop of the route
+     */
+    public RouteSession(RoadGraph graph, int start, int end) {
+        this(new Dijkstra(graph), new Dijkstra(graph.transpose()), start, end);
+    }
+
+    /**
+     * @param forward  search on the road graph
+     * @param backward search on the transposed road graph
+     * @param start    first stop of the route
+     * @param end      last stop of the route
+     */
+    public RouteSession(Dijkstra forward, Dijkstra backward, int start, int end) {
+        int n = forward.getGraph().getNodeCount();
+        if (backward.getGraph().getNodeCount() != n)
+            throw new IllegalArgumentException("forward and backward graphs differ in size");
+        this.forward = forward;
+        this.backward = backward;
+        this.isTarget = new boolean[n];
+        tour.add(addSlot(start));
+        tour.add(addSlot(end));
+    }
+
+    /**
+     * Adds a stop at its cheapest position and repairs the tour
+     *
+     * @param node the new stop
+     * @return false if the node already is a stop
+     * @throws java.util.concurrent.CancellationException if the thread is
+     *                                                    interrupted during
+     *                                                    the searches
+     */
+    public boolean addStop(int node) {
+        if (slotOfStop.containsKey(node) || node == startNode() || node == endNode())
+            return false;
+        int slot = addSlot(node);
+        slotOfStop.put(node, slot);
+
+        int best = 1;
+        long bestDelta = Long.MAX_VALUE;
+        for (int i = 1; i < tour.size(); i++) {
+            long delta = cost(tour.get(i - 1), slot) + cost(slot, tour.get(i)) - cost(tour.get(i - 1), tour.get(i));
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                best = i;
+            }
+        }
+        tour.add(best, slot);
+        repair();
+        return true;
+    }
+
+    /**
+     * Removes a stop and joins its neighbours in the tour directly
+     *
+     * @param node the stop to remove
+     * @return false if the node is not an intermediate stop
+     */
+    public boolean removeStop(int node) {
+        Integer slot = slotOfStop.remove(node);
+        if (slot == null)
+            return false;
+        tour.remove(slot);
+        nodes[slot] = -1;
+        freeSlots.push(slot);
+        repair();
+        return true;
+    }
+
+    /**
+     * @param node a node
+     * @return true if the node is an intermediate stop
+     */
+    public boolean containsStop(int node) {
+        return slotOfStop.containsKey(node);
+    }
+
+    /**
+     * @return all stops in visiting order, start and end included
+     */
+    public List<Integer> getStops() {
+        List<Integer> stops = new ArrayList<>(tour.size());
+        for (int slot : tour)
+            stops.add(nodes[slot]);
+        return stops;
+    }
+
+    /**
+     * @return node sequence of the route as far as it can be driven: the
+     *         whole route if {@link #isComplete()}, otherwise up to the last
+     *         stop reached before the first undrivable leg
+     */
+    public List<Integer> getRoute() {
+        List<Integer> route = new ArrayList<>();
+        route.add(startNode());
+        int legs = drivableLegs();
+        for (int i = 1; i <= legs; i++) {
+            int[] leg = paths[tour.get(i - 1)][tour.get(i)];
+            for (int k = 1; k < leg.length; k++)
+                route.add(leg[k]);
+        }
+        return route;
+    }
+
+    /**
+     * @return cost of the route returned by {@link #getRoute()}
+     */
+    public long getCost() {
+        long total = 0;
+        int legs = drivableLegs();
+        for (int i = 1; i <= legs; i++)
+            total += distances[tour.get(i - 1)][tour.get(i)];
+        return total;
+    }
+
+    /**
+     * @return true if every leg of the route can be driven
+     */
+    public boolean isComplete() {
+        return drivableLegs() == tour.size() - 1;
+    }
+
+    /**
+     * @param leg index of a leg, leg i goes from stop i to stop i + 1 of
+     *            {@link #getStops()}
+     * @return true if the leg can be driven
+     */
+    public boolean isReachable(int leg) {
+        if (leg < 0 || leg >= tour.size() - 1)
+            throw new IndexOutOfBoundsException("leg " + leg + " of " + (tour.size() - 1));
+        return distances[tour.get(leg)][tour.get(leg + 1)] != SearchWorkspace.INFINITY;
+    }
+
+    /**
+     * @return number of shortest path searches run so far
+     */
+    public long getSearchCount() {
+        return searchCount;
+    }
+
+    private int startNode() {
+        return nodes[tour.get(0)];
+    }
+
+    private int endNode() {
+        return nodes[tour.get(tour.size() - 1)];
+    }
+
+    /**
+     * @return number of legs from the start before the first undrivable one
+     */
+    private int drivableLegs() {
+        for (int i = 1; i < tour.size(); i++) {
+            if (distances[tour.get(i - 1)][tour.get(i)] == SearchWorkspace.INFINITY)
+                return i - 1;
+        }
+        return tour.size() - 1;
+    }
+
+    private long cost(int from, int to) {
+        int d = distances[from][to];
+        return d == SearchWorkspace.INFINITY ? UNREACHABLE : d;
+    }
+
+    /**
+     * Takes a slot for the node and searches its distances and paths to and
+     * from every other slot
+     */
+    private int addSlot(int node) {
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot == nodes.length)
+            grow();
+        nodes[slot] = node;
+
+        int targets = 0;
+        for (int s = 0; s < slotCount; s++) {
+            if (nodes[s] >= 0 && !isTarget[nodes[s]]) {
+                isTarget[nodes[s]] = true;
+                targets++;
+            }
+        }
+
+        try {
+            SearchWorkspace ws = forward.getWorkspace();
+            forward.searchTargets(node, isTarget, targets, ws);
+            searchCount++;
+            for (int s = 0; s < slotCount; s++) {
+                if (nodes[s] < 0)
+                    continue;
+                distances[slot][s] = ws.getDistance(nodes[s]);
+                paths[slot][s] = toArray(ws.extractPath(nodes[s]));
+            }
+
+            // on the reversed graph predecessors point towards node, so walking
+            // them from another stop gives the path to node in driving order
+            ws = backward.getWorkspace();
+            backward.searchTargets(node, isTarget, targets, ws);
+            searchCount++;
+            for (int s = 0; s < slotCount; s++) {
+                if (nodes[s] < 0)
+                    continue;
+                distances[s][slot] = ws.getDistance(nodes[s]);
+                paths[s][slot] = ws.isReached(nodes[s]) ? walkPredecessors(ws, nodes[s]) : new int[0];
+                isTarget[nodes[s]] = false;
+            }
+        } catch (RuntimeException e) {
+            // a cancelled search leaves the session as it was
+            for (int s = 0; s < slotCount; s++) {
+                if (nodes[s] >= 0)
+                    isTarget[nodes[s]] = false;
+            }
+            nodes[slot] = -1;
+            freeSlots.push(slot);
+            throw e;
+        }
+        return slot;
+    }
+
+    /**
+     * Moves single intermediate stops to cheaper positions until none helps
+     */
+    private void repair() {
+        boolean improved = true;
+        for (int pass = 0; improved && pass < tour.size(); pass++) {
+            improved = false;
+            for (int i = 1; i < tour.size() - 1; i++) {
+                int slot = tour.get(i);
+                int prev = tour.get(i - 1), next = tour.get(i + 1);
+                long removed = cost(prev, slot) + cost(slot, next) - cost(prev, next);
+                tour.remove(i);
+                int best = i;
+                long bestDelta = removed;
+                for (int j = 1; j < tour.size(); j++) {
+                    long delta = cost(tour.get(j - 1), slot) + cost(slot, tour.get(j)) - cost(tour.get(j - 1), tour.get(j));
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        best = j;
+                    }
+                }
+                tour.add(best, slot);
+                improved |= best != i;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        paths = Arrays.copyOf(paths, capacity);
+        for (int i = 0; i < capacity; i++) {
+            distances[i] = distances[i] == null ? new int[capacity] : Arrays.copyOf(distances[i], capacity);
+            paths[i] = paths[i] == null ? new int[capacity][] : Arrays.copyOf(paths[i], capacity);
+        }
+    }
+
+    private static int[] walkPredecessors(SearchWorkspace ws, int from) {
+        int length = 0;
+        for (int at = from; at != -1; at = ws.getPrevious(at))
+            length++;
+        int[] path = new int[length];
+        int i = 0;
+        for (int at = from; at != -1; at = ws.getPrevious(at))
+            path[i++] = at;
+        return path;
+    }
+
+    private static int[] toArray(List<Integer> path) {
+        int[] result = new int[path.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = path.get(i);
+        return result;
+    }
+}
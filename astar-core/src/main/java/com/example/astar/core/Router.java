@@ -0,0 +1,18 @@
+package com.example.astar.core;
+
+import java.util.List;
+
+/**
+ * Common interface for anything that can answer a point-to-point route query
+ * on the road graph.
+ */
+public interface Router {
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return list of nodes from start to end, or an empty list if end cannot be
+     *         reached
+     */
+    List<Integer> findPath(int start, int end);
+}
@@ -0,0 +1,221 @@
+package com.example.astar.core;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Entry point for routing queries on one road network, with no user
+ * interface attached.
+ * <p>
+ * Single trips go through A* with landmark bounds behind a route cache keyed
+ * on the graph version; trips with stops in between are ordered by the
+ * {@link TourOptimizer}. An engine made from a mutable {@link Graph} routes
+ * on a frozen snapshot of it and takes a new snapshot, with new landmarks,
+ * the first time it is queried after the graph changed. The engine is safe
+ * to share between threads. Searches are not measured until
+ * {@link #enableMetrics()} is called. A query whose thread is interrupted
+ * throws a {@link java.util.concurrent.CancellationException} and leaves the
+ * engine and its cache as they were.
+ */
+public class RoutingEngine {
+
+    // landmarks used for the A* lower bounds
+    private static final int LANDMARKS = 4;
+
+    // the graph snapshots are taken from, null for a fixed road graph
+    private final Graph source;
+    private final Router router;
+    private volatile Routing routing;
+    private volatile RoutingMetrics metrics;
+
+    /**
+     * Routes on a snapshot of a mutable graph. When the graph changes, the
+     * cache is dropped and the next query routes on a fresh snapshot.
+     *
+     * @param graph the road graph
+     */
+    public RoutingEngine(Graph graph) {
+        this(graph, snapshot(graph), graph::getVersion);
+    }
+
+    /**
+     * @param roads   the road graph
+     * @param version version of the road data, the route cache is cleared
+     *                when it changes
+     */
+    public RoutingEngine(RoadGraph roads, LongSupplier version) {
+        this(null, new Routing(roads, version.getAsLong()), version);
+    }
+
+    private RoutingEngine(Graph source, Routing routing, LongSupplier version) {
+        this.source = source;
+        this.routing = routing;
+        this.router = new RouteCache((start, end) -> current().aStar.findPath(start, end), 1000,
+                Duration.ofMinutes(5), version);
+    }
+
+    public RoadGraph getGraph() {
+        return current().roads;
+    }
+
+    /**
+     * Starts recording every search the engine runs. Cache hits run no search
+     * and are not counted.
+     *
+     * @return the metrics the searches are recorded into, the same object on
+     *         every call
+     */
+    public synchronized RoutingMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new RoutingMetrics();
+            routing.setMetrics(metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the metrics searches are recorded into, or null if recording
+     *         was never enabled
+     */
+    public RoutingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return list of nodes of the shortest path, empty if there is none
+     */
+    public List<Integer> findPath(int start, int end) {
+        return router.findPath(start, end);
+    }
+
+    /**
+     * @param start the start node
+     * @param end   the end node
+     * @return cost of the shortest path, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int start, int end) {
+        return current().aStar.getDistance(start, end);
+    }
+
+    /**
+     * Finds the route through all stops. The intermediate stops are put in
+     * the cheapest visiting order and the legs come from the same
+     * stop-to-stop searches used to pick that order.
+     *
+     * @param stops start node, intermediate stops in any order, end node
+     * @return node sequence of the whole route
+     */
+    public List<Integer> findRoute(List<Integer> stops) {
+        if (stops.size() == 2)
+            return router.findPath(stops.get(0), stops.get(1));
+        return current().tourOptimizer.findRoute(stops);
+    }
+
+    /**
+     * The session shares its searches with every other session of this
+     * engine and keeps routing on the graph as it is now.
+     *
+     * @param start first stop of the route
+     * @param end   last stop of the route
+     * @return a session for editing the stops in between one at a time
+     */
+    public RouteSession newSession(int start, int end) {
+        Routing current = current();
+        return new RouteSession(current.forward, current.backward, start, end);
+    }
+
+    /**
+     * @param node   a driver's location
+     * @param budget largest cost included
+     * @return every node the driver can get to within the budget
+     */
+    public Isochrone reachableFrom(int node, int budget) {
+        return current().isochrones.reachableFrom(node, budget);
+    }
+
+    /**
+     * @param node   a meeting point
+     * @param budget largest cost included
+     * @return every node from which the meeting point can be reached within
+     *         the budget
+     */
+    public Isochrone reachingTo(int node, int budget) {
+        return current().isochrones.reachingTo(node, budget);
+    }
+
+    /**
+     * @param stops start node, intermediate stops in any order, end node
+     * @return the same stops in the cheapest visiting order
+     */
+    public List<Integer> orderStops(List<Integer> stops) {
+        return current().tourOptimizer.orderStops(stops);
+    }
+
+    /**
+     * @return the routing state for the graph as it is now, rebuilt first if
+     *         the graph changed since the last snapshot
+     */
+    private Routing current() {
+        Routing current = routing;
+        if (source == null || current.version == source.getVersion())
+            return current;
+        synchronized (this) {
+            current = routing;
+            if (current.version != source.getVersion()) {
+                current = snapshot(source);
+                current.setMetrics(metrics);
+                routing = current;
+            }
+            return current;
+        }
+    }
+
+    private static Routing snapshot(Graph graph) {
+        // read the version first, so a change made while freezing shows up
+        // as a newer version and is picked up by the next query
+        long version = graph.getVersion();
+        return new Routing(graph.freeze(), version);
+    }
+
+    /**
+     * Searches built for one snapshot of the road graph
+     */
+    private static class Routing {
+        final RoadGraph roads;
+        final long version;
+        final AStar aStar;
+        final TourOptimizer tourOptimizer;
+        final IsochroneSearch isochrones;
+
+        // shared by every route session, the backward one on the
+        // transposed graph that the isochrones use too
+        final Dijkstra forward;
+        final Dijkstra backward;
+
+        Routing(RoadGraph roads, long version) {
+            this.roads = roads;
+            this.version = version;
+            // road weights are not proportional to on-screen length, so
+            // landmarks give much tighter bounds than the straight-line distance;
+            // an empty graph has nothing to pick them from
+            this.aStar = new AStar(roads, roads.getNodeCount() == 0 ? new ZeroHeuristic()
+                    : new LandmarkHeuristic(Landmarks.selectAvoid(roads, LANDMARKS, 42)));
+            this.tourOptimizer = new TourOptimizer(roads);
+            RoadGraph reverse = roads.transpose();
+            this.isochrones = new IsochroneSearch(roads, reverse);
+            this.forward = new Dijkstra(roads);
+            this.backward = new Dijkstra(reverse);
+        }
+
+        void setMetrics(RoutingMetrics metrics) {
+            aStar.setMetrics(metrics);
+            tourOptimizer.setMetrics(metrics);
+            isochrones.setMetrics(metrics);
+            forward.setMetrics(metrics);
+            backward.setMetrics(metrics);
+        }
+    }
+}
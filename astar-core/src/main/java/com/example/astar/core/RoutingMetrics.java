@@ -0,0 +1,247 @@
+package com.example.astar.core;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate counters and a latency histogram for the searches of one or
+ * more routers.
+ * <p>
+ * Routers record into a metrics object only after {@code setMetrics} has been
+ * called on them; until then a search pays for one null check. Recording is
+ * lock-free, with a {@link LongAdder} per counter so searching threads do not
+ * contend on one cache line. Searches slower than the slow query threshold
+ * are also committed as a {@link RouteQueryEvent} to Flight Recorder. Read
+ * the numbers with {@link #snapshot()}, or over JMX after {@link #register}.
+ */
+public class RoutingMetrics implements RoutingMetricsMXBean {
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder improvedLabels = new LongAdder();
+    private final LongAdder heapPushes = new LongAdder();
+    private final LongAdder slowQueries = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // searches at least this slow are reported to Flight Recorder
+    private volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * @param stats the stats of one finished search
+     */
+    public void record(QueryStats stats) {
+        queries.increment();
+        settled.add(stats.getSettled());
+        improvedLabels.add(stats.getImprovedLabels());
+        heapPushes.add(stats.getHeapPushes());
+        latency.record(stats.getNanos());
+        if (stats.getNanos() >= slowQueryNanos) {
+            slowQueries.increment();
+            RouteQueryEvent event = new RouteQueryEvent();
+            if (event.isEnabled()) {
+                event.algorithm = stats.getAlgorithm();
+                event.settled = stats.getSettled();
+                event.improvedLabels = stats.getImprovedLabels();
+                event.heapPushes = stats.getHeapPushes();
+                event.latency = stats.getNanos();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records a search that has just finished
+     *
+     * @param algorithm  name of the search
+     * @param began      System.nanoTime() when the search started
+     * @param workspaces every workspace the search used
+     */
+    public void record(String algorithm, long began, SearchWorkspace... workspaces) {
+        record(QueryStats.of(algorithm, System.nanoTime() - began, workspaces));
+    }
+
+    /**
+     * @return the current values of all counters
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * {@code com.example.astar:type=RoutingMetrics,name=<name>}
+     *
+     * @param name name that tells this metrics object apart from others
+     * @return the name it was registered under
+     * @throws JMException if the name is taken or invalid
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.example.astar:type=RoutingMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getSettledNodes() {
+        return settled.sum();
+    }
+
+    @Override
+    public long getImprovedLabels() {
+        return improvedLabels.sum();
+    }
+
+    @Override
+    public long getHeapPushes() {
+        return heapPushes.sum();
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return latency.getMean() / 1000;
+    }
+
+    @Override
+    public long getMedianLatencyMicros() {
+        return latency.getValueAtPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getP99LatencyMicros() {
+        return latency.getValueAtPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getP999LatencyMicros() {
+        return latency.getValueAtPercentile(99.9) / 1000;
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return latency.getMax() / 1000;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getSlowQueryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    @Override
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        if (slowQueryMillis < 0)
+            throw new IllegalArgumentException("threshold must not be negative");
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    @Override
+    public void reset() {
+        queries.reset();
+        settled.reset();
+        improvedLabels.reset();
+        heapPushes.reset();
+        slowQueries.reset();
+        latency.reset();
+    }
+
+    /**
+     * Counter values read at one point in time. Each counter is read on its
+     * own, so a snapshot taken while searches run may be off by the searches
+     * in flight.
+     */
+    public static class Snapshot {
+
+        private final long queryCount;
+        private final long settledNodes;
+        private final long improvedLabels;
+        private final long heapPushes;
+        private final long slowQueryCount;
+        private final double meanNanos;
+        private final long medianNanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+
+        private Snapshot(RoutingMetrics metrics) {
+            queryCount = metrics.queries.sum();
+            settledNodes = metrics.settled.sum();
+            improvedLabels = metrics.improvedLabels.sum();
+            heapPushes = metrics.heapPushes.sum();
+            slowQueryCount = metrics.slowQueries.sum();
+            meanNanos = metrics.latency.getMean();
+            medianNanos = metrics.latency.getValueAtPercentile(50);
+            p90Nanos = metrics.latency.getValueAtPercentile(90);
+            p99Nanos = metrics.latency.getValueAtPercentile(99);
+            p999Nanos = metrics.latency.getValueAtPercentile(99.9);
+            maxNanos = metrics.latency.getMax();
+        }
+
+        public long getQueryCount() {
+            return queryCount;
+        }
+
+        public long getSettledNodes() {
+            return settledNodes;
+        }
+
+        public long getImprovedLabels() {
+            return improvedLabels;
+        }
+
+        public long getHeapPushes() {
+            return heapPushes;
+        }
+
+        public long getSlowQueryCount() {
+            return slowQueryCount;
+        }
+
+        public double getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getMedianNanos() {
+            return medianNanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d queries, %.1f settled/query, p50 %d us, p99 %d us, max %d us, %d slow",
+                    queryCount, queryCount == 0 ? 0.0 : (double) settledNodes / queryCount, medianNanos / 1000,
+                    p99Nanos / 1000, maxNanos / 1000, slowQueryCount);
+        }
+    }
+}
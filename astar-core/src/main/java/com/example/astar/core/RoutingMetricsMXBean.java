@@ -0,0 +1,37 @@
+package com.example.astar.core;
+
+/**
+ * Management interface of {@link RoutingMetrics}, for JConsole, VisualVM and
+ * other JMX clients. Latencies are in microseconds.
+ */
+public interface RoutingMetricsMXBean {
+
+    long getQueryCount();
+
+    long getSettledNodes();
+
+    long getImprovedLabels();
+
+    long getHeapPushes();
+
+    long getSlowQueryCount();
+
+    double getMeanLatencyMicros();
+
+    long getMedianLatencyMicros();
+
+    long getP99LatencyMicros();
+
+    long getP999LatencyMicros();
+
+    long getMaxLatencyMicros();
+
+    long getSlowQueryMillis();
+
+    void setSlowQueryMillis(long slowQueryMillis);
+
+    /**
+     * Starts counting from zero again
+     */
+    void reset();
+}
@@ -0,0 +1,477 @@
+package com.example.astar.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Embedded HTTP service for routing queries on one immutable road graph,
+ * built on the JDK's own HTTP server. All endpoints take GET requests and
+ * answer with JSON:
+ * <ul>
+ * <li>{@code /route?from=1&to=9} shortest path between two nodes</li>
+ * <li>{@code /route?stops=1,5,7,9} route from the first to the last stop
+ * through the others in the cheapest order</li>
+ * <li>{@code /matrix?sources=1,2&targets=3,4} table of distances</li>
+ * <li>{@code /metrics} search counters, once metrics are set</li>
+ * </ul>
+ * Every request is handled on its own virtual thread. Searches borrow their
+ * workspace from a shared pool, like in {@link BatchRouter}, and at most one
+ * search per core runs at a time, so thousands of open requests need only a
+ * handful of workspaces. Point queries that arrive within the batch window
+ * are grouped by start node, and each group is answered by one one-to-many
+ * search that stops as soon as all of its targets are settled.
+ */
+public class RoutingServer implements AutoCloseable {
+
+    // limits on the size of one request
+    private static final int MAX_STOPS = 64;
+    private static final int MAX_MATRIX_CELLS = 250_000;
+
+    private final RoadGraph graph;
+    private final Dijkstra dijkstra;
+    private final TourOptimizer tourOptimizer;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // one permit for every search allowed to run at once
+    private final Semaphore searchPermits;
+    private final ConcurrentLinkedQueue<Scratch> scratches = new ConcurrentLinkedQueue<>();
+
+    // point queries waiting for the current batch window to close
+    private final Object batchLock = new Object();
+    private List<PointQuery> pending = new ArrayList<>();
+    private volatile long batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LongAdder pointQueries = new LongAdder();
+    private final LongAdder pointSearches = new LongAdder();
+    private volatile RoutingMetrics metrics;
+
+    /**
+     * @param graph the road graph, must not change while the server runs
+     * @param port  port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public RoutingServer(RoadGraph graph, int port) throws IOException {
+        this(graph, new InetSocketAddress(port), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param graph       the road graph, must not change while the server runs
+     * @param address     address to listen on
+     * @param parallelism largest number of searches running at once
+     * @throws IOException if the address cannot be bound
+     */
+    public RoutingServer(RoadGraph graph, InetSocketAddress address, int parallelism) throws IOException {
+        this.graph = graph;
+        this.dijkstra = new Dijkstra(graph);
+        this.tourOptimizer = new TourOptimizer(graph);
+        this.searchPermits = new Semaphore(Math.max(1, parallelism));
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, 1024);
+        server.setExecutor(executor);
+        server.createContext("/route", exchange -> handle(exchange, this::route));
+        server.createContext("/matrix", exchange -> handle(exchange, this::matrix));
+        server.createContext("/metrics", exchange -> handle(exchange, params -> metrics()));
+    }
+
+    /**
+     * Serves a graph file: {@code RoutingServer <graph file> [port]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: RoutingServer <graph file> [port]");
+            System.exit(2);
+        }
+        MappedGraph graph = GraphFile.map(Path.of(args[0]));
+        RoutingServer server = new RoutingServer(graph, args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+        server.setMetrics(new RoutingMetrics());
+        server.start();
+        System.out.println("Routing " + graph.getNodeCount() + " nodes on http://localhost:" + server.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getBatchWindowMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(batchWindowNanos);
+    }
+
+    /**
+     * @param batchWindowMicros how long a point query waits for others from
+     *                          the same start node, 0 to search for every
+     *                          query on its own
+     */
+    public void setBatchWindowMicros(long batchWindowMicros) {
+        if (batchWindowMicros < 0)
+            throw new IllegalArgumentException("window must not be negative");
+        this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+    }
+
+    /**
+     * @param metrics where to record the searches, also served on /metrics,
+     *                or null to stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+        dijkstra.setMetrics(metrics);
+        tourOptimizer.setMetrics(metrics);
+    }
+
+    /**
+     * @return number of point queries received
+     */
+    public long getPointQueryCount() {
+        return pointQueries.sum();
+    }
+
+    /**
+     * @return number of searches run for point queries, less than the number
+     *         of queries when batching pays off
+     */
+    public long getPointSearchCount() {
+        return pointSearches.sum();
+    }
+
+    /**
+     * Stops listening and abandons requests still waiting
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answer to the query parameters of one request
+     */
+    private interface Endpoint {
+        String answer(Map<String, String> params);
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                status = 405;
+                body = error("only GET is supported");
+            } else {
+                body = endpoint.answer(parseQuery(exchange.getRequestURI().getRawQuery()));
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (NoSuchElementException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (CancellationException e) {
+            // the search was interrupted because the server is closing
+            status = 503;
+            body = error("server is shutting down");
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            status = 500;
+            body = error(String.valueOf(cause));
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String route(Map<String, String> params) {
+        if (params.containsKey("stops")) {
+            int[] stops = nodes(params, "stops");
+            if (stops.length < 2 || stops.length > MAX_STOPS)
+                throw new IllegalArgumentException("need between 2 and " + MAX_STOPS + " stops");
+            List<Integer> stopList = new ArrayList<>(stops.length);
+            for (int stop : stops)
+                stopList.add(stop);
+            List<Integer> path = withSearch(scratch -> tourOptimizer.findRoute(stopList, scratch.ws));
+            StringBuilder json = new StringBuilder("{\"cost\":").append(pathCost(path)).append(",\"path\":");
+            appendArray(json, path);
+            return json.append('}').toString();
+        }
+
+        PointQuery query = submit(node(params, "from"), node(params, "to"));
+        query.done.join();
+        StringBuilder json = new StringBuilder("{\"from\":").append(query.from).append(",\"to\":").append(query.to);
+        json.append(",\"distance\":");
+        appendDistance(json, query.distance);
+        json.append(",\"path\":");
+        appendArray(json, query.path);
+        return json.append('}').toString();
+    }
+
+    private String matrix(Map<String, String> params) {
+        int[] sources = nodes(params, "sources");
+        int[] targets = nodes(params, "targets");
+        if ((long) sources.length * targets.length > MAX_MATRIX_CELLS)
+            throw new IllegalArgumentException("matrix larger than " + MAX_MATRIX_CELLS + " cells");
+        DistanceMatrix matrix = withSearch(
+                scratch -> DistanceMatrix.compute(dijkstra, sources, targets, false, scratch.ws));
+
+        StringBuilder json = new StringBuilder("{\"sources\":");
+        appendArray(json, sources);
+        json.append(",\"targets\":");
+        appendArray(json, targets);
+        json.append(",\"distances\":[");
+        for (int i = 0; i < sources.length; i++) {
+            json.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < targets.length; j++) {
+                if (j > 0)
+                    json.append(',');
+                appendDistance(json, matrix.getDistance(i, j));
+            }
+            json.append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    private String metrics() {
+        RoutingMetrics current = metrics;
+        if (current == null)
+            throw new NoSuchElementException("metrics are not enabled");
+        RoutingMetrics.Snapshot s = current.snapshot();
+        return "{\"queries\":" + s.getQueryCount() + ",\"settledNodes\":" + s.getSettledNodes()
+                + ",\"improvedLabels\":" + s.getImprovedLabels() + ",\"heapPushes\":" + s.getHeapPushes()
+                + ",\"slowQueries\":" + s.getSlowQueryCount() + ",\"pointQueries\":" + getPointQueryCount()
+                + ",\"pointSearches\":" + getPointSearchCount() + ",\"latencyMicros\":{\"p50\":"
+                + s.getMedianNanos() / 1000 + ",\"p90\":" + s.getP90Nanos() / 1000 + ",\"p99\":"
+                + s.getP99Nanos() / 1000 + ",\"p999\":" + s.getP999Nanos() / 1000 + ",\"max\":"
+                + s.getMaxNanos() / 1000 + "}}";
+    }
+
+    /**
+     * Queues a point query for the current batch, opening a new batch if
+     * there is none
+     */
+    private PointQuery submit(int from, int to) {
+        pointQueries.increment();
+        PointQuery query = new PointQuery(from, to);
+        long window = batchWindowNanos;
+        if (window <= 0) {
+            answer(List.of(query));
+            return query;
+        }
+        boolean first;
+        synchronized (batchLock) {
+            first = pending.isEmpty();
+            pending.add(query);
+        }
+        if (first) {
+            executor.execute(() -> {
+                LockSupport.parkNanos(window);
+                flushBatch();
+            });
+        }
+        return query;
+    }
+
+    private void flushBatch() {
+        List<PointQuery> batch;
+        synchronized (batchLock) {
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        Map<Integer, List<PointQuery>> bySource = new HashMap<>();
+        for (PointQuery query : batch)
+            bySource.computeIfAbsent(query.from, k -> new ArrayList<>()).add(query);
+        for (List<PointQuery> group : bySource.values())
+            executor.execute(() -> answer(group));
+    }
+
+    /**
+     * Answers point queries that share a start node with one search
+     */
+    private void answer(List<PointQuery> group) {
+        try {
+            withSearch(scratch -> {
+                SearchWorkspace ws = scratch.ws;
+                int from = group.get(0).from;
+                if (group.size() == 1) {
+                    dijkstra.search(from, group.get(0).to, ws);
+                } else {
+                    int targets = 0;
+                    for (PointQuery query : group) {
+                        if (!scratch.isTarget[query.to]) {
+                            scratch.isTarget[query.to] = true;
+                            targets++;
+                        }
+                    }
+                    try {
+                        dijkstra.searchTargets(from, scratch.isTarget, targets, ws);
+                    } finally {
+                        for (PointQuery query : group)
+                            scratch.isTarget[query.to] = false;
+                    }
+                }
+                pointSearches.increment();
+                for (PointQuery query : group) {
+                    query.distance = ws.getDistance(query.to);
+                    query.path = ws.extractPath(query.to);
+                }
+                return null;
+            });
+            for (PointQuery query : group)
+                query.done.complete(null);
+        } catch (RuntimeException e) {
+            for (PointQuery query : group)
+                query.done.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Runs a search with a pooled workspace once a search permit is free
+     */
+    private <T> T withSearch(Function<Scratch, T> search) {
+        searchPermits.acquireUninterruptibly();
+        Scratch scratch = scratches.poll();
+        if (scratch == null)
+            scratch = new Scratch(graph.getNodeCount());
+        try {
+            return search.apply(scratch);
+        } finally {
+            scratches.offer(scratch);
+            searchPermits.release();
+        }
+    }
+
+    /**
+     * @return summed cost of the cheapest road between each pair of
+     *         consecutive nodes
+     */
+    private long pathCost(List<Integer> path) {
+        long cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int from = path.get(i - 1), to = path.get(i);
+            int best = SearchWorkspace.INFINITY;
+            for (int e = graph.edgeStart(from), last = graph.edgeEnd(from); e < last; e++) {
+                if (graph.getTarget(e) == to)
+                    best = Math.min(best, graph.getWeight(e));
+            }
+            cost += best;
+        }
+        return cost;
+    }
+
+    private int node(Map<String, String> params, String name) {
+        int[] nodes = nodes(params, name);
+        if (nodes.length != 1)
+            throw new IllegalArgumentException(name + " must be one node");
+        return nodes[0];
+    }
+
+    private int[] nodes(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty())
+            throw new IllegalArgumentException("missing parameter " + name);
+        String[] parts = value.split(",");
+        int[] nodes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            nodes[i] = Integer.parseInt(parts[i].trim());
+            if (nodes[i] < 0 || nodes[i] >= graph.getNodeCount())
+                throw new IllegalArgumentException("no node " + nodes[i]);
+        }
+        return nodes;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null)
+            return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0)
+                continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void appendDistance(StringBuilder json, int distance) {
+        if (distance == SearchWorkspace.INFINITY)
+            json.append("null");
+        else
+            json.append(distance);
+    }
+
+    private static void appendArray(StringBuilder json, List<Integer> values) {
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0)
+                json.append(',');
+            json.append(values.get(i));
+        }
+        json.append(']');
+    }
+
+    private static void appendArray(StringBuilder json, int[] values) {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append(values[i]);
+        }
+        json.append(']');
+    }
+
+    private static String error(String message) {
+        String text = String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"");
+        return "{\"error\":\"" + text + "\"}";
+    }
+
+    /**
+     * Search state borrowed by one search at a time
+     */
+    private static class Scratch {
+        final SearchWorkspace ws;
+
+        // marks the targets of a grouped search, all false between searches
+        final boolean[] isTarget;
+
+        Scratch(int nodeCount) {
+            ws = new SearchWorkspace(nodeCount);
+            isTarget = new boolean[nodeCount];
+        }
+    }
+
+    /**
+     * A point query waiting for its batch to be searched
+     */
+    private static class PointQuery {
+        final int from;
+        final int to;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        int distance;
+        List<Integer> path;
+
+        PointQuery(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
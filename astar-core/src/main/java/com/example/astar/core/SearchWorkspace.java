@@ -0,0 +1,184 @@
+package com.example.astar.core;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Reusable per-thread state for a shortest path search: tentative distances,
+ * predecessors and the priority queue.
+ * <p>
+ * Instead of re-filling the arrays before every query, each entry carries the
+ * generation in which it was written. {@link #reset()} just bumps the
+ * generation, so entries from earlier queries read as "unreached" and a query
+ * only pays for the nodes it actually touches.
+ * <p>
+ * A search is cancelled by interrupting the thread running it: within a few
+ * thousand settled nodes {@link #settleNext()} throws a
+ * {@link CancellationException}, and every search in this package passes it
+ * on to its caller unchanged. The workspace is then left mid-query but can be
+ * used again after the next {@link #reset()}. The thread stays interrupted,
+ * so later searches on it are cancelled too until the flag is cleared.
+ */
+public class SearchWorkspace {
+
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    // settled nodes between two checks for interruption, minus one
+    private static final int CANCEL_CHECK_MASK = 4095;
+
+    private final int[] dist;
+    private final int[] prev;
+    private final int[] stamp;
+    private final IndexedMinHeap heap;
+    private int generation;
+
+    // number of nodes taken off the heap since the last reset
+    private int settledCount;
+
+    // number of tentative distances set or lowered since the last reset
+    private int improvedLabelCount;
+
+    // all false between uses, allocated on first use
+    private boolean[] targetMarks;
+
+    /**
+     * @param nodeCount number of nodes of the graph the workspace is used with
+     */
+    public SearchWorkspace(int nodeCount) {
+        dist = new int[nodeCount];
+        prev = new int[nodeCount];
+        stamp = new int[nodeCount];
+        heap = new IndexedMinHeap(nodeCount);
+        generation = 1;
+    }
+
+    /**
+     * Forgets the previous query
+     */
+    public void reset() {
+        heap.clear();
+        settledCount = 0;
+        improvedLabelCount = 0;
+        if (++generation == 0) {
+            // stamps wrapped around, old entries could look current again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @return the number of nodes this workspace was sized for
+     */
+    public int getNodeCount() {
+        return dist.length;
+    }
+
+    /**
+     * @param node a node id
+     * @return whether node has a distance in the current query
+     */
+    public boolean isReached(int node) {
+        return stamp[node] == generation;
+    }
+
+    /**
+     * @param node a node id
+     * @return whether node has been reached and removed from the heap
+     */
+    public boolean isSettled(int node) {
+        return stamp[node] == generation && !heap.contains(node);
+    }
+
+    /**
+     * @param node a node id
+     * @return tentative distance to node, or INFINITY if not reached
+     */
+    public int getDistance(int node) {
+        return stamp[node] == generation ? dist[node] : INFINITY;
+    }
+
+    /**
+     * @param node a node id
+     * @return predecessor of node on its current path, or -1
+     */
+    public int getPrevious(int node) {
+        return stamp[node] == generation ? prev[node] : -1;
+    }
+
+    /**
+     * Records a new tentative distance for node
+     */
+    public void setDistance(int node, int distance, int previous) {
+        improvedLabelCount++;
+        stamp[node] = generation;
+        dist[node] = distance;
+        prev[node] = previous;
+    }
+
+    public IndexedMinHeap getHeap() {
+        return heap;
+    }
+
+    /**
+     * Flags for marking the targets of a search, kept with the workspace so
+     * they are not allocated per query. All flags are false between uses; a
+     * caller that sets some must clear them again, also when the search
+     * fails.
+     *
+     * @return one flag per node
+     */
+    public boolean[] getTargetMarks() {
+        if (targetMarks == null)
+            targetMarks = new boolean[dist.length];
+        return targetMarks;
+    }
+
+    /**
+     * Pops the next node off the heap and counts it as settled. Every few
+     * thousand nodes it checks whether the searching thread was interrupted,
+     * so a search nobody waits for anymore can be abandoned mid-way.
+     *
+     * @throws CancellationException if the current thread is interrupted; the
+     *                               node is not popped and the interrupt
+     *                               flag is left set
+     */
+    public int settleNext() {
+        if ((++settledCount & CANCEL_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted())
+            throw new CancellationException("search interrupted");
+        return heap.poll();
+    }
+
+    /**
+     * @return number of nodes settled since the last reset
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Counts calls to {@link #setDistance}, that is edges whose relaxation
+     * improved a label, not every edge scanned
+     *
+     * @return number of tentative distances set or lowered since the last
+     *         reset, the source included
+     */
+    public int getImprovedLabelCount() {
+        return improvedLabelCount;
+    }
+
+    /**
+     * Walks the predecessor chain back from end
+     *
+     * @return list of nodes from the search source to end, or an empty list if
+     *         end was not reached
+     */
+    public List<Integer> extractPath(int end) {
+        if (!isReached(end))
+            return Collections.emptyList();
+        List<Integer> path = new ArrayList<>();
+        for (int at = end; at != -1; at = prev[at])
+            path.add(at);
+        Collections.reverse(path);
+        return path;
+    }
+}
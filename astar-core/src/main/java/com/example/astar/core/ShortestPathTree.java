@@ -0,0 +1,217 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Full shortest path tree from one source on a {@link TrafficGraph}, which
+ * can be repaired after weight changes instead of being recomputed.
+ * <p>
+ * {@link #repair} looks only at the changed edges. An edge that got cheaper
+ * and now offers a shorter way into its target seeds a search from there. A
+ * tree edge that got more expensive invalidates the subtree below it; those
+ * nodes take the best distance offered by an incoming edge from outside the
+ * subtree and are seeded too. One Dijkstra pass from the seeds then fixes
+ * exactly the part of the tree that changed. If no changed edge matters to
+ * the tree the repair costs nothing beyond reading those edges.
+ */
+public class ShortestPathTree {
+
+    private final int source;
+    private TrafficGraph graph;
+    private final int[] dist;
+
+    // edge used to reach each node, -1 for the source and unreached nodes
+    private final int[] prevEdge;
+
+    /**
+     * @param graph  the graph snapshot
+     * @param source root of the tree
+     */
+    public ShortestPathTree(TrafficGraph graph, int source) {
+        this.graph = graph;
+        this.source = source;
+        int n = graph.getNodeCount();
+        dist = new int[n];
+        prevEdge = new int[n];
+        Arrays.fill(dist, SearchWorkspace.INFINITY);
+        Arrays.fill(prevEdge, -1);
+
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        dist[source] = 0;
+        heap.push(source, 0);
+        propagate(heap);
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * @return the snapshot the tree is currently valid for
+     */
+    public TrafficGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param node a node id
+     * @return cost from the source to node, or SearchWorkspace.INFINITY
+     */
+    public int getDistance(int node) {
+        return dist[node];
+    }
+
+    /**
+     * @param node a node id
+     * @return list of nodes from the source to node, empty if unreachable
+     */
+    public List<Integer> getPath(int node) {
+        if (dist[node] == SearchWorkspace.INFINITY)
+            return Collections.emptyList();
+        List<Integer> path = new ArrayList<>();
+        path.add(node);
+        for (int e = prevEdge[node]; e != -1; e = prevEdge[graph.getSource(e)])
+            path.add(graph.getSource(e));
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Brings the tree up to date with a newer snapshot
+     *
+     * @param next         the new snapshot
+     * @param changedEdges edges whose weight differs between the current
+     *                     snapshot and next
+     * @return whether any distance or tree edge changed
+     */
+    public boolean repair(TrafficGraph next, int[] changedEdges) {
+        return repair(next, changedEdges, null);
+    }
+
+    /**
+     * Same as {@link #repair(TrafficGraph, int[])}, reusing a heap sized for
+     * the graph if one is given
+     */
+    boolean repair(TrafficGraph next, int[] changedEdges, IndexedMinHeap heap) {
+        this.graph = next;
+
+        // tree edges that got more expensive cut off the subtree below them
+        int[] cutRoots = null;
+        int cuts = 0;
+        for (int e : changedEdges) {
+            int v = next.getTarget(e);
+            if (prevEdge[v] == e && dist[next.getSource(e)] + next.getWeight(e) > dist[v]) {
+                if (cutRoots == null)
+                    cutRoots = new int[changedEdges.length];
+                cutRoots[cuts++] = v;
+            }
+        }
+
+        int[] invalid = cuts > 0 ? collectSubtrees(cutRoots, cuts) : new int[0];
+        boolean changed = invalid.length > 0;
+        for (int v : invalid) {
+            dist[v] = SearchWorkspace.INFINITY;
+            prevEdge[v] = -1;
+        }
+
+        // nodes of the cut subtrees restart from their best outside neighbour
+        for (int v : invalid) {
+            for (int i = next.inEdgeStart(v); i < next.inEdgeEnd(v); i++) {
+                int e = next.getInEdge(i);
+                int u = next.getSource(e);
+                if (dist[u] == SearchWorkspace.INFINITY)
+                    continue;
+                int candidate = dist[u] + next.getWeight(e);
+                if (candidate < dist[v]) {
+                    dist[v] = candidate;
+                    prevEdge[v] = e;
+                }
+            }
+            if (dist[v] != SearchWorkspace.INFINITY) {
+                heap = heap != null ? heap : new IndexedMinHeap(dist.length);
+                heap.push(v, dist[v]);
+            }
+        }
+
+        // edges that got cheaper may now be a shortcut into their target
+        for (int e : changedEdges) {
+            int u = next.getSource(e), v = next.getTarget(e);
+            if (dist[u] == SearchWorkspace.INFINITY)
+                continue;
+            int candidate = dist[u] + next.getWeight(e);
+            if (candidate < dist[v]) {
+                dist[v] = candidate;
+                prevEdge[v] = e;
+                heap = heap != null ? heap : new IndexedMinHeap(dist.length);
+                heap.push(v, candidate);
+                changed = true;
+            }
+        }
+
+        if (heap != null)
+            propagate(heap);
+        return changed;
+    }
+
+    /**
+     * Dijkstra from whatever is in the heap, relaxing into the current arrays
+     */
+    private void propagate(IndexedMinHeap heap) {
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            int cost = dist[node];
+            for (int e = graph.edgeStart(node), last = graph.edgeEnd(node); e < last; e++) {
+                int next = graph.getTarget(e);
+                int newCost = cost + graph.getWeight(e);
+                if (newCost < dist[next]) {
+                    dist[next] = newCost;
+                    prevEdge[next] = e;
+                    heap.push(next, newCost);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every node in the subtrees below the given roots, roots included
+     */
+    private int[] collectSubtrees(int[] roots, int count) {
+        int n = dist.length;
+        // children lists of the current tree, built only when needed
+        int[] childOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            if (prevEdge[v] >= 0)
+                childOffsets[graph.getSource(prevEdge[v]) + 1]++;
+        }
+        for (int v = 0; v < n; v++)
+            childOffsets[v + 1] += childOffsets[v];
+        int[] children = new int[childOffsets[n]];
+        int[] fill = Arrays.copyOf(childOffsets, n);
+        for (int v = 0; v < n; v++) {
+            if (prevEdge[v] >= 0)
+                children[fill[graph.getSource(prevEdge[v])]++] = v;
+        }
+
+        boolean[] seen = new boolean[n];
+        int[] stack = new int[n];
+        int size = 0, found = 0;
+        int[] result = new int[n];
+        for (int i = 0; i < count; i++) {
+            if (!seen[roots[i]]) {
+                seen[roots[i]] = true;
+                stack[size++] = roots[i];
+            }
+        }
+        while (size > 0) {
+            int v = stack[--size];
+            result[found++] = v;
+            for (int c = childOffsets[v]; c < childOffsets[v + 1]; c++) {
+                if (!seen[children[c]]) {
+                    seen[children[c]] = true;
+                    stack[size++] = children[c];
+                }
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.astar.core;
+
+/**
+ * Static 2-d tree over node coordinates for snapping positions to nodes.
+ * <p>
+ * The tree is built once in bulk and stored implicitly: the nodes are
+ * permuted so that every range of the arrays is a subtree whose middle entry
+ * splits it, alternating between x and y with depth. There are no tree node
+ * objects, and queries only recurse over array ranges, so they allocate
+ * nothing and can run from any number of threads at once.
+ */
+public class SpatialIndex {
+
+    // node ids and coordinates in tree order
+    private final int[] nodes;
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * @param locations x/y position of every node
+     */
+    public SpatialIndex(double[][] locations) {
+        this(column(locations, 0), column(locations, 1));
+    }
+
+    /**
+     * @param x x coordinate of every node
+     * @param y y coordinate of every node, same length as x
+     */
+    public SpatialIndex(double[] x, double[] y) {
+        if (x.length != y.length)
+            throw new IllegalArgumentException("need the same number of x and y coordinates");
+        int n = x.length;
+        nodes = new int[n];
+        xs = x.clone();
+        ys = y.clone();
+        for (int i = 0; i < n; i++)
+            nodes[i] = i;
+        build(0, n, true);
+    }
+
+    /**
+     * @param graph a graph file with coordinates
+     * @return index over the node coordinates of the graph
+     */
+    public static SpatialIndex of(MappedGraph graph) {
+        if (!graph.hasCoordinates())
+            throw new IllegalArgumentException("graph file has no coordinates");
+        int n = graph.getNodeCount();
+        double[] x = new double[n], y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = graph.getX(v);
+            y[v] = graph.getY(v);
+        }
+        return new SpatialIndex(x, y);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the node closest to (x, y), or -1 if the index is empty
+     */
+    public int nearest(double x, double y) {
+        return nearestWithin(x, y, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Hit test: the closest node, but only if it is near enough
+     *
+     * @param x           x coordinate
+     * @param y           y coordinate
+     * @param maxDistance largest accepted distance
+     * @return the node closest to (x, y) within maxDistance, or -1
+     */
+    public int nearestWithin(double x, double y, double maxDistance) {
+        long best = nearest(0, nodes.length, true, x, y, -1, maxDistance * maxDistance);
+        return best < 0 ? -1 : nodes[(int) best];
+    }
+
+    /**
+     * Collects the nodes within a radius, in no particular order
+     *
+     * @param x      x coordinate
+     * @param y      y coordinate
+     * @param radius search radius
+     * @param out    receives the node ids, filled from index 0
+     * @return number of nodes within the radius, which may exceed out.length;
+     *         only the first out.length of them are stored
+     */
+    public int withinRadius(double x, double y, double radius, int[] out) {
+        return within(0, nodes.length, true, x, y, radius * radius, out, 0);
+    }
+
+    /**
+     * Collects the nodes inside an axis-aligned box, edges included, in no
+     * particular order; used to cull what lies outside a viewport
+     *
+     * @param minX left edge of the box
+     * @param minY top edge of the box
+     * @param maxX right edge of the box
+     * @param maxY bottom edge of the box
+     * @param out  receives the node ids, filled from index 0
+     * @return number of nodes in the box, which may exceed out.length; only
+     *         the first out.length of them are stored
+     */
+    public int withinBox(double minX, double minY, double maxX, double maxY, int[] out) {
+        return inBox(0, nodes.length, true, minX, minY, maxX, maxY, out, 0);
+    }
+
+    /**
+     * Orders range [from, to) so that its middle entry splits it on x or y,
+     * then does the same for both halves
+     */
+    private void build(int from, int to, boolean splitX) {
+        while (to - from > 1) {
+            int mid = (from + to) >>> 1;
+            select(from, to - 1, mid, splitX);
+            build(from, mid, !splitX);
+            from = mid + 1;
+            splitX = !splitX;
+        }
+    }
+
+    /**
+     * Quickselect: puts the k-th smallest coordinate of [lo, hi] at k
+     */
+    private void select(int lo, int hi, int k, boolean splitX) {
+        double[] key = splitX ? xs : ys;
+        while (hi > lo) {
+            double pivot = key[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (key[i] < pivot)
+                    i++;
+                while (key[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int node = nodes[a];
+        nodes[a] = nodes[b];
+        nodes[b] = node;
+        double t = xs[a];
+        xs[a] = xs[b];
+        xs[b] = t;
+        t = ys[a];
+        ys[a] = ys[b];
+        ys[b] = t;
+    }
+
+    /**
+     * @return tree position of the closest entry of [from, to) strictly
+     *         closer than the current best, or best if there is none. The
+     *         squared distance limit shrinks as closer entries are found.
+     */
+    private long nearest(int from, int to, boolean splitX, double x, double y, long best, double limit) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            double dx = xs[mid] - x, dy = ys[mid] - y;
+            double d = dx * dx + dy * dy;
+            if (d <= limit) {
+                best = mid;
+                limit = d;
+            }
+            double diff = splitX ? x - xs[mid] : y - ys[mid];
+            // search the side of the split the point is on first
+            int nearFrom = diff < 0 ? from : mid + 1, nearTo = diff < 0 ? mid : to;
+            int farFrom = diff < 0 ? mid + 1 : from, farTo = diff < 0 ? to : mid;
+            long found = nearest(nearFrom, nearTo, !splitX, x, y, best, limit);
+            if (found != best) {
+                best = found;
+                double fx = xs[(int) best] - x, fy = ys[(int) best] - y;
+                limit = fx * fx + fy * fy;
+            }
+            if (diff * diff > limit)
+                return best;
+            from = farFrom;
+            to = farTo;
+            splitX = !splitX;
+        }
+        return best;
+    }
+
+    private int within(int from, int to, boolean splitX, double x, double y, double limit, int[] out, int count) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            double dx = xs[mid] - x, dy = ys[mid] - y;
+            if (dx * dx + dy * dy <= limit) {
+                if (count < out.length)
+                    out[count] = nodes[mid];
+                count++;
+            }
+            double diff = splitX ? x - xs[mid] : y - ys[mid];
+            if (diff <= 0 || diff * diff <= limit)
+                count = within(from, mid, !splitX, x, y, limit, out, count);
+            if (diff < 0 && diff * diff > limit)
+                return count;
+            from = mid + 1;
+            splitX = !splitX;
+        }
+        return count;
+    }
+
+    private int inBox(int from, int to, boolean splitX, double minX, double minY, double maxX, double maxY, int[] out,
+            int count) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            double x = xs[mid], y = ys[mid];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                if (count < out.length)
+                    out[count] = nodes[mid];
+                count++;
+            }
+            // entries before mid are at most the split, entries after it at least
+            double split = splitX ? x : y;
+            boolean before = (splitX ? minX : minY) <= split, after = (splitX ? maxX : maxY) >= split;
+            if (before && after) {
+                count = inBox(from, mid, !splitX, minX, minY, maxX, maxY, out, count);
+            } else if (before) {
+                to = mid;
+                splitX = !splitX;
+                continue;
+            }
+            from = mid + 1;
+            splitX = !splitX;
+        }
+        return count;
+    }
+
+    private static double[] column(double[][] locations, int c) {
+        double[] values = new double[locations.length];
+        for (int i = 0; i < locations.length; i++)
+            values[i] = locations[i][c];
+        return values;
+    }
+}
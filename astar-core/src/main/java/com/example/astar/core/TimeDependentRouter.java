@@ -0,0 +1,121 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Earliest-arrival routing on {@link TravelTimeProfiles}.
+ * <p>
+ * This is Dijkstra (or A* when given a heuristic) where the label of a node
+ * is the earliest time it can be reached and an edge costs its travel time
+ * at the moment it is entered. Under the FIFO property waiting never helps,
+ * so the usual label-setting search stays exact. The heuristic must be a
+ * lower bound on travel time at any time of day, for example landmarks
+ * computed on {@link TravelTimeProfiles#lowerBoundGraph()}.
+ * <p>
+ * Times are measured from the start of the first period; labels are kept
+ * relative to the departure time so they fit in the int search workspace.
+ */
+public class TimeDependentRouter {
+
+    private final TravelTimeProfiles profiles;
+    private final RoadGraph graph;
+    private final Heuristic heuristic;
+    private final ThreadLocal<SearchWorkspace> workspace;
+
+    /**
+     * Plain time-dependent Dijkstra
+     *
+     * @param profiles travel time profiles of the road graph
+     */
+    public TimeDependentRouter(TravelTimeProfiles profiles) {
+        this(profiles, new ZeroHeuristic());
+    }
+
+    /**
+     * Time-dependent A*
+     *
+     * @param profiles  travel time profiles of the road graph
+     * @param heuristic lower bound on the remaining travel time at any time
+     */
+    public TimeDependentRouter(TravelTimeProfiles profiles, Heuristic heuristic) {
+        this.profiles = profiles;
+        this.graph = profiles.getGraph();
+        this.heuristic = heuristic;
+        this.workspace = ThreadLocal.withInitial(() -> new SearchWorkspace(graph.getNodeCount()));
+    }
+
+    /**
+     * @param start     the start node
+     * @param end       the end node
+     * @param departure time of leaving start
+     * @return earliest arrival time at end, or -1 if end cannot be reached
+     */
+    public long earliestArrival(int start, int end, long departure) {
+        SearchWorkspace ws = workspace.get();
+        search(start, end, departure, ws);
+        return ws.isReached(end) ? departure + ws.getDistance(end) : -1;
+    }
+
+    /**
+     * @param start     the start node
+     * @param end       the end node
+     * @param departure time of leaving start
+     * @return list of nodes of the fastest route for that departure time
+     */
+    public List<Integer> findPath(int start, int end, long departure) {
+        SearchWorkspace ws = workspace.get();
+        search(start, end, departure, ws);
+        return ws.extractPath(end);
+    }
+
+    /**
+     * Drives through the stops in the given order, leaving each one as soon
+     * as it is reached
+     *
+     * @param stops     nodes to visit in order, the first is the start
+     * @param departure time of leaving the first stop
+     * @return arrival time at every stop (departure for the first one), -1
+     *         from the first stop that cannot be reached
+     */
+    public long[] arrivalTimes(int[] stops, long departure) {
+        long[] arrivals = new long[stops.length];
+        if (stops.length == 0)
+            return arrivals;
+        arrivals[0] = departure;
+        for (int i = 1; i < stops.length; i++) {
+            arrivals[i] = arrivals[i - 1] < 0 ? -1 : earliestArrival(stops[i - 1], stops[i], arrivals[i - 1]);
+        }
+        return arrivals;
+    }
+
+    /**
+     * @return number of nodes settled by the calling thread's last query
+     */
+    public int getSettledCount() {
+        return workspace.get().getSettledCount();
+    }
+
+    private void search(int start, int end, long departure, SearchWorkspace ws) {
+        ws.reset();
+        IndexedMinHeap heap = ws.getHeap();
+        ws.setDistance(start, 0, -1);
+        heap.push(start, heuristic.estimate(start, end));
+
+        while (!heap.isEmpty()) {
+            int node = ws.settleNext();
+            if (node == end)
+                return;
+
+            int elapsed = ws.getDistance(node);
+            long now = departure + elapsed;
+            for (int e = graph.edgeStart(node), last = graph.edgeEnd(node); e < last; e++) {
+                int next = graph.getTarget(e);
+                int arrival = elapsed + profiles.travelTime(e, now);
+                if (arrival < ws.getDistance(next)) {
+                    ws.setDistance(next, arrival, node);
+                    heap.push(next, arrival + heuristic.estimate(next, end));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+/**
+ * Chooses the order in which to visit a set of stops, with the first stop
+ * fixed as the start and the last stop fixed as the end.
+ * <p>
+ * Stop-to-stop road distances are computed once, then the visiting order is
+ * solved as an open travelling salesman problem on that matrix. Up to
+ * {@link #getExactLimit()} intermediate stops the Held-Karp dynamic program
+ * gives the exact optimum. Beyond that a nearest-neighbour tour is improved
+ * with 2-opt and Or-opt moves until no move helps or the time budget runs out.
+ */
+public class TourOptimizer {
+
+    // cost used for stops that cannot reach each other
+    private static final long UNREACHABLE = Long.MAX_VALUE / 4;
+
+    // sums of costs stop growing here instead of overflowing; one below
+    // Long.MAX_VALUE, which Held-Karp uses for states not reached yet
+    private static final long SATURATED = Long.MAX_VALUE - 1;
+
+    private final Dijkstra dijkstra;
+
+    // largest number of intermediate stops solved exactly
+    private int exactLimit = 12;
+
+    // wall clock budget for the heuristic
+    private long timeBudgetMillis = 50;
+
+    /**
+     * @param graph the road graph
+     */
+    public TourOptimizer(RoadGraph graph) {
+        this.dijkstra = new Dijkstra(graph);
+    }
+
+    public int getExactLimit() {
+        return exactLimit;
+    }
+
+    /**
+     * @param exactLimit largest number of intermediate stops to solve with
+     *                   Held-Karp, memory grows with 2^exactLimit
+     */
+    public void setExactLimit(int exactLimit) {
+        if (exactLimit < 0 || exactLimit > 20)
+            throw new IllegalArgumentException("exactLimit must be between 0 and 20");
+        this.exactLimit = exactLimit;
+    }
+
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * @param timeBudgetMillis how long the heuristic may keep improving a tour
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * @param metrics where to record the stop-to-stop searches, or null to
+     *                stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        dijkstra.setMetrics(metrics);
+    }
+
+    /**
+     * @param stops start node, intermediate stops in any order, end node
+     * @return the same stops in the order that minimises total travel cost
+     */
+    public List<Integer> orderStops(List<Integer> stops) {
+        int n = stops.size();
+        if (n <= 3)
+            return new ArrayList<>(stops);
+
+        int[] nodes = stops.stream().mapToInt(Integer::intValue).toArray();
+        DistanceMatrix matrix = DistanceMatrix.compute(dijkstra, nodes, nodes, false);
+
+        int[] order = optimizeOrder(matrix.getDistances(), n);
+        List<Integer> result = new ArrayList<>(n);
+        for (int index : order)
+            result.add(stops.get(index));
+        return result;
+    }
+
+    /**
+     * Orders the stops and joins them into one route, reusing the paths found
+     * while building the distance matrix. Legs that cannot be driven are
+     * skipped.
+     *
+     * @param stops start node, intermediate stops in any order, end node
+     * @return node sequence of the whole route
+     */
+    public List<Integer> findRoute(List<Integer> stops) {
+        return findRoute(stops, dijkstra.getWorkspace());
+    }
+
+    /**
+     * Same as {@link #findRoute(List)}, searching in the given workspace
+     * instead of the calling thread's own
+     *
+     * @param stops start node, intermediate stops in any order, end node
+     * @param ws    workspace sized for the graph
+     * @return node sequence of the whole route
+     */
+    public List<Integer> findRoute(List<Integer> stops, SearchWorkspace ws) {
+        int n = stops.size();
+        int[] nodes = stops.stream().mapToInt(Integer::intValue).toArray();
+        DistanceMatrix matrix = DistanceMatrix.compute(dijkstra, nodes, nodes, true, ws);
+        int[] order = n <= 3 ? identity(n) : optimizeOrder(matrix.getDistances(), n);
+
+        List<Integer> path = new ArrayList<>();
+        int current = order[0];
+        path.add(nodes[current]);
+        for (int i = 1; i < n; i++) {
+            List<Integer> segment = matrix.getPath(current, order[i]);
+            if (segment.isEmpty())
+                continue;
+            path.addAll(segment.subList(1, segment.size()));
+            current = order[i];
+        }
+        return path;
+    }
+
+    /**
+     * @param matrix flat n by n cost matrix, matrix[i * n + j] is the cost from
+     *               stop i to stop j (SearchWorkspace.INFINITY if unreachable)
+     * @param n      number of stops, stop 0 is the start and stop n - 1 the end
+     * @return visiting order as stop indices, starting with 0 and ending with n - 1
+     */
+    public int[] optimizeOrder(int[] matrix, int n) {
+        if (n < 0 || matrix.length < n * n)
+            throw new IllegalArgumentException("matrix must hold n by n costs");
+        // with no intermediate stop there is only one order
+        if (n <= 2)
+            return identity(n);
+
+        long[] cost = new long[n * n];
+        for (int i = 0; i < cost.length; i++)
+            cost[i] = matrix[i] == SearchWorkspace.INFINITY ? UNREACHABLE : matrix[i];
+
+        if (n - 2 <= exactLimit)
+            return heldKarp(cost, n);
+
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        int[] tour = nearestNeighbour(cost, n);
+        improve(tour, cost, n, deadline);
+        return tour;
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        return order;
+    }
+
+    /**
+     * Exact dynamic program over subsets of the intermediate stops.
+     * best[mask * k + j] is the cheapest way to leave the start, visit exactly
+     * the stops in mask and finish at intermediate stop j.
+     */
+    private static int[] heldKarp(long[] cost, int n) {
+        int k = n - 2;
+        int end = n - 1;
+        int full = (1 << k) - 1;
+        long[] best = new long[(1 << k) * k];
+        int[] parent = new int[(1 << k) * k];
+        Arrays.fill(best, Long.MAX_VALUE);
+
+        for (int j = 0; j < k; j++) {
+            best[(1 << j) * k + j] = cost[j + 1];
+            parent[(1 << j) * k + j] = -1;
+        }
+
+        for (int mask = 1; mask <= full; mask++) {
+            for (int j = 0; j < k; j++) {
+                long here = best[mask * k + j];
+                if ((mask & (1 << j)) == 0 || here == Long.MAX_VALUE)
+                    continue;
+                for (int next = 0; next < k; next++) {
+                    if ((mask & (1 << next)) != 0)
+                        continue;
+                    int nextMask = mask | (1 << next);
+                    long candidate = add(here, cost[(j + 1) * n + next + 1]);
+                    if (candidate < best[nextMask * k + next]) {
+                        best[nextMask * k + next] = candidate;
+                        parent[nextMask * k + next] = j;
+                    }
+                }
+            }
+        }
+
+        int last = 0;
+        long bestTotal = Long.MAX_VALUE;
+        for (int j = 0; j < k; j++) {
+            long total = add(best[full * k + j], cost[(j + 1) * n + end]);
+            if (total < bestTotal) {
+                bestTotal = total;
+                last = j;
+            }
+        }
+
+        int[] order = new int[n];
+        order[0] = 0;
+        order[end] = end;
+        int mask = full;
+        for (int pos = k; pos >= 1; pos--) {
+            order[pos] = last + 1;
+            int prev = parent[mask * k + last];
+            mask &= ~(1 << last);
+            last = prev;
+        }
+        return order;
+    }
+
+    /**
+     * Greedy tour: always drive to the closest unvisited stop
+     */
+    private static int[] nearestNeighbour(long[] cost, int n) {
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        tour[0] = 0;
+        tour[n - 1] = n - 1;
+        visited[0] = true;
+        visited[n - 1] = true;
+
+        int current = 0;
+        for (int pos = 1; pos < n - 1; pos++) {
+            int closest = -1;
+            for (int j = 1; j < n - 1; j++) {
+                if (!visited[j] && (closest < 0 || cost[current * n + j] < cost[current * n + closest]))
+                    closest = j;
+            }
+            tour[pos] = closest;
+            visited[closest] = true;
+            current = closest;
+        }
+        return tour;
+    }
+
+    /**
+     * Applies improving 2-opt and Or-opt moves until neither finds one or the
+     * deadline passes. Both ends of the tour stay fixed.
+     */
+    private static void improve(int[] tour, long[] cost, int n, long deadline) {
+        // forward[i] / backward[i]: cost of tour[0..i] driven forwards / in reverse
+        long[] forward = new long[n];
+        long[] backward = new long[n];
+
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            prefixCosts(tour, cost, n, forward, backward);
+            improved = twoOpt(tour, cost, n, forward, backward);
+            if (!improved) {
+                prefixCosts(tour, cost, n, forward, backward);
+                improved = orOpt(tour, cost, n, backward);
+            }
+        }
+    }
+
+    private static void prefixCosts(int[] tour, long[] cost, int n, long[] forward, long[] backward) {
+        forward[0] = 0;
+        backward[0] = 0;
+        for (int i = 1; i < n; i++) {
+            forward[i] = add(forward[i - 1], cost[tour[i - 1] * n + tour[i]]);
+            backward[i] = add(backward[i - 1], cost[tour[i] * n + tour[i - 1]]);
+        }
+    }
+
+    /**
+     * Reverses one tour segment tour[i..j] if that shortens the tour
+     */
+    private static boolean twoOpt(int[] tour, long[] cost, int n, long[] forward, long[] backward) {
+        for (int i = 1; i < n - 2; i++) {
+            for (int j = i + 1; j < n - 1; j++) {
+                long before = add(add(cost[tour[i - 1] * n + tour[i]], forward[j] - forward[i]),
+                        cost[tour[j] * n + tour[j + 1]]);
+                long after = add(add(cost[tour[i - 1] * n + tour[j]], backward[j] - backward[i]),
+                        cost[tour[i] * n + tour[j + 1]]);
+                if (after < before) {
+                    reverse(tour, i, j);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves a run of one to three stops to another place in the tour, either
+     * as is or reversed, if that shortens the tour
+     */
+    private static boolean orOpt(int[] tour, long[] cost, int n, long[] backward) {
+        for (int length = 1; length <= 3; length++) {
+            for (int i = 1; i + length <= n - 1; i++) {
+                int j = i + length - 1;
+                int first = tour[i], last = tour[j];
+                int before = tour[i - 1], after = tour[j + 1];
+                long removeGain = add(cost[before * n + first], cost[last * n + after]) - cost[before * n + after];
+                long reversedInside = backward[j] - backward[i];
+                long forwardInside = 0;
+                for (int p = i; p < j; p++)
+                    forwardInside = add(forwardInside, cost[tour[p] * n + tour[p + 1]]);
+
+                // insert between tour[p] and tour[p + 1], outside the segment
+                for (int p = 0; p < n - 1; p++) {
+                    if (p >= i - 1 && p <= j)
+                        continue;
+                    int a = tour[p], b = tour[p + 1];
+                    long plain = add(cost[a * n + first], cost[last * n + b]) - cost[a * n + b];
+                    long flipped = add(add(cost[a * n + last], cost[first * n + b]) - cost[a * n + b],
+                            reversedInside) - forwardInside;
+                    if (plain < removeGain) {
+                        moveSegment(tour, i, j, p, false);
+                        return true;
+                    }
+                    if (flipped < removeGain) {
+                        moveSegment(tour, i, j, p, true);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves tour[i..j] so that it follows the stop currently at position p
+     */
+    private static void moveSegment(int[] tour, int i, int j, int p, boolean reversed) {
+        int[] segment = Arrays.copyOfRange(tour, i, j + 1);
+        if (reversed)
+            reverse(segment, 0, segment.length - 1);
+        int length = segment.length;
+        if (p < i) {
+            System.arraycopy(tour, p + 1, tour, p + 1 + length, i - p - 1);
+            System.arraycopy(segment, 0, tour, p + 1, length);
+        } else {
+            System.arraycopy(tour, j + 1, tour, i, p - j);
+            System.arraycopy(segment, 0, tour, p - length + 1, length);
+        }
+    }
+
+    /**
+     * @return a + b for a cost b that is not negative, SATURATED if that
+     *         would be more
+     */
+    private static long add(long a, long b) {
+        return a > SATURATED - b ? SATURATED : a + b;
+    }
+
+    private static void reverse(int[] array, int i, int j) {
+        while (i < j) {
+            int tmp = array[i];
+            array[i++] = array[j];
+            array[j--] = tmp;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a road graph whose edge weights can change with live
+ * traffic.
+ * <p>
+ * The topology (offsets and targets) is shared with the base graph and never
+ * copied. Weights are kept in fixed-size pages; {@link #withWeights} builds
+ * the next snapshot by copying only the pages that contain a changed edge and
+ * sharing all other pages with this one. Queries that hold on to a snapshot
+ * keep seeing a consistent set of weights while newer snapshots are
+ * published.
+ * <p>
+ * The snapshot also knows the source node of every edge and the incoming
+ * edges of every node, which incremental repair of shortest path trees needs.
+ * That index is built once per topology and shared by all snapshots.
+ */
+public class TrafficGraph implements RoadGraph {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final RoadGraph topology;
+    private final int[][] weightPages;
+    private final long version;
+
+    // source node of every edge
+    private final int[] edgeSource;
+
+    // inEdges[inOffsets[v] .. inOffsets[v + 1] - 1] are the edges entering v
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+    /**
+     * Starts a snapshot series with the weights of the given graph
+     *
+     * @param base the road graph
+     */
+    public TrafficGraph(RoadGraph base) {
+        int n = base.getNodeCount();
+        int m = base.getEdgeCount();
+        this.topology = base;
+        this.version = 0;
+
+        weightPages = new int[(m + PAGE_SIZE - 1) >>> PAGE_BITS][];
+        for (int p = 0; p < weightPages.length; p++) {
+            int from = p << PAGE_BITS;
+            int[] page = new int[Math.min(PAGE_SIZE, m - from)];
+            for (int i = 0; i < page.length; i++)
+                page[i] = base.getWeight(from + i);
+            weightPages[p] = page;
+        }
+
+        edgeSource = new int[m];
+        inOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            for (int e = base.edgeStart(v), last = base.edgeEnd(v); e < last; e++) {
+                edgeSource[e] = v;
+                inOffsets[base.getTarget(e) + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++)
+            inOffsets[v + 1] += inOffsets[v];
+        inEdges = new int[m];
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int e = 0; e < m; e++)
+            inEdges[fill[base.getTarget(e)]++] = e;
+    }
+
+    private TrafficGraph(TrafficGraph previous, int[][] weightPages) {
+        this.topology = previous.topology;
+        this.edgeSource = previous.edgeSource;
+        this.inOffsets = previous.inOffsets;
+        this.inEdges = previous.inEdges;
+        this.weightPages = weightPages;
+        this.version = previous.version + 1;
+    }
+
+    /**
+     * Creates the next snapshot with some edge weights changed. This snapshot
+     * is left untouched.
+     *
+     * @param edges   edge indices to change
+     * @param weights new weight of each edge
+     * @return the new snapshot, its version is one higher
+     */
+    public TrafficGraph withWeights(int[] edges, int[] weights) {
+        if (edges.length != weights.length)
+            throw new IllegalArgumentException("edges and weights must have the same length");
+        int[][] pages = weightPages.clone();
+        boolean[] copied = new boolean[pages.length];
+        for (int i = 0; i < edges.length; i++) {
+            if (weights[i] < 0)
+                throw new IllegalArgumentException("negative weight " + weights[i] + " for edge " + edges[i]);
+            int p = edges[i] >>> PAGE_BITS;
+            if (!copied[p]) {
+                pages[p] = pages[p].clone();
+                copied[p] = true;
+            }
+            pages[p][edges[i] & PAGE_MASK] = weights[i];
+        }
+        return new TrafficGraph(this, pages);
+    }
+
+    /**
+     * @return how many updates separate this snapshot from the first one
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param from source node
+     * @param to   destination node
+     * @return index of the edge from -&gt; to, or -1 if there is none
+     */
+    public int findEdge(int from, int to) {
+        for (int e = topology.edgeStart(from), last = topology.edgeEnd(from); e < last; e++) {
+            if (topology.getTarget(e) == to)
+                return e;
+        }
+        return -1;
+    }
+
+    /**
+     * @param edge an edge index
+     * @return the node the edge leaves from
+     */
+    public int getSource(int edge) {
+        return edgeSource[edge];
+    }
+
+    /**
+     * @param node a node id
+     * @return first position of node's incoming edges, see getInEdge
+     */
+    public int inEdgeStart(int node) {
+        return inOffsets[node];
+    }
+
+    /**
+     * @param node a node id
+     * @return one past the last position of node's incoming edges
+     */
+    public int inEdgeEnd(int node) {
+        return inOffsets[node + 1];
+    }
+
+    /**
+     * @param position a position between inEdgeStart(v) and inEdgeEnd(v)
+     * @return index of the incoming edge at that position
+     */
+    public int getInEdge(int position) {
+        return inEdges[position];
+    }
+
+    @Override
+    public int getNodeCount() {
+        return topology.getNodeCount();
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return topology.getEdgeCount();
+    }
+
+    @Override
+    public int edgeStart(int node) {
+        return topology.edgeStart(node);
+    }
+
+    @Override
+    public int edgeEnd(int node) {
+        return topology.edgeEnd(node);
+    }
+
+    @Override
+    public int getTarget(int edge) {
+        return topology.getTarget(edge);
+    }
+
+    @Override
+    public int getWeight(int edge) {
+        return weightPages[edge >>> PAGE_BITS][edge & PAGE_MASK];
+    }
+}
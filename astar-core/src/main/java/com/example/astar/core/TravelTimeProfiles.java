@@ -0,0 +1,213 @@
+package com.example.astar.core;
+
+import java.util.Arrays;
+
+/**
+ * Departure-time dependent travel times for the edges of a road graph.
+ * <p>
+ * A profile is a periodic piecewise-linear curve of a congestion factor over
+ * the time of day, given in per mille of the free-flow time (1000 = free
+ * flow, 1500 = 50% slower). The travel time of an edge entered at time t is
+ * its static weight times the factor of its profile at t. Many edges share
+ * one profile, so all curves live in three flat arrays and each edge only
+ * stores a profile id; edges without a profile keep their static weight.
+ * <p>
+ * Profiles must respect FIFO: entering an edge later never gets you out
+ * earlier. This holds when the travel time falls by at most one time unit
+ * per unit of entry time, which is checked when a profile is assigned, and
+ * {@link #travelTime} keeps it after rounding to whole time units.
+ */
+public class TravelTimeProfiles {
+
+    private final RoadGraph graph;
+    private final int period;
+
+    // breakpoints of profile p are profileOffsets[p] .. profileOffsets[p + 1] - 1
+    private int[] profileOffsets = new int[] { 0 };
+    private int[] times = new int[16];
+    private int[] factors = new int[16];
+    private int[] minFactor = new int[4];
+    private double[] steepestDrop = new double[4];
+    private int profileCount;
+
+    // profile of each edge, -1 for a static edge
+    private final int[] edgeProfile;
+
+    /**
+     * @param graph  the road graph, its weights are the free-flow times
+     * @param period length of one cycle in time units, e.g. 86400 seconds
+     */
+    public TravelTimeProfiles(RoadGraph graph, int period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period must be positive");
+        this.graph = graph;
+        this.period = period;
+        this.edgeProfile = new int[graph.getEdgeCount()];
+        Arrays.fill(edgeProfile, -1);
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Adds a congestion profile
+     *
+     * @param breakpointTimes   times of day in increasing order, within the period
+     * @param perMilleFactors   congestion factor at each breakpoint
+     * @return the id of the new profile
+     */
+    public int addProfile(int[] breakpointTimes, int[] perMilleFactors) {
+        int k = breakpointTimes.length;
+        if (k == 0 || k != perMilleFactors.length)
+            throw new IllegalArgumentException("need the same, non-zero number of times and factors");
+        for (int i = 0; i < k; i++) {
+            if (breakpointTimes[i] < 0 || breakpointTimes[i] >= period
+                    || (i > 0 && breakpointTimes[i] <= breakpointTimes[i - 1]))
+                throw new IllegalArgumentException("breakpoint times must increase within the period");
+            if (perMilleFactors[i] <= 0)
+                throw new IllegalArgumentException("factors must be positive");
+        }
+
+        int start = profileOffsets[profileCount];
+        if (start + k > times.length) {
+            times = Arrays.copyOf(times, Math.max(start + k, times.length * 2));
+            factors = Arrays.copyOf(factors, times.length);
+        }
+        System.arraycopy(breakpointTimes, 0, times, start, k);
+        System.arraycopy(perMilleFactors, 0, factors, start, k);
+
+        if (profileCount + 2 > profileOffsets.length)
+            profileOffsets = Arrays.copyOf(profileOffsets, (profileCount + 2) * 2);
+        if (profileCount == minFactor.length) {
+            minFactor = Arrays.copyOf(minFactor, profileCount * 2);
+            steepestDrop = Arrays.copyOf(steepestDrop, profileCount * 2);
+        }
+        profileOffsets[profileCount + 1] = start + k;
+
+        int min = Integer.MAX_VALUE;
+        double drop = 0;
+        for (int i = 0; i < k; i++) {
+            min = Math.min(min, perMilleFactors[i]);
+            // segment to the next breakpoint, wrapping around the period
+            int nextTime = i + 1 < k ? breakpointTimes[i + 1] : breakpointTimes[0] + period;
+            int nextFactor = perMilleFactors[(i + 1) % k];
+            drop = Math.max(drop, (double) (perMilleFactors[i] - nextFactor) / (nextTime - breakpointTimes[i]));
+        }
+        minFactor[profileCount] = min;
+        steepestDrop[profileCount] = drop;
+        return profileCount++;
+    }
+
+    /**
+     * @param edge    an edge index
+     * @param profile a profile id, or -1 to make the edge static again
+     */
+    public void assign(int edge, int profile) {
+        if (profile < -1 || profile >= profileCount)
+            throw new IllegalArgumentException("unknown profile " + profile);
+        // the travel time may fall by at most one unit per unit of entry time
+        if (profile >= 0 && graph.getWeight(edge) * steepestDrop[profile] / 1000.0 > 1.0)
+            throw new IllegalArgumentException("profile " + profile + " breaks FIFO on edge " + edge);
+        edgeProfile[edge] = profile;
+    }
+
+    /**
+     * @param edge an edge index
+     * @return profile id of the edge, -1 if static
+     */
+    public int getProfile(int edge) {
+        return edgeProfile[edge];
+    }
+
+    /**
+     * Rounding the exact travel time can make a later entry arrive one unit
+     * earlier than entering a unit sooner, so the result is raised to keep
+     * the arrival no earlier than that of the previous entry time.
+     *
+     * @param edge      an edge index
+     * @param entryTime time the edge is entered (absolute, may exceed the period)
+     * @return time needed to drive the edge
+     */
+    public int travelTime(int edge, long entryTime) {
+        int weight = graph.getWeight(edge);
+        int profile = edgeProfile[edge];
+        if (profile < 0)
+            return weight;
+        int time = (int) Math.floorMod(entryTime, (long) period);
+        int travel = roundedTravelTime(weight, profile, time);
+        int previous = roundedTravelTime(weight, profile, time == 0 ? period - 1 : time - 1);
+        // arrival = max(arrival, previous arrival), entering one unit later
+        return Math.max(travel, previous - 1);
+    }
+
+    private int roundedTravelTime(int weight, int profile, int time) {
+        return (int) Math.round(weight * factorAt(profile, time) / 1000.0);
+    }
+
+    /**
+     * @param edge an edge index
+     * @return the smallest travel time of the edge at any time of day
+     */
+    public int minTravelTime(int edge) {
+        int weight = graph.getWeight(edge);
+        int profile = edgeProfile[edge];
+        if (profile < 0)
+            return weight;
+        return (int) Math.floor(weight * minFactor[profile] / 1000.0);
+    }
+
+    /**
+     * Copy of the graph where every edge weighs its smallest travel time. Any
+     * heuristic that is admissible on it (for example landmarks) is
+     * admissible for time-dependent queries too.
+     *
+     * @return the lower-bound graph
+     */
+    public CsrGraph lowerBoundGraph() {
+        int n = graph.getNodeCount();
+        int m = graph.getEdgeCount();
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        for (int v = 0; v < n; v++) {
+            offsets[v] = graph.edgeStart(v);
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                targets[e] = graph.getTarget(e);
+                weights[e] = minTravelTime(e);
+            }
+        }
+        offsets[n] = m;
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Interpolates the factor of a profile at a time within the period
+     */
+    private double factorAt(int profile, int time) {
+        int from = profileOffsets[profile], to = profileOffsets[profile + 1];
+        // last breakpoint at or before time, wrapping to the final one
+        int i = Arrays.binarySearch(times, from, to, time);
+        if (i < 0)
+            i = -i - 2;
+        int t0, f0, t1, f1;
+        if (i < from) {
+            t0 = times[to - 1] - period;
+            f0 = factors[to - 1];
+            t1 = times[from];
+            f1 = factors[from];
+        } else {
+            t0 = times[i];
+            f0 = factors[i];
+            t1 = i + 1 < to ? times[i + 1] : times[from] + period;
+            f1 = i + 1 < to ? factors[i + 1] : factors[from];
+        }
+        if (t1 == t0)
+            return f0;
+        return f0 + (double) (f1 - f0) * (time - t0) / (t1 - t0);
+    }
+}
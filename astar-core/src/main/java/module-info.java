@@ -0,0 +1,7 @@
+module com.example.astar.core {
+    requires java.management;
+    requires jdk.httpserver;
+    requires jdk.jfr;
+
+    exports com.example.astar.core;
+}
@@ -0,0 +1,95 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRouterTest {
+
+    @Test
+    void distancesAndPathsMatchDijkstra() {
+        Random random = new Random(61);
+        TrafficGraph graph = RandomGraphs.directed(random, 300, 800, 30);
+        int[] sources = new int[2000], targets = new int[2000];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(graph.getNodeCount());
+            targets[i] = random.nextInt(graph.getNodeCount());
+        }
+        Dijkstra dijkstra = new Dijkstra(graph);
+
+        for (BatchRouter router : List.of(new BatchRouter(graph), BatchRouter.withVirtualThreads(graph))) {
+            try (router) {
+                int[] distances = router.distances(sources, targets).join();
+                List<List<Integer>> paths = router.paths(sources, targets).join();
+                for (int i = 0; i < sources.length; i++) {
+                    int expected = dijkstra.getDistance(sources[i], targets[i]);
+                    assertEquals(expected, distances[i], "query " + i);
+                    RandomGraphs.assertPath(graph, paths.get(i), sources[i], targets[i], expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void routeStopsSkipsUndrivableLegs() {
+        Random random = new Random(62);
+        CsrGraph graph = RandomGraphs.undirected(random, 200, 400, 20);
+        Dijkstra dijkstra = new Dijkstra(graph);
+        int[] sources = new int[100];
+        int[][] stops = new int[100][];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(graph.getNodeCount());
+            stops[i] = new int[1 + random.nextInt(4)];
+            for (int j = 0; j < stops[i].length; j++)
+                stops[i][j] = random.nextInt(graph.getNodeCount());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (BatchRouter router = new BatchRouter(graph, pool, 4)) {
+            List<List<Integer>> routes = router.routeStops(sources, stops).join();
+            for (int i = 0; i < sources.length; i++) {
+                // the same legs, driven one search at a time
+                List<Integer> expected = new ArrayList<>(List.of(sources[i]));
+                int current = sources[i];
+                for (int stop : stops[i]) {
+                    List<Integer> leg = dijkstra.findPath(current, stop);
+                    if (leg.isEmpty())
+                        continue;
+                    expected.addAll(leg.subList(1, leg.size()));
+                    current = stop;
+                }
+                assertEquals(expected.get(expected.size() - 1), routes.get(i).get(routes.get(i).size() - 1));
+                assertEquals(pathCost(graph, expected), pathCost(graph, routes.get(i)), "request " + i);
+            }
+        } finally {
+            // the router does not own an executor it was given
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void emptyAndMismatchedBatches() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(63), 10, 20, 5);
+        try (BatchRouter router = new BatchRouter(graph)) {
+            assertEquals(0, router.distances(new int[0], new int[0]).join().length);
+            assertThrows(IllegalArgumentException.class, () -> router.distances(new int[1], new int[2]));
+            assertThrows(IllegalArgumentException.class, () -> router.routeStops(new int[1], new int[0][]));
+        }
+    }
+
+    private static long pathCost(RoadGraph graph, List<Integer> path) {
+        long cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int best = SearchWorkspace.INFINITY;
+            for (int e = graph.edgeStart(path.get(i - 1)); e < graph.edgeEnd(path.get(i - 1)); e++) {
+                if (graph.getTarget(e) == path.get(i))
+                    best = Math.min(best, graph.getWeight(e));
+            }
+            cost += best;
+        }
+        return cost;
+    }
+}
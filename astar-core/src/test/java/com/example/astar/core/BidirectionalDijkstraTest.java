@@ -0,0 +1,35 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BidirectionalDijkstraTest {
+
+    @Test
+    void matchesDijkstraOnDirectedGraphs() {
+        Random random = new Random(1);
+        for (int round = 0; round < 30; round++) {
+            TrafficGraph graph = RandomGraphs.directed(random, 30, 45, 20);
+            BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph);
+            for (int start = 0; start < graph.getNodeCount(); start++) {
+                int[] expected = RandomGraphs.distancesFrom(graph, start);
+                for (int end = 0; end < graph.getNodeCount(); end++) {
+                    assertEquals(expected[end], bidirectional.getDistance(start, end), start + " -> " + end);
+                    RandomGraphs.assertPath(graph, bidirectional.findPath(start, end), start, end, expected[end]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void startEqualsEnd() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(2), 10, 15, 9);
+        BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph);
+        assertEquals(0, bidirectional.getDistance(4, 4));
+        assertEquals(List.of(4), bidirectional.findPath(4, 4));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    @Test
+    void matchesDijkstraOnUndirectedGraphs() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++)
+            checkAllPairs(RandomGraphs.undirected(random, 40, 70, 30));
+    }
+
+    @Test
+    void matchesDijkstraOnDirectedGraphs() {
+        Random random = new Random(4);
+        for (int round = 0; round < 20; round++)
+            checkAllPairs(RandomGraphs.directed(random, 40, 70, 30));
+    }
+
+    private static void checkAllPairs(RoadGraph graph) {
+        ContractionHierarchy ch = ContractionHierarchy.build(graph);
+        for (int start = 0; start < graph.getNodeCount(); start++) {
+            int[] expected = RandomGraphs.distancesFrom(graph, start);
+            for (int end = 0; end < graph.getNodeCount(); end++) {
+                assertEquals(expected[end], ch.getDistance(start, end), start + " -> " + end);
+                RandomGraphs.assertPath(graph, ch.findPath(start, end), start, end, expected[end]);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceMatrixTest {
+
+    @Test
+    void matchesDijkstraFromEverySource() {
+        Random random = new Random(51);
+        TrafficGraph graph = RandomGraphs.directed(random, 200, 500, 30);
+        Dijkstra dijkstra = new Dijkstra(graph);
+        SearchWorkspace ws = new SearchWorkspace(graph.getNodeCount());
+        for (int round = 0; round < 20; round++) {
+            int[] sources = randomNodes(random, graph, 1 + random.nextInt(6));
+            // duplicate targets on purpose, each column must still be filled
+            int[] targets = randomNodes(random, graph, 1 + random.nextInt(8));
+            targets[0] = targets[targets.length - 1];
+
+            DistanceMatrix matrix = DistanceMatrix.compute(dijkstra, sources, targets, true, ws);
+            assertEquals(sources.length, matrix.getSourceCount());
+            assertEquals(targets.length, matrix.getTargetCount());
+            for (int i = 0; i < sources.length; i++) {
+                int[] expected = RandomGraphs.distancesFrom(graph, sources[i]);
+                for (int j = 0; j < targets.length; j++) {
+                    assertEquals(expected[targets[j]], matrix.getDistance(i, j));
+                    RandomGraphs.assertPath(graph, matrix.getPath(i, j), sources[i], targets[j],
+                            expected[targets[j]]);
+                }
+            }
+            for (boolean mark : ws.getTargetMarks())
+                assertFalse(mark, "target marks left set");
+        }
+    }
+
+    @Test
+    void withoutPathsKeepsOnlyDistances() {
+        Random random = new Random(52);
+        CsrGraph graph = RandomGraphs.undirected(random, 100, 250, 20);
+        int[] nodes = randomNodes(random, graph, 5);
+        DistanceMatrix matrix = DistanceMatrix.compute(new Dijkstra(graph), nodes, nodes, false);
+        assertFalse(matrix.hasPaths());
+        assertThrows(IllegalStateException.class, () -> matrix.getPath(0, 1));
+        for (int i = 0; i < nodes.length; i++)
+            assertEquals(0, matrix.getDistance(i, i));
+    }
+
+    @Test
+    void badTargetLeavesNoMarks() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(53), 50, 100, 20);
+        Dijkstra dijkstra = new Dijkstra(graph);
+        SearchWorkspace ws = new SearchWorkspace(graph.getNodeCount());
+        assertThrows(ArrayIndexOutOfBoundsException.class,
+                () -> DistanceMatrix.compute(dijkstra, new int[] { 0 }, new int[] { 1, 2, 50 }, false, ws));
+        for (boolean mark : ws.getTargetMarks())
+            assertFalse(mark, "target marks left set");
+    }
+
+    private static int[] randomNodes(Random random, RoadGraph graph, int count) {
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++)
+            nodes[i] = random.nextInt(graph.getNodeCount());
+        return nodes;
+    }
+}
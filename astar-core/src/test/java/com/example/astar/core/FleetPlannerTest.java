@@ -0,0 +1,141 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetPlannerTest {
+
+    @Test
+    void plansRespectSeatsAndCostWhatTheyReport() {
+        Random random = new Random(81);
+        RoadGraph graph = connected(random, 300);
+        int[] starts = randomNodes(random, graph, 5);
+        int[] capacities = { 4, 4, 3, 2, 6 };
+        int[] pickups = randomNodes(random, graph, 15);
+        int[] demands = new int[pickups.length];
+        for (int i = 0; i < demands.length; i++)
+            demands[i] = 1 + random.nextInt(2);
+
+        FleetPlanner.Plan plan = planner(graph).plan(7, starts, capacities, pickups, demands, null, null);
+        check(graph, plan, 7, starts, capacities, pickups, demands, null, null);
+    }
+
+    @Test
+    void timeWindowsHold() {
+        Random random = new Random(82);
+        RoadGraph graph = connected(random, 200);
+        int[] starts = randomNodes(random, graph, 4);
+        int[] capacities = { 5, 5, 5, 5 };
+        int[] pickups = randomNodes(random, graph, 20);
+        int[] demands = new int[pickups.length];
+        Arrays.fill(demands, 1);
+        int[] earliest = new int[pickups.length], latest = new int[pickups.length];
+        for (int i = 0; i < pickups.length; i++) {
+            earliest[i] = random.nextInt(400);
+            latest[i] = earliest[i] + random.nextInt(300);
+        }
+
+        FleetPlanner.Plan plan = planner(graph).plan(3, starts, capacities, pickups, demands, earliest, latest);
+        check(graph, plan, 3, starts, capacities, pickups, demands, earliest, latest);
+        assertTrue(plan.getUnassigned().length < pickups.length / 2, "most riders fit their windows");
+    }
+
+    @Test
+    void ridersThatFitNowhereAreReported() {
+        Random random = new Random(83);
+        Graph graph = new Graph();
+        for (int v = 0; v + 1 < 50; v++)
+            graph.addEdge(new Edge(v, v + 1, 1 + random.nextInt(10)));
+        // 50 and 51 can only reach each other
+        graph.addEdge(new Edge(50, 51, 1));
+        CsrGraph roads = graph.freeze();
+
+        int[] starts = { 0, 49 };
+        int[] capacities = { 2, 1 };
+        int[] pickups = { 10, 20, 30, 40, 50, 25 };
+        FleetPlanner.Plan plan = planner(roads).plan(5, starts, capacities, pickups);
+
+        int[] demands = new int[pickups.length];
+        Arrays.fill(demands, 1);
+        check(roads, plan, 5, starts, capacities, pickups, demands, null, null);
+        int[] unassigned = plan.getUnassigned();
+        // three seats for five reachable riders, and rider 4 is cut off
+        assertEquals(3, unassigned.length);
+        assertTrue(Arrays.stream(unassigned).anyMatch(r -> r == 4));
+    }
+
+    /**
+     * Checks seats, windows and costs with a separate Dijkstra, and that
+     * every rider is either in exactly one car or reported unassigned
+     */
+    private static void check(RoadGraph graph, FleetPlanner.Plan plan, int destination, int[] starts,
+            int[] capacities, int[] pickups, int[] demands, int[] earliest, int[] latest) {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        int[] seen = new int[pickups.length];
+        long total = 0;
+        assertEquals(starts.length, plan.getVehicleCount());
+        for (int k = 0; k < plan.getVehicleCount(); k++) {
+            int[] riders = plan.getRiders(k);
+            int load = 0;
+            for (int rider : riders) {
+                seen[rider]++;
+                load += demands[rider];
+            }
+            assertTrue(load <= capacities[k], "car " + k + " carries " + load + " in " + capacities[k] + " seats");
+
+            List<Integer> stops = plan.getStops(k);
+            assertEquals(starts[k], stops.get(0));
+            long cost = 0, time = 0;
+            for (int i = 1; i < stops.size(); i++) {
+                int leg = dijkstra.getDistance(stops.get(i - 1), stops.get(i));
+                assertNotEquals(SearchWorkspace.INFINITY, leg, "car " + k + " has an undrivable leg");
+                cost += leg;
+                if (earliest != null && i <= riders.length) {
+                    int rider = riders[i - 1];
+                    time = Math.max(time + leg, earliest[rider]);
+                    assertTrue(time <= latest[rider], "rider " + rider + " picked up late");
+                }
+            }
+            if (riders.length > 0)
+                assertEquals(destination, stops.get(stops.size() - 1));
+            assertEquals(cost, plan.getRouteCost(k), "cost of car " + k);
+            total += cost;
+        }
+        assertEquals(total, plan.getCost());
+        for (int rider : plan.getUnassigned())
+            seen[rider]++;
+        for (int rider = 0; rider < pickups.length; rider++)
+            assertEquals(1, seen[rider], "rider " + rider + " placed " + seen[rider] + " times");
+    }
+
+    private static FleetPlanner planner(RoadGraph graph) {
+        FleetPlanner planner = new FleetPlanner(graph);
+        planner.setParallelism(1);
+        planner.setTimeBudgetMillis(100);
+        planner.setSeed(5);
+        return planner;
+    }
+
+    /**
+     * @return a random graph with a path through all nodes, so every node
+     *         reaches every other
+     */
+    private static CsrGraph connected(Random random, int n) {
+        Graph graph = new Graph();
+        for (int v = 0; v + 1 < n; v++)
+            graph.addEdge(new Edge(v, v + 1, 1 + random.nextInt(30)));
+        for (int i = 0; i < n; i++)
+            graph.addEdge(new Edge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(30)));
+        return graph.freeze();
+    }
+
+    private static int[] randomNodes(Random random, RoadGraph graph, int count) {
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++)
+            nodes[i] = random.nextInt(graph.getNodeCount());
+        return nodes;
+    }
+}
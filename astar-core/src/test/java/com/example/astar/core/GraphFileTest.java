@@ -0,0 +1,64 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphFileTest {
+
+    @Test
+    void mappedGraphMatchesWrittenGraph() throws IOException {
+        Random random = new Random(31);
+        CsrGraph graph = RandomGraphs.undirected(random, 300, 900, 50);
+        double[][] locations = new double[graph.getNodeCount()][];
+        for (int v = 0; v < locations.length; v++)
+            locations[v] = new double[] { random.nextDouble(), random.nextDouble() };
+
+        Path file = Files.createTempFile("graph", ".bin");
+        try {
+            GraphFile.write(file, graph, locations);
+            assertSameGraph(graph, locations, GraphFile.map(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void sectionsSpanningSeveralMappingsReadBack() throws IOException {
+        Random random = new Random(32);
+        CsrGraph graph = RandomGraphs.undirected(random, 300, 900, 50);
+        double[][] locations = new double[graph.getNodeCount()][];
+        for (int v = 0; v < locations.length; v++)
+            locations[v] = new double[] { random.nextDouble(), random.nextDouble() };
+
+        Path file = Files.createTempFile("graph", ".bin");
+        try {
+            GraphFile.write(file, graph, locations);
+            // 64 byte pieces split every section, so lookups cross pieces
+            assertSameGraph(graph, locations, GraphFile.map(file, 64));
+            assertSameGraph(graph, locations, GraphFile.map(file, 8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertSameGraph(RoadGraph expected, double[][] locations, MappedGraph actual) {
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        for (int v = 0; v < expected.getNodeCount(); v++) {
+            assertEquals(expected.edgeStart(v), actual.edgeStart(v));
+            assertEquals(expected.edgeEnd(v), actual.edgeEnd(v));
+            assertEquals(locations[v][0], actual.getX(v));
+            assertEquals(locations[v][1], actual.getY(v));
+        }
+        for (int e = 0; e < expected.getEdgeCount(); e++) {
+            assertEquals(expected.getTarget(e), actual.getTarget(e));
+            assertEquals(expected.getWeight(e), actual.getWeight(e));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphImporterTest {
+
+    @Test
+    void skipsCommentsAndHeaderAndRemapsIds() throws IOException {
+        GraphImporter importer = new GraphImporter();
+        CsrGraph graph = importEdges(importer, """
+                # exported road list
+
+                source;target;weight
+                9000000000,42,7\r
+                42\t9000000000\t3
+                42 -5 2
+                -5,-5,1
+                """);
+
+        NodeIdMap ids = importer.getIds();
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(9000000000L, ids.getExternalId(0));
+        assertEquals(42, ids.getExternalId(1));
+        assertEquals(-5, ids.getExternalId(2));
+
+        // parallel roads merge to the cheaper one, the self-loop is dropped
+        assertEquals(4, graph.getEdgeCount());
+        assertEquals(3, weight(graph, 0, 1));
+        assertEquals(3, weight(graph, 1, 0));
+        assertEquals(2, weight(graph, 1, 2));
+        assertEquals(2, weight(graph, 2, 1));
+    }
+
+    @Test
+    void directedEdgesGoOneWay() throws IOException {
+        GraphImporter importer = new GraphImporter();
+        importer.setUndirected(false);
+        CsrGraph graph = importEdges(importer, "1,2,5\n2,3,6\n");
+        assertEquals(2, graph.getEdgeCount());
+        assertEquals(5, weight(graph, 0, 1));
+        assertEquals(-1, weight(graph, 1, 0));
+    }
+
+    @Test
+    void nodeFileFillsKnownNodes() throws IOException {
+        GraphImporter importer = new GraphImporter();
+        importEdges(importer, "10,20,1\n20,30,1\n");
+        Path nodes = write("id,x,y\n20,1.5,-2\n99,0,0\n10,3,4\n");
+        try {
+            double[][] locations = importer.importNodes(nodes);
+            assertArrayEquals(new double[] { 3, 4 }, locations[0]);
+            assertArrayEquals(new double[] { 1.5, -2 }, locations[1]);
+            assertTrue(Double.isNaN(locations[2][0]));
+        } finally {
+            Files.delete(nodes);
+        }
+    }
+
+    @Test
+    void badLinesAreReportedWithTheirNumber() throws IOException {
+        assertBadLine("1,2,3\n1,2,18446744073709551621\n", ":2: integer out of range in field 3");
+        assertBadLine("1,2,3\n1,99999999999999999999,3\n", ":2: integer out of range in field 2");
+        assertBadLine("1,2,3\n1,2,x\n", ":2: expected an integer in field 3");
+        assertBadLine("1,2\n", ":1: expected 3 fields");
+        assertBadLine("# comment\n1,2,-4\n", ":2: weight out of range");
+        assertBadLine("1,2,3\nsource,target,weight\n", ":2: expected an integer in field 1");
+    }
+
+    private static void assertBadLine(String content, String message) throws IOException {
+        IOException e = assertThrows(IOException.class, () -> importEdges(new GraphImporter(), content));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private static CsrGraph importEdges(GraphImporter importer, String content) throws IOException {
+        Path file = write(content);
+        try {
+            return importer.importEdges(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Path write(String content) throws IOException {
+        Path file = Files.createTempFile("edges", ".csv");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    /**
+     * @return weight of the edge from u to v, -1 if there is none
+     */
+    private static int weight(RoadGraph graph, int u, int v) {
+        for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+            if (graph.getTarget(e) == v)
+                return graph.getWeight(e);
+        }
+        return -1;
+    }
+}
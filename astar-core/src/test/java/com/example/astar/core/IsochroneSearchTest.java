@@ -0,0 +1,118 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsochroneSearchTest {
+
+    @Test
+    void budgetsMatchDijkstraBothWays() {
+        Random random = new Random(91);
+        TrafficGraph graph = RandomGraphs.directed(random, 300, 900, 30);
+        int n = graph.getNodeCount();
+        // all pairs from forward searches only, so the reverse direction is
+        // checked without transposing
+        int[][] all = new int[n][];
+        for (int v = 0; v < n; v++)
+            all[v] = RandomGraphs.distancesFrom(graph, v);
+
+        IsochroneSearch lazy = new IsochroneSearch(graph);
+        IsochroneSearch shared = new IsochroneSearch(graph, graph.transpose());
+        for (int round = 0; round < 30; round++) {
+            int node = random.nextInt(n);
+            int budget = random.nextInt(120);
+            int[] from = all[node];
+            int[] to = new int[n];
+            for (int v = 0; v < n; v++)
+                to[v] = all[v][node];
+
+            assertMatches(from, budget, lazy.reachableFrom(node, budget));
+            assertMatches(to, budget, lazy.reachingTo(node, budget));
+            assertMatches(to, budget, shared.reachingTo(node, budget));
+        }
+    }
+
+    @Test
+    void eachMatchesOneAtATime() {
+        Random random = new Random(92);
+        CsrGraph graph = RandomGraphs.undirected(random, 200, 500, 20);
+        IsochroneSearch search = new IsochroneSearch(graph);
+        int[] nodes = { 0, 17, 17, 199 };
+        Isochrone[] forward = search.reachableFromEach(nodes, 60);
+        Isochrone[] backward = search.reachingEach(nodes, 60);
+        for (int i = 0; i < nodes.length; i++) {
+            int[] expected = RandomGraphs.distancesFrom(graph, nodes[i]);
+            assertMatches(expected, 60, forward[i]);
+            // undirected, so the reverse isochrone is the same set
+            assertMatches(expected, 60, backward[i]);
+        }
+    }
+
+    @Test
+    void manySourcesGiveTheNearest() {
+        Random random = new Random(93);
+        TrafficGraph graph = RandomGraphs.directed(random, 300, 900, 30);
+        int n = graph.getNodeCount();
+        int[] sources = { 5, 80, 150, 299 };
+        int[][] from = new int[sources.length][];
+        for (int i = 0; i < sources.length; i++)
+            from[i] = RandomGraphs.distancesFrom(graph, sources[i]);
+        int[] nearest = new int[n];
+        for (int v = 0; v < n; v++) {
+            nearest[v] = SearchWorkspace.INFINITY;
+            for (int[] distances : from)
+                nearest[v] = Math.min(nearest[v], distances[v]);
+        }
+
+        Isochrone isochrone = new IsochroneSearch(graph).reachableFromAny(sources, 70);
+        assertMatches(nearest, 70, isochrone);
+        for (int i = 0; i < isochrone.size(); i++) {
+            int origin = isochrone.getOrigin(i);
+            int k = indexOf(sources, origin);
+            assertTrue(k >= 0, "origin " + origin + " is not a source");
+            assertEquals(isochrone.getDistance(i), from[k][isochrone.getNode(i)], "node " + isochrone.getNode(i));
+        }
+    }
+
+    @Test
+    void negativeBudgetIsRejected() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(94), 10, 20, 5);
+        IsochroneSearch search = new IsochroneSearch(graph);
+        assertThrows(IllegalArgumentException.class, () -> search.reachableFrom(0, -1));
+        assertEquals(1, search.reachableFrom(0, 0).size());
+    }
+
+    /**
+     * Checks that the isochrone holds exactly the nodes within budget, with
+     * their distances, nearest first
+     */
+    private static void assertMatches(int[] expected, int budget, Isochrone isochrone) {
+        int inside = 0;
+        for (int distance : expected) {
+            if (distance <= budget)
+                inside++;
+        }
+        assertEquals(inside, isochrone.size());
+        assertEquals(budget, isochrone.getBudget());
+        boolean[] seen = new boolean[expected.length];
+        for (int i = 0; i < isochrone.size(); i++) {
+            int node = isochrone.getNode(i);
+            assertFalse(seen[node], "node " + node + " reached twice");
+            seen[node] = true;
+            assertEquals(expected[node], isochrone.getDistance(i), "node " + node);
+            if (i > 0)
+                assertTrue(isochrone.getDistance(i - 1) <= isochrone.getDistance(i), "not nearest first");
+        }
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value)
+                return i;
+        }
+        return -1;
+    }
+}
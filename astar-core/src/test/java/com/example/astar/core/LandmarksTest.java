@@ -0,0 +1,78 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LandmarksTest {
+
+    @Test
+    void lowerBoundsNeverOverestimate() {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            TrafficGraph graph = RandomGraphs.directed(random, 40, 70, 25);
+            Landmarks landmarks = round % 2 == 0 ? Landmarks.selectAvoid(graph, 4, round)
+                    : Landmarks.selectFarthest(graph, 4, round);
+            for (int v = 0; v < graph.getNodeCount(); v++) {
+                int[] dist = RandomGraphs.distancesFrom(graph, v);
+                for (int t = 0; t < graph.getNodeCount(); t++) {
+                    if (dist[t] != SearchWorkspace.INFINITY)
+                        assertTrue(landmarks.lowerBound(v, t) <= dist[t], v + " -> " + t);
+                }
+            }
+        }
+    }
+
+    @Test
+    void altMatchesDijkstra() {
+        Random random = new Random(6);
+        for (int round = 0; round < 20; round++) {
+            TrafficGraph graph = RandomGraphs.directed(random, 40, 70, 25);
+            AStar alt = new AStar(graph, new LandmarkHeuristic(Landmarks.selectAvoid(graph, 3, round)));
+            for (int start = 0; start < graph.getNodeCount(); start++) {
+                int[] expected = RandomGraphs.distancesFrom(graph, start);
+                for (int end = 0; end < graph.getNodeCount(); end++) {
+                    assertEquals(expected[end], alt.getDistance(start, end), start + " -> " + end);
+                    RandomGraphs.assertPath(graph, alt.findPath(start, end), start, end, expected[end]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void selectsDistinctLandmarks() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(7), 12, 11, 5);
+        Landmarks landmarks = Landmarks.selectAvoid(graph, 8, 7);
+        assertEquals(8, landmarks.getCount());
+        assertEquals(8, IntStream.range(0, 8).map(landmarks::getLandmark).distinct().count());
+    }
+
+    @Test
+    void emptyGraphHasNoLandmarks() {
+        CsrGraph graph = new Graph().freeze();
+        assertEquals(0, Landmarks.selectAvoid(graph, 4, 1).getCount());
+        assertEquals(0, Landmarks.selectFarthest(graph, 4, 1).getCount());
+    }
+
+    @Test
+    void selectedTablesMatchExplicitLandmarks() {
+        TrafficGraph graph = RandomGraphs.directed(new Random(13), 60, 100, 25);
+        Landmarks selected = Landmarks.selectAvoid(graph, 5, 13);
+        int[] ids = IntStream.range(0, selected.getCount()).map(selected::getLandmark).toArray();
+        Landmarks explicit = new Landmarks(graph, ids);
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            for (int t = 0; t < graph.getNodeCount(); t++)
+                assertEquals(explicit.lowerBound(v, t), selected.lowerBound(v, t), v + " -> " + t);
+        }
+    }
+
+    @Test
+    void rejectsNoLandmarks() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(14), 10, 15, 5);
+        assertThrows(IllegalArgumentException.class, () -> Landmarks.selectFarthest(graph, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> Landmarks.selectAvoid(graph, 0, 1));
+    }
+}
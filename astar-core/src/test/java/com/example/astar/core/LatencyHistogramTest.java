@@ -0,0 +1,86 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBoundaries() {
+        assertEquals(31, LatencyHistogram.bucketOf(31));
+        assertEquals(31, LatencyHistogram.upperBound(31));
+        // from 32 on every power of two gets 32 buckets
+        assertEquals(32, LatencyHistogram.bucketOf(32));
+        assertEquals(32, LatencyHistogram.upperBound(32));
+        assertEquals(63, LatencyHistogram.bucketOf(63));
+        assertEquals(63, LatencyHistogram.upperBound(63));
+        assertEquals(64, LatencyHistogram.bucketOf(64));
+        assertEquals(64, LatencyHistogram.bucketOf(65));
+        assertEquals(65, LatencyHistogram.upperBound(64));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    void bucketsAreContiguousAndNarrow() {
+        for (int b = 1; b < LatencyHistogram.BUCKETS; b++) {
+            long low = LatencyHistogram.upperBound(b - 1) + 1, high = LatencyHistogram.upperBound(b);
+            assertEquals(b, LatencyHistogram.bucketOf(low), "lowest value of bucket " + b);
+            assertEquals(b, LatencyHistogram.bucketOf(high), "highest value of bucket " + b);
+            assertTrue(high - low <= low / 32, "bucket " + b + " is too wide");
+        }
+        Random random = new Random(91);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+        }
+    }
+
+    @Test
+    void percentilesOfKnownValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 100; v >= 1; v--)
+            histogram.record(v);
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        // 99 shares the bucket 98..99
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        // the bucket of 100 reaches 101, but no value above the maximum is reported
+        assertEquals(100, histogram.getValueAtPercentile(100));
+
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+
+        LatencyHistogram large = new LatencyHistogram();
+        large.record(1_000_000);
+        large.record(2_000_000);
+        long p50 = large.getValueAtPercentile(50);
+        assertTrue(p50 >= 1_000_000 && p50 <= 1_000_000 + 1_000_000 / 32, "p50 " + p50);
+        assertEquals(2_000_000, large.getValueAtPercentile(100));
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 0; v < 1000; v++)
+            histogram.record(v * 1000L);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        histogram.record(7);
+        assertEquals(1, histogram.getCount());
+        assertEquals(7, histogram.getValueAtPercentile(99));
+    }
+}
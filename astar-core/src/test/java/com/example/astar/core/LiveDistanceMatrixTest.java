@@ -0,0 +1,49 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveDistanceMatrixTest {
+
+    @Test
+    void matchesFreshMatrixAfterEveryUpdate() {
+        Random random = new Random(72);
+        CsrGraph base = RandomGraphs.undirected(random, 150, 400, 30);
+        LiveTraffic traffic = new LiveTraffic(base);
+        int[] sources = new int[6], targets = new int[8];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = random.nextInt(base.getNodeCount());
+        for (int j = 0; j < targets.length; j++)
+            targets[j] = random.nextInt(base.getNodeCount());
+        LiveDistanceMatrix live = new LiveDistanceMatrix(traffic.snapshot(), sources, targets);
+        assertSameAsFresh(live, traffic.snapshot(), sources, targets);
+
+        for (int update = 0; update < 25; update++) {
+            int[] from = new int[1 + random.nextInt(6)], to = new int[from.length], weights = new int[from.length];
+            for (int i = 0; i < from.length; i++) {
+                int e = random.nextInt(base.getEdgeCount());
+                from[i] = traffic.snapshot().getSource(e);
+                to[i] = base.getTarget(e);
+                // mostly jams, sometimes a road gets faster
+                weights[i] = random.nextInt(3) == 0 ? 1 : 1 + random.nextInt(300);
+            }
+            int repaired = live.update(traffic.applyUpdates(from, to, weights, random.nextBoolean()));
+            assertEquals(repaired, live.getLastRepairedRows());
+            assertTrue(repaired <= sources.length);
+            assertSameAsFresh(live, traffic.snapshot(), sources, targets);
+        }
+    }
+
+    private static void assertSameAsFresh(LiveDistanceMatrix live, TrafficGraph snapshot, int[] sources,
+            int[] targets) {
+        DistanceMatrix fresh = DistanceMatrix.compute(new Dijkstra(snapshot), sources, targets, false);
+        assertArrayEquals(fresh.getDistances(), live.getDistances());
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++)
+                RandomGraphs.assertPath(snapshot, live.getPath(i, j), sources[i], targets[j], live.getDistance(i, j));
+        }
+    }
+}
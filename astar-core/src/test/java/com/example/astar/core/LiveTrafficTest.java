@@ -0,0 +1,74 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveTrafficTest {
+
+    @Test
+    void snapshotsKeepTheirWeightsAfterLaterUpdates() {
+        Random random = new Random(71);
+        // several weight pages, so updates copy some and share the others
+        CsrGraph base = RandomGraphs.undirected(random, 3000, 9000, 50);
+        LiveTraffic traffic = new LiveTraffic(base);
+
+        List<TrafficGraph> snapshots = new ArrayList<>();
+        List<int[]> weightsSeen = new ArrayList<>();
+        snapshots.add(traffic.snapshot());
+        weightsSeen.add(weights(traffic.snapshot()));
+        for (int update = 0; update < 10; update++) {
+            int[] from = new int[20], to = new int[20], weights = new int[20];
+            for (int i = 0; i < from.length; i++) {
+                int e = random.nextInt(base.getEdgeCount());
+                from[i] = traffic.snapshot().getSource(e);
+                to[i] = base.getTarget(e);
+                weights[i] = 1 + random.nextInt(200);
+            }
+            LiveTraffic.Update applied = traffic.applyUpdates(from, to, weights, true);
+            assertSame(applied.getSnapshot(), traffic.snapshot());
+            assertEquals(update + 1, traffic.getVersion());
+            snapshots.add(applied.getSnapshot());
+            weightsSeen.add(weights(applied.getSnapshot()));
+        }
+
+        assertArrayEquals(weights(base), weightsSeen.get(0));
+        for (int i = 0; i < snapshots.size(); i++)
+            assertArrayEquals(weightsSeen.get(i), weights(snapshots.get(i)), "snapshot " + i);
+    }
+
+    @Test
+    void updateReportsOnlyEdgesThatChanged() {
+        Graph graph = new Graph();
+        graph.addEdge(new Edge(0, 1, 5));
+        graph.addEdge(new Edge(1, 2, 7));
+        LiveTraffic traffic = new LiveTraffic(graph.freeze());
+        TrafficGraph before = traffic.snapshot();
+
+        // 0 - 1 changes, 1 - 2 keeps its weight, 0 - 2 does not exist
+        LiveTraffic.Update update = traffic.applyUpdates(new int[] { 0, 1, 0 }, new int[] { 1, 2, 2 },
+                new int[] { 9, 7, 3 }, true);
+        TrafficGraph after = update.getSnapshot();
+        int forward = after.findEdge(0, 1), backward = after.findEdge(1, 0);
+        int[] changed = update.getChangedEdges().clone();
+        Arrays.sort(changed);
+        assertArrayEquals(new int[] { Math.min(forward, backward), Math.max(forward, backward) }, changed);
+        assertEquals(9, after.getWeight(forward));
+        assertEquals(9, after.getWeight(backward));
+        assertEquals(5, before.getWeight(forward));
+        assertEquals(5, before.getWeight(backward));
+
+        traffic.applyUpdates(new int[] { 1 }, new int[] { 2 }, new int[] { 1 }, false);
+        assertEquals(1, traffic.snapshot().getWeight(traffic.snapshot().findEdge(1, 2)));
+        assertEquals(7, traffic.snapshot().getWeight(traffic.snapshot().findEdge(2, 1)));
+    }
+
+    private static int[] weights(RoadGraph graph) {
+        int[] weights = new int[graph.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++)
+            weights[e] = graph.getWeight(e);
+        return weights;
+    }
+}
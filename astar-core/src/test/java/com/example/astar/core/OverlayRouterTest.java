@@ -0,0 +1,87 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverlayRouterTest {
+
+    private static final int SIDE = 9;
+
+    @Test
+    void matchesDijkstra() {
+        Random random = new Random(15);
+        for (int round = 0; round < 5; round++) {
+            TrafficGraph graph = grid(random);
+            GraphPartition partition = GraphPartition.inertialFlow(graph, locations(), 6, 24);
+            checkAllPairs(graph, OverlayRouter.customize(partition, graph));
+        }
+    }
+
+    @Test
+    void withWeightsMatchesDijkstraOnTheNewWeights() {
+        Random random = new Random(16);
+        TrafficGraph graph = grid(random);
+        GraphPartition partition = GraphPartition.inertialFlow(graph, locations(), 6, 24);
+        OverlayRouter router = OverlayRouter.customize(partition, graph);
+        int allCells = router.getCustomizedCellCount();
+        for (int update = 0; update < 5; update++) {
+            int[] changed = new int[1 + random.nextInt(3)];
+            int[] weights = new int[changed.length];
+            for (int i = 0; i < changed.length; i++) {
+                changed[i] = random.nextInt(graph.getEdgeCount());
+                weights[i] = 1 + random.nextInt(100);
+            }
+            graph = graph.withWeights(changed, weights);
+            router = router.withWeights(graph, changed);
+            assertTrue(router.getCustomizedCellCount() < allCells, "only cells with a changed road are redone");
+            checkAllPairs(graph, router);
+        }
+    }
+
+    private static void checkAllPairs(RoadGraph graph, OverlayRouter router) {
+        for (int start = 0; start < graph.getNodeCount(); start++) {
+            int[] expected = RandomGraphs.distancesFrom(graph, start);
+            for (int end = 0; end < graph.getNodeCount(); end++) {
+                assertEquals(expected[end], router.getDistance(start, end), start + " -> " + end);
+                RandomGraphs.assertPath(graph, router.findPath(start, end), start, end, expected[end]);
+            }
+        }
+    }
+
+    /**
+     * @return a SIDE by SIDE grid with a few roads missing and different
+     *         weights in each direction
+     */
+    private static TrafficGraph grid(Random random) {
+        Graph roads = new Graph();
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                int v = y * SIDE + x;
+                if (x + 1 < SIDE && random.nextInt(8) > 0)
+                    roads.addEdge(new Edge(v, v + 1, 1 + random.nextInt(20)));
+                if (y + 1 < SIDE && random.nextInt(8) > 0)
+                    roads.addEdge(new Edge(v, v + SIDE, 1 + random.nextInt(20)));
+            }
+        }
+        // keep the last node so the graph has all SIDE * SIDE nodes
+        roads.addEdge(new Edge(SIDE * SIDE - 1, SIDE * SIDE - 2, 1 + random.nextInt(20)));
+        TrafficGraph graph = new TrafficGraph(roads.freeze());
+        int[] changed = new int[graph.getEdgeCount()];
+        int[] weights = new int[changed.length];
+        for (int e = 0; e < changed.length; e++) {
+            changed[e] = e;
+            weights[e] = 1 + random.nextInt(20);
+        }
+        return graph.withWeights(changed, weights);
+    }
+
+    private static double[][] locations() {
+        double[][] locations = new double[SIDE * SIDE][];
+        for (int v = 0; v < locations.length; v++)
+            locations[v] = new double[] { v % SIDE, v / SIDE };
+        return locations;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.astar.core;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Small random graphs and a plain Dijkstra oracle for the routing tests
+ */
+final class RandomGraphs {
+
+    private RandomGraphs() {
+    }
+
+    /**
+     * @param random    source of randomness
+     * @param n         number of nodes
+     * @param edges     number of roads, both directions each
+     * @param maxWeight largest road weight
+     * @return a symmetric graph, not necessarily connected
+     */
+    static CsrGraph undirected(Random random, int n, int edges, int maxWeight) {
+        Graph graph = new Graph();
+        // an edge on the last node fixes the node count at n
+        graph.addEdge(new Edge(n - 1, random.nextInt(n), 1 + random.nextInt(maxWeight)));
+        for (int i = 1; i < edges; i++)
+            graph.addEdge(new Edge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(maxWeight)));
+        return graph.freeze();
+    }
+
+    /**
+     * @return the undirected graph with the weight of about half the edges
+     *         redrawn, so most roads cost differently in each direction
+     */
+    static TrafficGraph directed(Random random, int n, int edges, int maxWeight) {
+        TrafficGraph graph = new TrafficGraph(undirected(random, n, edges, maxWeight));
+        int[] changed = new int[graph.getEdgeCount() / 2];
+        int[] weights = new int[changed.length];
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = random.nextInt(graph.getEdgeCount());
+            weights[i] = 1 + random.nextInt(maxWeight);
+        }
+        return graph.withWeights(changed, weights);
+    }
+
+    /**
+     * @return distance from source to every node, SearchWorkspace.INFINITY
+     *         for unreachable ones
+     */
+    static int[] distancesFrom(RoadGraph graph, int source) {
+        return new Dijkstra(graph).distancesFrom(source);
+    }
+
+    /**
+     * Checks that path is a drivable path from start to end of the given cost
+     */
+    static void assertPath(RoadGraph graph, List<Integer> path, int start, int end, int cost) {
+        if (cost == SearchWorkspace.INFINITY) {
+            assertTrue(path.isEmpty(), "path to an unreachable node");
+            return;
+        }
+        assertFalse(path.isEmpty(), "no path from " + start + " to " + end);
+        assertEquals(start, path.get(0));
+        assertEquals(end, path.get(path.size() - 1));
+        long total = 0;
+        for (int i = 1; i < path.size(); i++)
+            total += cheapestEdge(graph, path.get(i - 1), path.get(i));
+        assertEquals(cost, total, "cost of path " + path);
+    }
+
+    private static int cheapestEdge(RoadGraph graph, int from, int to) {
+        int best = SearchWorkspace.INFINITY;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (graph.getTarget(e) == to)
+                best = Math.min(best, graph.getWeight(e));
+        }
+        assertNotEquals(SearchWorkspace.INFINITY, best, "no road from " + from + " to " + to);
+        return best;
+    }
+}
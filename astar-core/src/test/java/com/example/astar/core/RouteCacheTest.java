@@ -0,0 +1,91 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheTest {
+
+    // the fake router's answers and how often it was asked
+    private final Map<Long, Integer> calls = new HashMap<>();
+    private long version;
+    private long now;
+
+    private final Router counting = (start, end) -> {
+        calls.merge(key(start, end), 1, Integer::sum);
+        return List.of(start, end);
+    };
+
+    @Test
+    void hitsAreServedWithoutTheDelegate() {
+        RouteCache cache = new RouteCache(counting, 10, Duration.ofSeconds(1), () -> version, () -> now);
+        assertEquals(List.of(1, 2), cache.findPath(1, 2));
+        assertEquals(List.of(1, 2), cache.findPath(1, 2));
+        assertEquals(1, calls.get(key(1, 2)));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void leastRecentlyUsedRouteIsEvicted() {
+        RouteCache cache = new RouteCache(counting, 2, Duration.ofSeconds(1), () -> version, () -> now);
+        cache.findPath(1, 2);
+        cache.findPath(3, 4);
+        // touching 1 -> 2 makes 3 -> 4 the eldest
+        cache.findPath(1, 2);
+        cache.findPath(5, 6);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+
+        cache.findPath(1, 2);
+        cache.findPath(3, 4);
+        assertEquals(1, calls.get(key(1, 2)));
+        assertEquals(2, calls.get(key(3, 4)));
+    }
+
+    @Test
+    void routesExpireAfterTheTimeToLive() {
+        long ttl = Duration.ofSeconds(5).toNanos();
+        RouteCache cache = new RouteCache(counting, 10, Duration.ofNanos(ttl), () -> version, () -> now);
+        now = 1_000;
+        cache.findPath(1, 2);
+        now += ttl;
+        cache.findPath(1, 2);
+        assertEquals(1, calls.get(key(1, 2)), "served at exactly the time to live");
+        now += 1;
+        cache.findPath(1, 2);
+        assertEquals(2, calls.get(key(1, 2)));
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    void graphChangeDropsEveryRoute() {
+        RouteCache cache = new RouteCache(counting, 10, Duration.ofSeconds(1), () -> version, () -> now);
+        cache.findPath(1, 2);
+        cache.findPath(3, 4);
+        version++;
+        cache.findPath(1, 2);
+        assertEquals(2, calls.get(key(1, 2)));
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void routeComputedDuringAChangeIsNotStored() {
+        Router changing = (start, end) -> {
+            version++;
+            return counting.findPath(start, end);
+        };
+        RouteCache cache = new RouteCache(changing, 10, Duration.ofSeconds(1), () -> version, () -> now);
+        cache.findPath(1, 2);
+        assertEquals(0, cache.size());
+    }
+
+    private static long key(int start, int end) {
+        return ((long) start << 32) | end;
+    }
+}
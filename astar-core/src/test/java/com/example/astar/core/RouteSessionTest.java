@@ -0,0 +1,76 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSessionTest {
+
+    @Test
+    void routeFollowsTheStopOrder() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            TrafficGraph graph = RandomGraphs.directed(random, 40, 90, 20);
+            Dijkstra forward = new Dijkstra(graph);
+            RouteSession session = new RouteSession(forward, new Dijkstra(graph.transpose()), 0, 1);
+            Set<Integer> stops = new HashSet<>();
+            for (int edit = 0; edit < 12; edit++) {
+                int node = 2 + random.nextInt(graph.getNodeCount() - 2);
+                if (stops.remove(node)) {
+                    assertTrue(session.removeStop(node));
+                } else {
+                    stops.add(node);
+                    assertTrue(session.addStop(node));
+                }
+                checkRoute(graph, session, stops);
+            }
+        }
+    }
+
+    @Test
+    void routeStopsAtTheFirstUnreachableStop() {
+        // 0 - 1 - 2 and an island 3 - 4
+        Graph roads = new Graph();
+        roads.addEdge(new Edge(0, 1, 5));
+        roads.addEdge(new Edge(1, 2, 5));
+        roads.addEdge(new Edge(3, 4, 5));
+        RouteSession session = new RouteSession(roads.freeze(), 0, 2);
+        assertTrue(session.isComplete());
+        session.addStop(4);
+
+        assertFalse(session.isComplete());
+        assertEquals(List.of(0, 4, 2), session.getStops());
+        assertFalse(session.isReachable(0));
+        assertEquals(List.of(0), session.getRoute());
+        assertEquals(0, session.getCost());
+
+        session.removeStop(4);
+        assertTrue(session.isComplete());
+        assertEquals(List.of(0, 1, 2), session.getRoute());
+        assertEquals(10, session.getCost());
+    }
+
+    private static void checkRoute(RoadGraph graph, RouteSession session, Set<Integer> expectedStops) {
+        List<Integer> stops = session.getStops();
+        assertEquals(expectedStops, new HashSet<>(stops.subList(1, stops.size() - 1)));
+        assertEquals(0, stops.get(0));
+        assertEquals(1, stops.get(stops.size() - 1));
+
+        // the route drives the legs in order up to the first unreachable one
+        long cost = 0;
+        int reached = 0;
+        for (int leg = 0; leg < stops.size() - 1; leg++) {
+            int d = RandomGraphs.distancesFrom(graph, stops.get(leg))[stops.get(leg + 1)];
+            assertEquals(d != SearchWorkspace.INFINITY, session.isReachable(leg));
+            if (d == SearchWorkspace.INFINITY)
+                break;
+            cost += d;
+            reached = leg + 1;
+        }
+        assertEquals(reached == stops.size() - 1, session.isComplete());
+        assertEquals(cost, session.getCost());
+        RandomGraphs.assertPath(graph, session.getRoute(), 0, stops.get(reached), (int) cost);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingEngineTest {
+
+    @Test
+    void emptyGraphRoutesOnceEdgesAreAdded() {
+        Graph graph = new Graph();
+        RoutingEngine engine = new RoutingEngine(graph);
+
+        graph.addEdge(new Edge(0, 1, 4));
+        graph.addEdge(new Edge(1, 2, 3));
+        assertEquals(List.of(0, 1, 2), engine.findPath(0, 2));
+        assertEquals(7, engine.getDistance(0, 2));
+    }
+}
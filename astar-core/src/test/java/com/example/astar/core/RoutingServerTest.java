@@ -0,0 +1,97 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingServerTest {
+
+    private static final Pattern DISTANCE = Pattern.compile("\"distance\":(null|\\d+)");
+
+    @Test
+    void concurrentPointQueriesShareSearchesAndAreExact() throws Exception {
+        Random random = new Random(101);
+        CsrGraph graph = RandomGraphs.undirected(random, 2000, 6000, 50);
+        int[] starts = { 3, 500, 1200, 1999 };
+        int[][] queries = new int[400][];
+        for (int i = 0; i < queries.length; i++)
+            queries[i] = new int[] { starts[random.nextInt(starts.length)], random.nextInt(graph.getNodeCount()) };
+
+        try (RoutingServer server = new RoutingServer(graph, 0);
+                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.setBatchWindowMicros(5000);
+            server.start();
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int[] query : queries) {
+                responses.add(clients.submit(() -> {
+                    go.await();
+                    return get(server, "/route?from=" + query[0] + "&to=" + query[1]);
+                }));
+            }
+            go.countDown();
+
+            Dijkstra dijkstra = new Dijkstra(graph);
+            for (int i = 0; i < queries.length; i++) {
+                Response response = responses.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(200, response.status, response.body);
+                Matcher m = DISTANCE.matcher(response.body);
+                assertTrue(m.find(), response.body);
+                int expected = dijkstra.getDistance(queries[i][0], queries[i][1]);
+                int actual = m.group(1).equals("null") ? SearchWorkspace.INFINITY : Integer.parseInt(m.group(1));
+                assertEquals(expected, actual, "query " + i);
+            }
+            assertEquals(queries.length, server.getPointQueryCount());
+            assertTrue(server.getPointSearchCount() < server.getPointQueryCount(),
+                    server.getPointSearchCount() + " searches for " + server.getPointQueryCount() + " queries");
+        }
+    }
+
+    @Test
+    void badNodesAreRejected() throws Exception {
+        CsrGraph graph = RandomGraphs.undirected(new Random(102), 100, 300, 10);
+        try (RoutingServer server = new RoutingServer(graph, 0)) {
+            server.start();
+            assertEquals(400, get(server, "/route?from=1").status);
+            assertEquals(400, get(server, "/route?from=1&to=100").status);
+            assertEquals(400, get(server, "/route?from=-1&to=5").status);
+            assertEquals(400, get(server, "/route?from=1&to=x").status);
+            assertEquals(400, get(server, "/matrix?sources=1&targets=1,100").status);
+            assertEquals(404, get(server, "/metrics").status);
+            assertEquals(200, get(server, "/route?from=1&to=99").status);
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static Response get(RoutingServer server, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI
+                .create("http://localhost:" + server.getPort() + path).toURL().openConnection();
+        try {
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
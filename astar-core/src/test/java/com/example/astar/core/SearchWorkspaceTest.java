@@ -0,0 +1,55 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchWorkspaceTest {
+
+    @Test
+    void interruptedSearchThrowsAndWorkspaceIsReusable() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(41), 20_000, 60_000, 10);
+        Dijkstra dijkstra = new Dijkstra(graph);
+        SearchWorkspace ws = new SearchWorkspace(graph.getNodeCount());
+        int[] expected = RandomGraphs.distancesFrom(graph, 0);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> dijkstra.search(0, -1, ws));
+            assertTrue(Thread.currentThread().isInterrupted(), "interrupt flag cleared");
+        } finally {
+            Thread.interrupted();
+        }
+
+        dijkstra.search(0, -1, ws);
+        for (int v = 0; v < graph.getNodeCount(); v++)
+            assertEquals(expected[v], ws.getDistance(v));
+    }
+
+    @Test
+    void cancelledEditLeavesSessionUnchanged() {
+        CsrGraph graph = RandomGraphs.undirected(new Random(42), 20_000, 60_000, 10);
+        RouteSession session = new RouteSession(graph, 0, 1);
+        assertTrue(session.addStop(2));
+        List<Integer> stops = session.getStops();
+        List<Integer> route = session.getRoute();
+
+        // the new stop is far from the others, so its searches settle many nodes
+        int far = graph.getNodeCount() - 1;
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> session.addStop(far));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(stops, session.getStops());
+        assertEquals(route, session.getRoute());
+        assertFalse(session.containsStop(far));
+
+        assertTrue(session.addStop(far));
+        assertTrue(session.containsStop(far));
+    }
+}
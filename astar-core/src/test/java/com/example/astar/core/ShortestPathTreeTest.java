@@ -0,0 +1,36 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortestPathTreeTest {
+
+    @Test
+    void repairMatchesRecomputedTree() {
+        Random random = new Random(8);
+        for (int round = 0; round < 20; round++) {
+            TrafficGraph graph = RandomGraphs.directed(random, 50, 90, 20);
+            ShortestPathTree tree = new ShortestPathTree(graph, random.nextInt(graph.getNodeCount()));
+            for (int update = 0; update < 15; update++) {
+                // a few roads at a time, some cheaper and some jammed
+                int[] changed = new int[1 + random.nextInt(5)];
+                int[] weights = new int[changed.length];
+                for (int i = 0; i < changed.length; i++) {
+                    changed[i] = random.nextInt(graph.getEdgeCount());
+                    weights[i] = random.nextInt(4) == 0 ? 1 + random.nextInt(200) : 1 + random.nextInt(20);
+                }
+                graph = graph.withWeights(changed, weights);
+                tree.repair(graph, changed);
+
+                int[] expected = RandomGraphs.distancesFrom(graph, tree.getSource());
+                for (int v = 0; v < graph.getNodeCount(); v++) {
+                    assertEquals(expected[v], tree.getDistance(v), "node " + v + " after update " + update);
+                    RandomGraphs.assertPath(graph, tree.getPath(v), tree.getSource(), v, expected[v]);
+                }
+            }
+        }
+    }
+}
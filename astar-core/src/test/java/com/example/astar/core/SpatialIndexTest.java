@@ -0,0 +1,79 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+
+    @Test
+    void nearestMatchesLinearScan() {
+        Random random = new Random(17);
+        double[][] points = points(random, 500);
+        SpatialIndex index = new SpatialIndex(points);
+        for (int query = 0; query < 500; query++) {
+            double x = random.nextDouble() * 120 - 10, y = random.nextDouble() * 120 - 10;
+            int found = index.nearest(x, y);
+            double best = Double.MAX_VALUE;
+            for (double[] p : points)
+                best = Math.min(best, squaredDistance(p, x, y));
+            assertEquals(best, squaredDistance(points[found], x, y));
+        }
+    }
+
+    @Test
+    void boxAndRadiusMatchLinearScan() {
+        Random random = new Random(18);
+        double[][] points = points(random, 500);
+        SpatialIndex index = new SpatialIndex(points);
+        int[] out = new int[points.length];
+        for (int query = 0; query < 200; query++) {
+            double x1 = random.nextDouble() * 100, x2 = random.nextDouble() * 100;
+            double y1 = random.nextDouble() * 100, y2 = random.nextDouble() * 100;
+            double minX = Math.min(x1, x2), maxX = Math.max(x1, x2), minY = Math.min(y1, y2), maxY = Math.max(y1, y2);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < points.length; i++) {
+                if (points[i][0] >= minX && points[i][0] <= maxX && points[i][1] >= minY && points[i][1] <= maxY)
+                    expected.add(i);
+            }
+            assertEquals(expected, found(out, index.withinBox(minX, minY, maxX, maxY, out)));
+
+            double radius = random.nextDouble() * 30;
+            expected.clear();
+            for (int i = 0; i < points.length; i++) {
+                if (squaredDistance(points[i], x1, y1) <= radius * radius)
+                    expected.add(i);
+            }
+            assertEquals(expected, found(out, index.withinRadius(x1, y1, radius, out)));
+        }
+    }
+
+    @Test
+    void countsPastAFullBuffer() {
+        SpatialIndex index = new SpatialIndex(points(new Random(19), 100));
+        assertEquals(100, index.withinBox(-1, -1, 101, 101, new int[10]));
+    }
+
+    /**
+     * @return random points on a coarse lattice, so many share coordinates
+     */
+    private static double[][] points(Random random, int n) {
+        double[][] points = new double[n][];
+        for (int i = 0; i < n; i++)
+            points[i] = new double[] { random.nextInt(50) * 2, random.nextInt(50) * 2 };
+        return points;
+    }
+
+    private static Set<Integer> found(int[] out, int count) {
+        Set<Integer> found = new HashSet<>();
+        for (int i = 0; i < count; i++)
+            assertTrue(found.add(out[i]), "node " + out[i] + " reported twice");
+        return found;
+    }
+
+    private static double squaredDistance(double[] p, double x, double y) {
+        return (p[0] - x) * (p[0] - x) + (p[1] - y) * (p[1] - y);
+    }
+}
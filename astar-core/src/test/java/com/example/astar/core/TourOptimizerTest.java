@@ -0,0 +1,129 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TourOptimizerTest {
+
+    @Test
+    void heldKarpFindsOptimalOrder() {
+        Random random = new Random(9);
+        TourOptimizer optimizer = new TourOptimizer(RandomGraphs.undirected(random, 2, 1, 1));
+        for (int round = 0; round < 200; round++) {
+            int n = 3 + random.nextInt(6);
+            int[] matrix = new int[n * n];
+            for (int i = 0; i < matrix.length; i++)
+                matrix[i] = random.nextInt(100);
+
+            int[] order = optimizer.optimizeOrder(matrix, n);
+            assertValidOrder(order, n);
+            assertEquals(bruteForce(matrix, n), cost(order, matrix, n), "round " + round);
+        }
+    }
+
+    @Test
+    void tinyTourKeepsTheGivenOrder() {
+        TourOptimizer optimizer = new TourOptimizer(RandomGraphs.undirected(new Random(11), 2, 1, 1));
+        assertArrayEquals(new int[0], optimizer.optimizeOrder(new int[0], 0));
+        assertArrayEquals(new int[] { 0 }, optimizer.optimizeOrder(new int[] { 0 }, 1));
+        assertArrayEquals(new int[] { 0, 1 }, optimizer.optimizeOrder(new int[] { 0, 5, 7, 0 }, 2));
+        optimizer.setExactLimit(0);
+        assertArrayEquals(new int[] { 0 }, optimizer.optimizeOrder(new int[] { 0 }, 1));
+    }
+
+    @Test
+    void heuristicKeepsEndsAndVisitsEveryStop() {
+        Random random = new Random(10);
+        TourOptimizer optimizer = new TourOptimizer(RandomGraphs.undirected(random, 2, 1, 1));
+        optimizer.setExactLimit(0);
+        for (int round = 0; round < 50; round++) {
+            int n = 3 + random.nextInt(20);
+            int[] matrix = new int[n * n];
+            for (int i = 0; i < matrix.length; i++)
+                matrix[i] = random.nextInt(100);
+            assertValidOrder(optimizer.optimizeOrder(matrix, n), n);
+        }
+    }
+
+    @Test
+    void unreachableLegsDoNotOverflow() {
+        Random random = new Random(12);
+        TourOptimizer optimizer = new TourOptimizer(RandomGraphs.undirected(random, 2, 1, 1));
+        for (int round = 0; round < 100; round++) {
+            int n = 6 + random.nextInt(5);
+            int[] matrix = new int[n * n];
+            for (int i = 0; i < matrix.length; i++)
+                matrix[i] = random.nextInt(3) == 0 ? random.nextInt(100) : SearchWorkspace.INFINITY;
+            // one hidden order that can be driven all the way
+            int[] planted = new int[n];
+            for (int i = 0; i < n; i++)
+                planted[i] = i;
+            for (int i = n - 2; i > 1; i--)
+                swap(planted, i, 1 + random.nextInt(i));
+            for (int i = 1; i < n; i++)
+                matrix[planted[i - 1] * n + planted[i]] = random.nextInt(100);
+
+            int[] order = optimizer.optimizeOrder(matrix, n);
+            assertValidOrder(order, n);
+            assertEquals(bruteForce(matrix, n), cost(order, matrix, n), "round " + round);
+        }
+    }
+
+    static void assertValidOrder(int[] order, int n) {
+        assertEquals(n, order.length);
+        assertEquals(0, order[0]);
+        assertEquals(n - 1, order[n - 1]);
+        boolean[] seen = new boolean[n];
+        for (int stop : order) {
+            assertFalse(seen[stop], "stop " + stop + " visited twice");
+            seen[stop] = true;
+        }
+    }
+
+    /**
+     * @return cost of visiting the stops in order, Long.MAX_VALUE if a leg
+     *         cannot be driven
+     */
+    static long cost(int[] order, int[] matrix, int n) {
+        long total = 0;
+        for (int i = 1; i < n; i++) {
+            int d = matrix[order[i - 1] * n + order[i]];
+            if (d == SearchWorkspace.INFINITY)
+                return Long.MAX_VALUE;
+            total += d;
+        }
+        return total;
+    }
+
+    /**
+     * @return cost of the cheapest order, trying every permutation of the
+     *         intermediate stops
+     */
+    static long bruteForce(int[] matrix, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        return permute(order, 1, matrix, n);
+    }
+
+    private static long permute(int[] order, int from, int[] matrix, int n) {
+        if (from >= n - 2)
+            return cost(order, matrix, n);
+        long best = Long.MAX_VALUE;
+        for (int i = from; i < n - 1; i++) {
+            swap(order, from, i);
+            best = Math.min(best, permute(order, from + 1, matrix, n));
+            swap(order, from, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.astar.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TravelTimeProfilesTest {
+
+    private static final int PERIOD = 2000;
+
+    @Test
+    void laterEntryNeverArrivesEarlier() {
+        Random random = new Random(20);
+        Graph roads = new Graph();
+        for (int i = 0; i < 200; i++)
+            roads.addEdge(new Edge(i, i + 1, 1 + random.nextInt(400)));
+        CsrGraph graph = roads.freeze();
+        TravelTimeProfiles profiles = new TravelTimeProfiles(graph, PERIOD);
+
+        int assigned = 0;
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            int profile = profiles.addProfile(new int[] { 0, 300 + random.nextInt(200), 1000 + random.nextInt(500) },
+                    new int[] { 1000, 1000 + random.nextInt(2000), 1000 + random.nextInt(500) });
+            try {
+                profiles.assign(e, profile);
+                assigned++;
+            } catch (IllegalArgumentException tooSteep) {
+                continue;
+            }
+            long previous = Long.MIN_VALUE;
+            for (long t = 0; t < 2 * PERIOD; t++) {
+                long arrival = t + profiles.travelTime(e, t);
+                assertTrue(arrival >= previous, "edge " + e + " entered at " + t);
+                assertTrue(profiles.travelTime(e, t) >= profiles.minTravelTime(e));
+                previous = arrival;
+            }
+        }
+        assertTrue(assigned > 50, "too few profiles passed the FIFO check to test anything");
+    }
+
+    @Test
+    void roundingAtTheSteepestAllowedDropKeepsFifo() {
+        // travel time falls exactly one unit per unit of entry time, and the
+        // exact times land on .5 where floating point error picks the side
+        Graph roads = new Graph();
+        roads.addEdge(new Edge(0, 1, 700));
+        TravelTimeProfiles profiles = new TravelTimeProfiles(roads.freeze(), PERIOD);
+        profiles.assign(0, profiles.addProfile(new int[] { 0, 126 }, new int[] { 1165, 985 }));
+        for (long t = 1; t <= 126; t++)
+            assertTrue(t + profiles.travelTime(0, t) >= t - 1 + profiles.travelTime(0, t - 1), "entered at " + t);
+    }
+
+    @Test
+    void rejectsUnknownProfiles() {
+        Graph roads = new Graph();
+        roads.addEdge(new Edge(0, 1, 10));
+        TravelTimeProfiles profiles = new TravelTimeProfiles(roads.freeze(), PERIOD);
+        int profile = profiles.addProfile(new int[] { 0 }, new int[] { 1500 });
+        profiles.assign(0, profile);
+        profiles.assign(0, -1);
+        assertThrows(IllegalArgumentException.class, () -> profiles.assign(0, -2));
+        assertThrows(IllegalArgumentException.class, () -> profiles.assign(0, profile + 1));
+    }
+}
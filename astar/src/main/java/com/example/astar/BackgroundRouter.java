@@ -0,0 +1,149 @@
+package com.example.astar;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Computes routes on a background thread so the JavaFX Application Thread
+ * never waits for a search.
+ * <p>
+ * Only the newest edit matters: every edit brings the route state all the
+ * way to what the user selected, so a new edit or {@link #cancel()}
+ * interrupts the one in flight, which gives up at its next cancellation
+ * check, and drops any that has not started. A result that still arrives
+ * for an older edit is dropped too. Edits run one at a time on the same
+ * thread, so state they share, such as a
+ * {@link com.example.astar.core.RouteSession}, needs no locking. Results are
+ * handed back on the FX thread with {@link Platform#runLater}. All methods
+ * must be called on the FX thread.
+ */
+public class BackgroundRouter implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    // id of the newest request, results of other requests are stale
+    private long latestRequest;
+    private Future<?> inFlight;
+    private final ReadOnlyBooleanWrapper busy = new ReadOnlyBooleanWrapper(false);
+
+    // time from request to route on screen
+    private long completedCount;
+    private long lastMillis;
+    private long totalMillis;
+
+    public BackgroundRouter() {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts an edit in place of any earlier one, which is interrupted if it
+     * is running and skipped if it has not started
+     *
+     * @param edit    brings state owned by the routing thread up to date and
+     *                returns the new route; it must not depend on an earlier
+     *                edit having finished
+     * @param onRoute receives the route on the FX thread
+     * @param onError receives the failure on the FX thread
+     */
+    public void update(Supplier<List<Integer>> edit, Consumer<List<Integer>> onRoute, Consumer<RuntimeException> onError) {
+        cancel();
+        submit(edit, onRoute, onError);
+    }
+
+    private void submit(Supplier<List<Integer>> work, Consumer<List<Integer>> onRoute, Consumer<RuntimeException> onError) {
+        long id = latestRequest;
+        long started = System.nanoTime();
+        busy.set(true);
+        inFlight = executor.submit(() -> {
+            try {
+                List<Integer> route = work.get();
+                Platform.runLater(() -> {
+                    if (!finish(id))
+                        return;
+                    record(System.nanoTime() - started);
+                    onRoute.accept(route);
+                });
+            } catch (CancellationException e) {
+                // superseded by a newer edit, nothing to deliver; the
+                // executor clears the interrupt before its next task
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> {
+                    if (finish(id))
+                        onError.accept(e);
+                });
+            }
+        });
+    }
+
+    /**
+     * Abandons the edit in flight, if any
+     */
+    public void cancel() {
+        if (inFlight != null)
+            inFlight.cancel(true);
+        inFlight = null;
+        latestRequest++;
+        busy.set(false);
+    }
+
+    /**
+     * @return true while a request is being computed
+     */
+    public ReadOnlyBooleanProperty busyProperty() {
+        return busy.getReadOnlyProperty();
+    }
+
+    /**
+     * @return number of routes delivered so far
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return milliseconds from request to delivery of the last route
+     */
+    public long getLastMillis() {
+        return lastMillis;
+    }
+
+    /**
+     * @return average milliseconds from request to delivery
+     */
+    public double getAverageMillis() {
+        return completedCount == 0 ? 0 : (double) totalMillis / completedCount;
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Marks a request as done if it is still the newest one
+     */
+    private boolean finish(long id) {
+        if (id != latestRequest)
+            return false;
+        inFlight = null;
+        busy.set(false);
+        return true;
+    }
+
+    private void record(long nanos) {
+        lastMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        totalMillis += lastMillis;
+        completedCount++;
+    }
+}
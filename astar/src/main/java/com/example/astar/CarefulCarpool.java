@@ -4,17 +4,23 @@
 //  2/7/2025
 //
 //  Careful Carpool is an intelligent route optimization and visualization tool designed to efficiently plan carpool routes while minimizing
-//  travel time and distance. The system employs advanced data structures and algorithms, including Dijkstra's shortest path algorithm, to calculate optimized
+//  travel time and distance. The system employs advanced data structures and algorithms, including the A* shortest path algorithm, to calculate optimized
 //  routes based on user-defined start and end locations.
 //*******************************************************************
 
 package com.example.astar;
 
+import com.example.astar.core.Edge;
+import com.example.astar.core.Graph;
+import com.example.astar.core.RouteSession;
+import com.example.astar.core.RoutingEngine;
+import com.example.astar.core.SpatialIndex;
 import javafx.application.Application;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
@@ -25,11 +31,13 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javax.management.JMException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 public class CarefulCarpool extends Application {
     // List for selected houses by the user
-    private final List<House> selectedHouses = new ArrayList<>();
+    private final Set<Integer> selectedHouses = new LinkedHashSet<>();
     // List for all houses.
     private final List<House> houses = new ArrayList<>();
     // Hard-coded positions for the houses
@@ -43,9 +51,24 @@ public class CarefulCarpool extends Application {
     private TextField startField;
     private TextField endField;
     private Graph graph;
+    private RoutingEngine routing;
+    // snaps typed coordinates to the nearest house, and culls and hit-tests
+    // the canvas
+    private SpatialIndex houseIndex;
+    // computes routes off the FX thread
+    private BackgroundRouter backgroundRouter;
+    // current route, only touched on the routing thread
+    private RouteSession session;
+    // time to first path of the last route
+    private Text routeStats;
 
     private Pane pane;
 
+    // maps larger than this are drawn on a canvas
+    private static final int SCENE_GRAPH_LIMIT = 2000;
+    private boolean canvasMode;
+    private MapCanvas mapCanvas;
+
     /**
      * Creates the external application for the CarefulCarpool
      * 
@@ -57,11 +80,11 @@ public class CarefulCarpool extends Application {
 
         // Set up text fields and buttons
         startField = new TextField();
-        startField.setPromptText("Start Node");
+        startField.setPromptText("Start Node or x,y");
         startField.setLayoutX(50);
         startField.setLayoutY(750);
         endField = new TextField();
-        endField.setPromptText("End Node");
+        endField.setPromptText("End Node or x,y");
         endField.setLayoutX(200);
         endField.setLayoutY(750);
 
@@ -124,7 +147,56 @@ public class CarefulCarpool extends Application {
             int src = ed[0], dest = ed[1], weight = ed[2];
             graph.addEdge(new Edge(src, dest, weight));
         }
+        routing = new RoutingEngine(graph);
+        if (getParameters().getRaw().contains("--metrics")) {
+            // search counters and latencies show up in JConsole under com.example.astar
+            try {
+                routing.enableMetrics().register("carpool");
+            } catch (JMException e) {
+                System.err.println("Routing metrics not registered: " + e.getMessage());
+            }
+        }
+        houseIndex = new SpatialIndex(locations);
+        backgroundRouter = new BackgroundRouter();
+
+        canvasMode = getParameters().getRaw().contains("--canvas") || locations.length > SCENE_GRAPH_LIMIT;
+        if (canvasMode) {
+            // one canvas for the whole map, below the controls
+            mapCanvas = new MapCanvas(locations, houseIndex, edgeData, 7);
+            mapCanvas.setPrefSize(1300, 740);
+            mapCanvas.setOnHouseClicked(this::handleNodeClick);
+            pane.getChildren().add(0, mapCanvas);
+        } else {
+            drawSceneGraph(edgeData);
+        }
+
+        Button resetButton = new Button("Reset");
+        resetButton.setLayoutX(500);
+        resetButton.setLayoutY(750);
+        resetButton.setOnAction(e -> resetSelection());
+        pane.getChildren().add(resetButton);
 
+        ProgressIndicator routingProgress = new ProgressIndicator();
+        routingProgress.setLayoutX(580);
+        routingProgress.setLayoutY(745);
+        routingProgress.setPrefSize(30, 30);
+        routingProgress.visibleProperty().bind(backgroundRouter.busyProperty());
+        routeStats = new Text(630, 768, "");
+        pane.getChildren().addAll(routingProgress, routeStats);
+
+        Scene scene = new Scene(pane, 1300, 800);
+        primaryStage.setTitle("Dynamic Carpool Route Visualizer");
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    /**
+     * Draws every road and house as its own shape, which looks best but only
+     * scales to small maps
+     * 
+     * @param edgeData roads as {source, destination, weight}
+     */
+    private void drawSceneGraph(int[][] edgeData) {
         // ******************************************************************
         // Draw roads (edges) with a randomized connection style.
         // ******************************************************************
@@ -276,7 +348,7 @@ public class CarefulCarpool extends Application {
             label.toFront();
 
             final int nodeIndex = i;
-            house.setOnMouseClicked(e -> handleNodeClick(house, nodeIndex));
+            house.setOnMouseClicked(e -> handleNodeClick(nodeIndex));
 
             houses.add(house);
             pane.getChildren().addAll(house, label);
@@ -285,17 +357,6 @@ public class CarefulCarpool extends Application {
         for (House house : houses) {
             house.toFront();
         }
-
-        Button resetButton = new Button("Reset");
-        resetButton.setLayoutX(500);
-        resetButton.setLayoutY(750);
-        resetButton.setOnAction(e -> resetSelection());
-        pane.getChildren().add(resetButton);
-
-        Scene scene = new Scene(pane, 1300, 800);
-        primaryStage.setTitle("Dynamic Carpool Route Visualizer");
-        primaryStage.setScene(scene);
-        primaryStage.show();
     }
 
     /**
@@ -304,14 +365,14 @@ public class CarefulCarpool extends Application {
     private void setStartEndNodes() {
         try {
             if (startNode != null)
-                houses.get(startNode).setFill(Color.LIGHTBLUE);
+                setHouseFill(startNode, Color.LIGHTBLUE);
             if (endNode != null)
-                houses.get(endNode).setFill(Color.LIGHTBLUE);
+                setHouseFill(endNode, Color.LIGHTBLUE);
 
-            int newStart = Integer.parseInt(startField.getText().trim());
-            int newEnd = Integer.parseInt(endField.getText().trim());
+            int newStart = parseNode(startField.getText());
+            int newEnd = parseNode(endField.getText());
 
-            if (newStart < 0 || newStart >= houses.size() || newEnd < 0 || newEnd >= houses.size()) {
+            if (newStart < 0 || newStart >= locations.length || newEnd < 0 || newEnd >= locations.length) {
                 showAlert("Invalid Input", "Please enter valid node numbers within the range of available houses.");
                 return;
             }
@@ -324,55 +385,126 @@ public class CarefulCarpool extends Application {
             startNode = newStart;
             endNode = newEnd;
 
-            houses.get(startNode).setFill(Color.BLACK);
-            houses.get(endNode).setFill(Color.BLACK);
+            setHouseFill(startNode, Color.BLACK);
+            setHouseFill(endNode, Color.BLACK);
 
-            calculateAndHighlightPath();
+            rebuildSession();
         } catch (NumberFormatException e) {
-            showAlert("Invalid Input", "Please enter positive integer values for the node numbers.");
+            showAlert("Invalid Input", "Please enter node numbers or x,y coordinates.");
         }
     }
 
     /**
-     * Detects if the user clicks on a certain house
+     * @param text a node number, or an x,y position that is snapped to the
+     *             nearest house
+     * @return the node index
+     * @throws NumberFormatException if the text is neither
+     */
+    private int parseNode(String text) {
+        String[] parts = text.trim().split("\\s*,\\s*");
+        if (parts.length == 2)
+            return houseIndex.nearest(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]));
+        return Integer.parseInt(text.trim());
+    }
+
+    /**
+     * Detects if the user clicks on a certain house, which adds it to the
+     * route or takes it out again
      * 
-     * @param house     the house that was clicked on
      * @param nodeIndex index of the house that was clicked on
      */
-    private void handleNodeClick(House house, int nodeIndex) {
+    private void handleNodeClick(int nodeIndex) {
         if (startNode == null || endNode == null) {
             showAlert("Selection Error", "Please set both start and end nodes before selecting intermediate nodes.");
             return;
         }
         if (nodeIndex == startNode || nodeIndex == endNode)
             return;
-        if (!selectedHouses.contains(house)) {
-            selectedHouses.add(house);
-            house.setFill(Color.GREEN);
-            calculateAndHighlightPath();
+        if (selectedHouses.remove(nodeIndex)) {
+            setHouseFill(nodeIndex, Color.LIGHTBLUE);
+        } else {
+            selectedHouses.add(nodeIndex);
+            setHouseFill(nodeIndex, Color.GREEN);
         }
+        int start = startNode, end = endNode;
+        List<Integer> stops = new ArrayList<>(selectedHouses);
+        backgroundRouter.update(() -> syncSession(start, end, stops).getRoute(), this::showRoute,
+                this::showRoutingError);
     }
 
     /**
-     * Finds the optimal path between all the selected houses and calls to display
-     * it
+     * Starts a new route session for the current start and end with the
+     * houses already selected. Later clicks only edit this session, so each
+     * one costs a single search instead of re-routing every leg.
      */
-    private void calculateAndHighlightPath() {
-        if (startNode == null || endNode == null)
-            return;
+    private void rebuildSession() {
+        int start = startNode, end = endNode;
+        List<Integer> stops = new ArrayList<>(selectedHouses);
+        backgroundRouter.update(() -> {
+            session = null;
+            return syncSession(start, end, stops).getRoute();
+        }, this::showRoute, this::showRoutingError);
+    }
 
-        List<Integer> selectedNodeIndices = new ArrayList<>();
-        selectedNodeIndices.add(startNode);
-        for (House h : selectedHouses) {
-            int idx = houses.indexOf(h);
-            if (idx != startNode && idx != endNode)
-                selectedNodeIndices.add(idx);
+    /**
+     * Brings the session in line with the selection, only called on the
+     * routing thread. A click normally adds or removes a single stop. After
+     * a failed edit the session may be missing or be for other ends, and is
+     * started again. An edit cancelled by a newer click keeps the session,
+     * since every stop edit is all or nothing, and the newer click finishes
+     * the sync.
+     *
+     * @param start first stop of the route
+     * @param end   last stop of the route
+     * @param stops the selected houses
+     * @return the session, holding exactly the given stops
+     */
+    private RouteSession syncSession(int start, int end, List<Integer> stops) {
+        RouteSession current = session;
+        // dropped first, so an edit that fails part way leaves no session
+        session = null;
+        List<Integer> order = current == null ? null : current.getStops();
+        if (order == null || order.get(0) != start || order.get(order.size() - 1) != end) {
+            current = routing.newSession(start, end);
+            order = current.getStops();
         }
-        selectedNodeIndices.add(endNode);
+        try {
+            for (int stop : order.subList(1, order.size() - 1)) {
+                if (!stops.contains(stop))
+                    current.removeStop(stop);
+            }
+            for (int stop : stops)
+                current.addStop(stop);
+        } catch (CancellationException e) {
+            session = current;
+            throw e;
+        }
+        session = current;
+        return current;
+    }
 
-        List<Integer> path = findOptimizedPath(selectedNodeIndices);
+    /**
+     * Replaces the drawn route with a newly computed one
+     * 
+     * @param path node sequence of the route
+     */
+    private void showRoute(List<Integer> path) {
+        if (startNode == null || endNode == null)
+            return;
+        List<Integer> stops = new ArrayList<>(selectedHouses);
+        stops.add(startNode);
+        stops.add(endNode);
         clearPreviousPath();
-        highlightPath(path, selectedNodeIndices);
+        highlightPath(path, stops);
+        routeStats.setText(String.format("Route in %d ms (avg %.1f ms over %d)", backgroundRouter.getLastMillis(),
+                backgroundRouter.getAverageMillis(), backgroundRouter.getCompletedCount()));
+    }
+
+    /**
+     * @param e why the route could not be computed
+     */
+    private void showRoutingError(RuntimeException e) {
+        showAlert("Routing Error", "Could not compute the route: " + e.getMessage());
     }
 
     /**
@@ -383,6 +515,10 @@ public class CarefulCarpool extends Application {
      * @param selectedNodes all the selected houses
      */
     private void highlightPath(List<Integer> path, List<Integer> selectedNodes) {
+        if (canvasMode) {
+            mapCanvas.setRoute(path);
+            return;
+        }
         Set<String> drawnPairs = new HashSet<>();
         double offsetScale = 5.0;
 
@@ -466,89 +602,26 @@ public class CarefulCarpool extends Application {
      * Resets the start/end and selected houses
      */
     private void resetSelection() {
-        for (House house : selectedHouses) {
-            house.setFill(Color.LIGHTBLUE);
+        for (int node : selectedHouses) {
+            setHouseFill(node, Color.LIGHTBLUE);
         }
         selectedHouses.clear();
 
         if (startNode != null) {
-            houses.get(startNode).setFill(Color.LIGHTBLUE);
+            setHouseFill(startNode, Color.LIGHTBLUE);
             startNode = null;
         }
         if (endNode != null) {
-            houses.get(endNode).setFill(Color.LIGHTBLUE);
+            setHouseFill(endNode, Color.LIGHTBLUE);
             endNode = null;
         }
 
         startField.clear();
         endField.clear();
+        backgroundRouter.cancel();
         clearPreviousPath();
     }
 
-    /**
-     * Finds the optimized path and saves the node sequence to path
-     * 
-     * @param graph map of all the nodes and edges
-     * @param nodes all house indexes
-     * @return optimized path
-     */
-    private List<Integer> findOptimizedPath(List<Integer> nodes) {
-        List<Integer> path = new ArrayList<>();
-        int current = nodes.get(0);
-        path.add(current);
-
-        for (int i = 1; i < nodes.size(); i++) {
-            List<Integer> segment = dijkstra(current, nodes.get(i));
-            if (segment.isEmpty())
-                continue;
-            path.addAll(segment.subList(1, segment.size()));
-            current = nodes.get(i);
-        }
-        return path;
-    }
-
-    /**
-     * 
-     * @param start the start of the node
-     * @param end   the end of the node
-     * @return list of nodes representing the shortest path
-     */
-    private List<Integer> dijkstra(int start, int end) {
-        PriorityQueue<int[]> pq = new PriorityQueue<>(Comparator.comparingInt(a -> a[1]));
-        Map<Integer, Integer> dist = new HashMap<>();
-        Map<Integer, Integer> prev = new HashMap<>();
-
-        // Initialize distances for all nodes in the graph.
-        for (Integer node : graph.getNodes()) {
-            dist.put(node, Integer.MAX_VALUE);
-        }
-        dist.put(start, 0);
-        pq.add(new int[] { start, 0 });
-
-        while (!pq.isEmpty()) {
-            int[] current = pq.poll();
-            int node = current[0], cost = current[1];
-
-            if (cost > dist.get(node))
-                continue;
-
-            for (Edge edge : graph.getNeighbors(node)) {
-                int newCost = cost + edge.getWeight();
-                if (newCost < dist.getOrDefault(edge.getDestination(), Integer.MAX_VALUE)) {
-                    dist.put(edge.getDestination(), newCost);
-                    prev.put(edge.getDestination(), node);
-                    pq.add(new int[] { edge.getDestination(), newCost });
-                }
-            }
-        }
-
-        List<Integer> path = new ArrayList<>();
-        for (Integer at = end; at != null; at = prev.get(at))
-            path.add(at);
-        Collections.reverse(path);
-        return path.isEmpty() || path.get(0) != start ? Collections.emptyList() : path;
-    }
-
     /**
      * 
      * @param title   the title of the alert
@@ -569,10 +642,32 @@ public class CarefulCarpool extends Application {
      * @description Helper method to remove all lines drawn
      */
     private void clearPreviousPath() {
+        if (canvasMode)
+            mapCanvas.setRoute(Collections.emptyList());
         pane.getChildren().removeAll(drawnLines);
         drawnLines.clear();
     }
 
+    /**
+     * @param node  index of the house
+     * @param color new colour of the house, in whichever view is showing
+     */
+    private void setHouseFill(int node, Color color) {
+        if (canvasMode)
+            mapCanvas.setHouseColor(node, color);
+        else
+            houses.get(node).setFill(color);
+    }
+
+    /**
+     * Stops the routing thread when the window closes
+     */
+    @Override
+    public void stop() {
+        if (backgroundRouter != null)
+            backgroundRouter.close();
+    }
+
     // launch everything
     public static void main(String[] args) {
         launch(args);
@@ -0,0 +1,485 @@
+package com.example.astar;
+
+import com.example.astar.core.SpatialIndex;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Draws the whole map onto one {@link Canvas} instead of creating scene
+ * graph nodes for every road and house, for maps far too large for the
+ * node-per-shape view.
+ * <p>
+ * Roads are stroked as one path per style and houses are filled grouped by
+ * colour, so a frame costs a handful of state changes however big the map.
+ * Only roads and houses in the viewport are visited: roads are bucketed in a
+ * uniform grid and houses are found with the {@link SpatialIndex}, so a
+ * zoomed-in frame costs time for what is on screen, not for the whole map.
+ * Label text and curve control points are made once. Zoomed out, roads are
+ * plain lines and houses small squares; zoomed in, roads get their curves,
+ * centre lines and weight labels and houses get roofs and names. Drag to
+ * pan, scroll to zoom, click a house to select it.
+ */
+public class MapCanvas extends Pane {
+
+    // zoom from which curves, centre lines and labels are drawn
+    private static final double DETAIL_SCALE = 0.6;
+
+    // house half size in world units, and in pixels when zoomed out
+    private static final double HOUSE_SIZE = 12;
+    private static final double MIN_HOUSE_PIXELS = 2;
+
+    // how far from a house a click may land, in pixels
+    private static final double PICK_PIXELS = 14;
+
+    private static final Color DEFAULT_HOUSE = Color.LIGHTBLUE;
+
+    private final Canvas canvas = new Canvas();
+    private final double[][] locations;
+    private final SpatialIndex houseIndex;
+
+    // roads as parallel arrays, curveOffset bends the road sideways
+    private final int[] roadFrom, roadTo, roadWeight;
+    private final double[] curveOffset;
+
+    // control point of every road's curve
+    private final double[] controlX, controlY;
+
+    // roads by grid cell, for finding the visible ones
+    private final RoadGrid roadGrid;
+
+    private final Color[] houseColors;
+
+    // number of houses of every colour in use, kept by setHouseColor
+    private final Map<Color, Integer> palette = new LinkedHashMap<>();
+
+    // label text, made the first time a label is drawn
+    private final String[] houseLabels;
+    private final String[] roadLabels;
+
+    // roads and houses in the viewport, reused from frame to frame
+    private int[] visibleRoads = new int[256];
+    private int[] visibleHouses = new int[256];
+
+    // corners of a roof
+    private final double[] roofX = new double[3], roofY = new double[3];
+
+    private List<Integer> route = Collections.emptyList();
+
+    // screen = world * scale + offset
+    private double scale = 1, offsetX, offsetY;
+    private boolean fitted;
+    private boolean redrawPending;
+
+    private double dragX, dragY;
+    private boolean dragged;
+    private IntConsumer onHouseClicked = node -> {
+    };
+
+    /**
+     * @param locations  x/y position of every house
+     * @param houseIndex index over the same locations, shared with the caller
+     * @param roads      roads as {source, destination, weight}
+     * @param seed       seed for the road curves
+     */
+    public MapCanvas(double[][] locations, SpatialIndex houseIndex, int[][] roads, long seed) {
+        if (houseIndex.size() != locations.length)
+            throw new IllegalArgumentException("house index does not cover the locations");
+        this.locations = locations;
+        this.houseIndex = houseIndex;
+        int m = roads.length;
+        roadFrom = new int[m];
+        roadTo = new int[m];
+        roadWeight = new int[m];
+        curveOffset = new double[m];
+        controlX = new double[m];
+        controlY = new double[m];
+        Random random = new Random(seed);
+        for (int i = 0; i < m; i++) {
+            roadFrom[i] = roads[i][0];
+            roadTo[i] = roads[i][1];
+            roadWeight[i] = roads[i][2];
+            curveOffset[i] = random.nextDouble() < 0.33 ? 0 : random.nextDouble() * 100 - 50;
+            double[] a = locations[roadFrom[i]], b = locations[roadTo[i]];
+            double dx = b[0] - a[0], dy = b[1] - a[1];
+            double length = Math.max(1e-9, Math.sqrt(dx * dx + dy * dy));
+            controlX[i] = (a[0] + b[0]) / 2 - dy / length * curveOffset[i];
+            controlY[i] = (a[1] + b[1]) / 2 + dx / length * curveOffset[i];
+        }
+        roadGrid = new RoadGrid(this);
+        houseColors = new Color[locations.length];
+        Arrays.fill(houseColors, DEFAULT_HOUSE);
+        if (locations.length > 0)
+            palette.put(DEFAULT_HOUSE, locations.length);
+        houseLabels = new String[locations.length];
+        roadLabels = new String[m];
+
+        getChildren().add(canvas);
+        installHandlers();
+    }
+
+    /**
+     * @param handler called with the index of a clicked house
+     */
+    public void setOnHouseClicked(IntConsumer handler) {
+        this.onHouseClicked = handler;
+    }
+
+    /**
+     * @param node  a house index
+     * @param color new colour of the house
+     */
+    public void setHouseColor(int node, Color color) {
+        Color old = houseColors[node];
+        if (old.equals(color))
+            return;
+        palette.computeIfPresent(old, (c, count) -> count == 1 ? null : count - 1);
+        palette.merge(color, 1, Integer::sum);
+        houseColors[node] = color;
+        requestRedraw();
+    }
+
+    /**
+     * @param path sequence of nodes to highlight, empty to clear
+     */
+    public void setRoute(List<Integer> path) {
+        route = List.copyOf(path);
+        requestRedraw();
+    }
+
+    /**
+     * Zooms and pans so that the whole map is visible
+     */
+    public void fitToView() {
+        double w = getWidth(), h = getHeight();
+        if (w <= 0 || h <= 0 || locations.length == 0)
+            return;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (double[] p : locations) {
+            minX = Math.min(minX, p[0]);
+            minY = Math.min(minY, p[1]);
+            maxX = Math.max(maxX, p[0]);
+            maxY = Math.max(maxY, p[1]);
+        }
+        double margin = 4 * HOUSE_SIZE;
+        scale = Math.min(w / (maxX - minX + 2 * margin), h / (maxY - minY + 2 * margin));
+        offsetX = (w - (maxX + minX) * scale) / 2;
+        offsetY = (h - (maxY + minY) * scale) / 2;
+        fitted = true;
+        requestRedraw();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            if (!fitted)
+                fitToView();
+            requestRedraw();
+        }
+    }
+
+    /**
+     * Coalesces redraw requests into one frame
+     */
+    private void requestRedraw() {
+        if (redrawPending)
+            return;
+        redrawPending = true;
+        Platform.runLater(() -> {
+            redrawPending = false;
+            draw();
+        });
+    }
+
+    private void installHandlers() {
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+            dragged = false;
+        });
+        setOnMouseDragged(e -> {
+            offsetX += e.getX() - dragX;
+            offsetY += e.getY() - dragY;
+            dragged |= Math.abs(e.getX() - dragX) + Math.abs(e.getY() - dragY) > 0;
+            dragX = e.getX();
+            dragY = e.getY();
+            requestRedraw();
+        });
+        setOnMouseClicked(e -> {
+            if (dragged || e.getButton() != MouseButton.PRIMARY)
+                return;
+            int node = houseAt(e.getX(), e.getY());
+            if (node >= 0)
+                onHouseClicked.accept(node);
+        });
+        setOnScroll(e -> {
+            double factor = Math.exp(e.getDeltaY() * 0.002);
+            // keep the point under the cursor in place
+            offsetX = e.getX() - (e.getX() - offsetX) * factor;
+            offsetY = e.getY() - (e.getY() - offsetY) * factor;
+            scale *= factor;
+            requestRedraw();
+        });
+    }
+
+    /**
+     * @return index of the house closest to a screen position within the
+     *         pick radius, or -1
+     */
+    private int houseAt(double screenX, double screenY) {
+        double x = (screenX - offsetX) / scale, y = (screenY - offsetY) / scale;
+        return houseIndex.nearestWithin(x, y, Math.max(PICK_PIXELS / scale, HOUSE_SIZE));
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setTransform(1, 0, 0, 1, 0, 0);
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setTransform(scale, 0, 0, scale, offsetX, offsetY);
+
+        // visible part of the map in world coordinates, padded for roofs and labels
+        double pad = 60;
+        double minX = -offsetX / scale - pad, minY = -offsetY / scale - pad;
+        double maxX = (canvas.getWidth() - offsetX) / scale + pad;
+        double maxY = (canvas.getHeight() - offsetY) / scale + pad;
+        boolean detailed = scale >= DETAIL_SCALE;
+
+        drawRoads(gc, minX, minY, maxX, maxY, detailed);
+        drawRoute(gc);
+        drawHouses(gc, minX, minY, maxX, maxY, detailed);
+    }
+
+    private void drawRoads(GraphicsContext gc, double minX, double minY, double maxX, double maxY, boolean detailed) {
+        int count = roadGrid.collect(minX, minY, maxX, maxY, visibleRoads);
+        if (count > visibleRoads.length) {
+            visibleRoads = new int[Integer.highestOneBit(count) * 2];
+            roadGrid.collect(minX, minY, maxX, maxY, visibleRoads);
+        }
+
+        gc.setStroke(Color.DARKGRAY);
+        gc.setLineWidth(detailed ? 8 : 1 / scale);
+        gc.setLineDashes();
+        traceRoads(gc, count, detailed);
+        gc.stroke();
+        if (!detailed)
+            return;
+
+        gc.setStroke(Color.YELLOW);
+        gc.setLineWidth(2);
+        gc.setLineDashes(10, 10);
+        traceRoads(gc, count, true);
+        gc.stroke();
+        gc.setLineDashes();
+
+        gc.setFill(Color.DARKRED);
+        gc.setFont(Font.getDefault());
+        for (int k = 0; k < count; k++) {
+            int i = visibleRoads[k];
+            double[] a = locations[roadFrom[i]], b = locations[roadTo[i]];
+            // midpoint of the quadratic curve
+            double x = 0.25 * a[0] + 0.5 * controlX[i] + 0.25 * b[0];
+            double y = 0.25 * a[1] + 0.5 * controlY[i] + 0.25 * b[1];
+            String label = roadLabels[i];
+            if (label == null)
+                roadLabels[i] = label = String.valueOf(roadWeight[i]);
+            gc.fillText(label, x, y);
+        }
+    }
+
+    /**
+     * Adds the first count visible roads to the current path
+     */
+    private void traceRoads(GraphicsContext gc, int count, boolean curved) {
+        gc.beginPath();
+        for (int k = 0; k < count; k++) {
+            int i = visibleRoads[k];
+            double[] a = locations[roadFrom[i]], b = locations[roadTo[i]];
+            gc.moveTo(a[0], a[1]);
+            if (curved && curveOffset[i] != 0)
+                gc.quadraticCurveTo(controlX[i], controlY[i], b[0], b[1]);
+            else
+                gc.lineTo(b[0], b[1]);
+        }
+    }
+
+    private void drawRoute(GraphicsContext gc) {
+        if (route.size() < 2)
+            return;
+        gc.setStroke(Color.RED);
+        gc.setLineWidth(Math.max(3, 2 / scale));
+        gc.beginPath();
+        double[] first = locations[route.get(0)];
+        gc.moveTo(first[0], first[1]);
+        for (int i = 1; i < route.size(); i++) {
+            double[] p = locations[route.get(i)];
+            gc.lineTo(p[0], p[1]);
+        }
+        gc.stroke();
+    }
+
+    private void drawHouses(GraphicsContext gc, double minX, double minY, double maxX, double maxY, boolean detailed) {
+        int count = houseIndex.withinBox(minX, minY, maxX, maxY, visibleHouses);
+        if (count > visibleHouses.length) {
+            visibleHouses = new int[Integer.highestOneBit(count) * 2];
+            houseIndex.withinBox(minX, minY, maxX, maxY, visibleHouses);
+        }
+
+        double half = detailed ? HOUSE_SIZE : Math.max(HOUSE_SIZE / 2, MIN_HOUSE_PIXELS / scale / 2);
+        // one pass per colour in use, houses rarely have more than a few
+        for (Color color : palette.keySet()) {
+            gc.setFill(color);
+            for (int k = 0; k < count; k++) {
+                int i = visibleHouses[k];
+                if (houseColors[i].equals(color))
+                    gc.fillRect(locations[i][0] - half, locations[i][1] - half, 2 * half, 2 * half);
+            }
+            if (!detailed)
+                continue;
+            gc.setFill(color.darker());
+            for (int k = 0; k < count; k++) {
+                int i = visibleHouses[k];
+                if (!houseColors[i].equals(color))
+                    continue;
+                double x = locations[i][0], y = locations[i][1];
+                roofX[0] = x - half;
+                roofX[1] = x + half;
+                roofX[2] = x;
+                roofY[0] = y - half;
+                roofY[1] = y - half;
+                roofY[2] = y - 2 * half;
+                gc.fillPolygon(roofX, roofY, 3);
+            }
+        }
+        if (!detailed)
+            return;
+
+        gc.setFill(Color.BLACK);
+        gc.setFont(Font.font("Arial", 14));
+        for (int k = 0; k < count; k++) {
+            int i = visibleHouses[k];
+            String label = houseLabels[i];
+            if (label == null)
+                houseLabels[i] = label = "House " + i;
+            gc.fillText(label, locations[i][0] - 25, locations[i][1] - 25);
+        }
+    }
+
+    /**
+     * Uniform grid over the map. Every road is listed in each cell its
+     * bounding box overlaps, curve included, since a quadratic curve stays
+     * inside the triangle of its ends and control point.
+     */
+    private static class RoadGrid {
+
+        // cells along the longer side are capped at this
+        private static final int MAX_CELLS_PER_SIDE = 1024;
+
+        // bounding box of every road
+        private final double[] minX, minY, maxX, maxY;
+
+        private final double originX, originY, cellSize;
+        private final int columns, rows;
+
+        // roads of cell c are cellRoads[cellOffsets[c]] up to cellOffsets[c + 1]
+        private final int[] cellOffsets;
+        private final int[] cellRoads;
+
+        // query in which each road was last collected, as it may sit in
+        // several of the cells searched
+        private final int[] seen;
+        private int query;
+
+        RoadGrid(MapCanvas map) {
+            int m = map.roadFrom.length;
+            minX = new double[m];
+            minY = new double[m];
+            maxX = new double[m];
+            maxY = new double[m];
+            double left = Double.MAX_VALUE, top = Double.MAX_VALUE, right = -Double.MAX_VALUE,
+                    bottom = -Double.MAX_VALUE;
+            for (int i = 0; i < m; i++) {
+                double[] a = map.locations[map.roadFrom[i]], b = map.locations[map.roadTo[i]];
+                minX[i] = Math.min(Math.min(a[0], b[0]), map.controlX[i]);
+                minY[i] = Math.min(Math.min(a[1], b[1]), map.controlY[i]);
+                maxX[i] = Math.max(Math.max(a[0], b[0]), map.controlX[i]);
+                maxY[i] = Math.max(Math.max(a[1], b[1]), map.controlY[i]);
+                left = Math.min(left, minX[i]);
+                top = Math.min(top, minY[i]);
+                right = Math.max(right, maxX[i]);
+                bottom = Math.max(bottom, maxY[i]);
+            }
+
+            // about one road per cell
+            double width = m == 0 ? 0 : right - left, height = m == 0 ? 0 : bottom - top;
+            double size = Math.sqrt(width * height / Math.max(1, m));
+            size = Math.max(size, Math.max(width, height) / MAX_CELLS_PER_SIDE);
+            cellSize = size > 0 ? size : 1;
+            originX = m == 0 ? 0 : left;
+            originY = m == 0 ? 0 : top;
+            columns = (int) (width / cellSize) + 1;
+            rows = (int) (height / cellSize) + 1;
+
+            cellOffsets = new int[columns * rows + 1];
+            for (int i = 0; i < m; i++) {
+                for (int row = row(minY[i]); row <= row(maxY[i]); row++) {
+                    for (int column = column(minX[i]); column <= column(maxX[i]); column++)
+                        cellOffsets[row * columns + column + 1]++;
+                }
+            }
+            for (int c = 0; c < columns * rows; c++)
+                cellOffsets[c + 1] += cellOffsets[c];
+            cellRoads = new int[cellOffsets[columns * rows]];
+            int[] fill = Arrays.copyOf(cellOffsets, columns * rows);
+            for (int i = 0; i < m; i++) {
+                for (int row = row(minY[i]); row <= row(maxY[i]); row++) {
+                    for (int column = column(minX[i]); column <= column(maxX[i]); column++)
+                        cellRoads[fill[row * columns + column]++] = i;
+                }
+            }
+            seen = new int[m];
+        }
+
+        /**
+         * @param out receives the roads that overlap the box
+         * @return number of such roads, which may exceed out.length; only the
+         *         first out.length of them are stored
+         */
+        int collect(double left, double top, double right, double bottom, int[] out) {
+            query++;
+            int count = 0;
+            for (int row = row(top); row <= row(bottom); row++) {
+                for (int column = column(left); column <= column(right); column++) {
+                    int cell = row * columns + column;
+                    for (int k = cellOffsets[cell]; k < cellOffsets[cell + 1]; k++) {
+                        int i = cellRoads[k];
+                        if (seen[i] == query || maxX[i] < left || minX[i] > right || maxY[i] < top
+                                || minY[i] > bottom)
+                            continue;
+                        seen[i] = query;
+                        if (count < out.length)
+                            out[count] = i;
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private int column(double x) {
+            return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - originX) / cellSize)));
+        }
+
+        private int row(double y) {
+            return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - originY) / cellSize)));
+        }
+    }
+}
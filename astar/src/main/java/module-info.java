@@ -1,8 +1,10 @@
 module com.example.astar {
     requires javafx.controls;
     requires javafx.fxml;
+    requires com.example.astar.core;
+    requires java.management;
 
 
     opens com.example.astar to javafx.fxml;
     exports com.example.astar;
-}
\ No newline at end of file
+}